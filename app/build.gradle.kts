@@ -17,6 +17,9 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // The microbenchmarks in androidTest (e.g. EntityCodecBenchmark) run in the debuggable
+        // test build; their numbers are for comparing one approach against another
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "DEBUGGABLE,EMULATOR"
         vectorDrawables {
             useSupportLibrary = true
         }
@@ -27,6 +30,14 @@ android {
             isMinifyEnabled = false
             proguardFiles(getDefaultProguardFile("proguard-android-optimize.txt"), "proguard-rules.pro")
         }
+        // Release build the :macrobenchmark module measures; src/benchmark adds the
+        // synthetic data hook, so the app can run without a Firebase login
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
@@ -34,10 +45,21 @@ android {
     }
     kotlinOptions {
         jvmTarget = "1.8"
+        // Compose compiler stability reports and metrics, written to build/compose_compiler.
+        // *-classes.txt lists which models are stable, *-composables.txt which composables can skip.
+        val composeReports = layout.buildDirectory.dir("compose_compiler").get().asFile.absolutePath
+        freeCompilerArgs += listOf(
+            "-P", "plugin:androidx.compose.compiler.plugins.kotlin:reportsDestination=$composeReports",
+            "-P", "plugin:androidx.compose.compiler.plugins.kotlin:metricsDestination=$composeReports"
+        )
     }
     buildFeatures {
         compose = true
     }
+    testOptions {
+        // android.util.Log and friends return defaults in JVM unit tests instead of throwing
+        unitTests.isReturnDefaultValues = true
+    }
     composeOptions {
         kotlinCompilerExtensionVersion = "1.5.4"
     }
@@ -58,8 +80,12 @@ android {
 
 dependencies {
 
+    // Ledger math (Money, totals, rollups, CSV), plain JVM
+    implementation(project(":core"))
+
     implementation("androidx.core:core-ktx:1.12.0")
     implementation("androidx.lifecycle:lifecycle-runtime-ktx:2.6.2")
+    implementation("androidx.lifecycle:lifecycle-viewmodel-compose:2.6.2")
     implementation("androidx.activity:activity-compose:1.8.1")
     implementation(platform("androidx.compose:compose-bom:2023.08.00"))
     implementation("androidx.compose.ui:ui")
@@ -72,13 +98,25 @@ dependencies {
     val roomVersion = "2.6.1"
     implementation("androidx.room:room-runtime:$roomVersion")
     implementation("androidx.room:room-ktx:$roomVersion")
+    implementation("androidx.room:room-paging:$roomVersion")
     ksp("androidx.room:room-compiler:$roomVersion")
 
+    // Paging (sold items history)
+    val pagingVersion = "3.2.1"
+    implementation("androidx.paging:paging-runtime-ktx:$pagingVersion")
+    implementation("androidx.paging:paging-compose:$pagingVersion")
+
     // Firebase
     implementation(platform("com.google.firebase:firebase-bom:32.7.0"))
     implementation("com.google.firebase:firebase-auth-ktx")
     implementation("com.google.firebase:firebase-firestore-ktx")
 
+    // Persistent lists for incremental snapshot processing
+    implementation("org.jetbrains.kotlinx:kotlinx-collections-immutable:0.3.6")
+
+    // Installs the Baseline Profile (src/main/baseline-prof.txt) on devices without Play
+    implementation("androidx.profileinstaller:profileinstaller:1.3.1")
+
     // Biometric Authentication
     implementation("androidx.biometric:biometric:1.1.0")
 
@@ -90,8 +128,10 @@ dependencies {
     // I will write a simple custom Chart composable to be safe and dependency-free.)
 
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.jetbrains.kotlinx:kotlinx-coroutines-test:1.7.3")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
+    androidTestImplementation("androidx.benchmark:benchmark-junit4:1.2.2")
     androidTestImplementation(platform("androidx.compose:compose-bom:2023.08.00"))
     androidTestImplementation("androidx.compose.ui:ui-test-junit4")
     debugImplementation("androidx.compose.ui:ui-tooling")
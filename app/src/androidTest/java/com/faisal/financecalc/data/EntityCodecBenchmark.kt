@@ -0,0 +1,121 @@
+package com.faisal.financecalc.data
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import com.google.firebase.firestore.util.CustomClassMapper
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Decoding 10k document maps with the hand-written codecs vs. the reflective mapper that
+// DocumentSnapshot.toObject used (CustomClassMapper, into mutable copies of the old entity
+// classes). Both read the same maps in the shape Firestore hands them back (whole numbers as
+// Long), so only the mapping itself is measured.
+// ./gradlew :app:connectedDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.faisal.financecalc.data.EntityCodecBenchmark
+@RunWith(AndroidJUnit4::class)
+class EntityCodecBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val soldItems = List(DOCUMENTS) { i ->
+        "sold-$i" to firestoreShape(EntityCodecs.SOLD_ITEM.encode(SoldItem(
+            id = i.toLong(), name = "Item $i", profit = Money(i * 37L - 5_000),
+            dateTimestamp = 1_700_000_000_000L + i * 60_000L, month = i % 12 + 1, year = 2020 + i % 5
+        )))
+    }
+
+    private val entries = List(DOCUMENTS) { i ->
+        "entry-$i" to firestoreShape(EntityCodecs.ENTRY.encode(FinanceEntry(
+            id = i.toLong(), name = "Entry $i", amount = Money(i * 113L), type = if (i % 2 == 0) EntryType.INCOME else EntryType.EXPENSE,
+            category = "Fixed", subEntries = List(i % 3) { SubEntry("Part $it", Money(it * 250L)) },
+            orderIndex = i, dateTimestamp = 1_700_000_000_000L + i
+        )))
+    }
+
+    private val expectedProfit = soldItems.sumOf { (it.second["profitMinor"] as Number).toLong() }
+    private val expectedSubEntries = entries.sumOf { (it.second["subEntries"] as List<*>).size }
+
+    @Test
+    fun soldItemsCodec() {
+        benchmarkRule.measureRepeated {
+            var profit = 0L
+            for ((docId, data) in soldItems) profit += EntityCodecs.SOLD_ITEM.decode(docId, data).profit.minor
+            assertEquals(expectedProfit, profit)
+        }
+    }
+
+    @Test
+    fun soldItemsToObject() {
+        benchmarkRule.measureRepeated {
+            var profit = 0L
+            for ((_, data) in soldItems) profit += CustomClassMapper.convertToCustomClass(data, MappedSoldItem::class.java, null).profitMinor
+            assertEquals(expectedProfit, profit)
+        }
+    }
+
+    @Test
+    fun entriesCodec() {
+        benchmarkRule.measureRepeated {
+            var count = 0
+            for ((docId, data) in entries) count += EntityCodecs.ENTRY.decode(docId, data).subEntries.size
+            assertEquals(expectedSubEntries, count)
+        }
+    }
+
+    @Test
+    fun entriesToObject() {
+        benchmarkRule.measureRepeated {
+            var count = 0
+            for ((_, data) in entries) count += CustomClassMapper.convertToCustomClass(data, MappedEntry::class.java, null).subEntries.size
+            assertEquals(expectedSubEntries, count)
+        }
+    }
+
+    // Firestore returns every whole number as Long and lists as ArrayList
+    private fun firestoreShape(value: Any?): Any? = when (value) {
+        is Int -> value.toLong()
+        is Map<*, *> -> value.entries.associateTo(HashMap()) { (k, v) -> k as String to firestoreShape(v) }
+        is List<*> -> value.mapTo(ArrayList()) { firestoreShape(it) }
+        else -> value
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun firestoreShape(data: Map<String, Any?>): Map<String, Any?> = firestoreShape(data as Any?) as Map<String, Any?>
+
+    // The entities as toObject needed them: mutable, no-arg constructible
+    class MappedSoldItem {
+        var id: Long = 0
+        var name: String = ""
+        var profitMinor: Long = 0
+        var dateTimestamp: Long = 0
+        var month: Int = 0
+        var year: Int = 0
+    }
+
+    class MappedSubEntry {
+        var name: String = ""
+        var amountMinor: Long = 0
+    }
+
+    class MappedEntry {
+        var id: Long = 0
+        var name: String = ""
+        var amountMinor: Long = 0
+        var type: EntryType = EntryType.INCOME
+        var category: String = ""
+        var isAutoCalculated: Boolean = false
+        var subEntries: List<MappedSubEntry> = emptyList()
+        var excludedFromTotal: Boolean = false
+        var orderIndex: Int = 0
+        var dateTimestamp: Long = 0
+    }
+
+    companion object {
+        private const val DOCUMENTS = 10_000
+    }
+}
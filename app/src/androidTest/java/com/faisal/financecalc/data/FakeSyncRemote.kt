@@ -0,0 +1,144 @@
+package com.faisal.financecalc.data
+
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.ProfitRollup
+import com.faisal.financecalc.core.ProfitRollups
+import kotlinx.collections.immutable.toPersistentList
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.awaitCancellation
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+
+// In-memory server for the SyncEngine tests: documents per collection plus the profit rollups,
+// with the same semantics as FirestoreRepository's writes. Snapshot streams stay silent unless
+// a test serves a collection (serveSnapshots), so the other tests only see what the push does.
+class FakeSyncRemote(private val uid: String = "test-user") : SyncRemote {
+
+    private val store = HashMap<String, HashMap<String, Map<String, Any?>>>()
+    val rollups = HashMap<String, ProfitRollup>()
+
+    private val served = HashSet<String>()
+    private val subscriptions = HashMap<String, Int>()
+    private val listeners = HashMap<String, CompletableDeferred<Unit>>()
+
+    // Listeners of name deliver one server snapshot of the stored documents when attached
+    @Synchronized
+    fun serveSnapshots(name: String) {
+        served += name
+    }
+
+    // Fails the current listener of name the way Firestore ends one (listener errors are final)
+    fun breakListener(name: String) {
+        synchronized(this) { listeners[name] }?.completeExceptionally(IllegalStateException("PERMISSION_DENIED"))
+    }
+
+    @Synchronized
+    fun subscriptions(name: String): Int = subscriptions[name] ?: 0
+
+    @Synchronized
+    fun documents(name: String): Map<String, Map<String, Any?>> = HashMap(store[name].orEmpty())
+
+    private fun collection(name: String) = store.getOrPut(name) { HashMap() }
+
+    private fun addRollup(sale: SoldItem, sign: Int) {
+        val key = ProfitRollups.key(sale.month, sale.year)
+        val current = rollups[key] ?: ProfitRollup(sale.month, sale.year)
+        rollups[key] = current.copy(profit = current.profit + Money(sale.profit.minor * sign), count = current.count + sign)
+    }
+
+    private fun storedSale(docId: String): SoldItem? {
+        return collection(FirestoreCollections.SOLD_ITEMS)[docId]?.let { EntityCodecs.SOLD_ITEM.decode(docId, it) }
+    }
+
+    override fun currentUserId(): String = uid
+
+    override fun <T> snapshots(name: String, codec: EntityCodec<T>): Flow<RemoteSnapshot<T>> = flow {
+        val broken = CompletableDeferred<Unit>()
+        val serve = synchronized(this@FakeSyncRemote) {
+            subscriptions[name] = subscriptions(name) + 1
+            listeners[name] = broken
+            name in served
+        }
+        if (!serve) awaitCancellation()
+        val items = documents(name).map { (docId, data) -> codec.decode(docId, data) }
+        emit(RemoteSnapshot(items.toPersistentList(), items, removedKeys = emptyList(), isFromCache = false))
+        broken.await()
+        awaitCancellation()
+    }
+
+    // Holds batched commits while set: reached completes when one arrives, which then waits for
+    // release (a push suspended in the middle of its flush)
+    class CommitGate {
+        val reached = CompletableDeferred<Unit>()
+        val release = CompletableDeferred<Unit>()
+    }
+
+    @Volatile
+    var commitGate: CommitGate? = null
+
+    override suspend fun commit(writes: List<RemoteWrite>, onProgress: (BulkProgress) -> Unit) {
+        commitGate?.let { gate ->
+            gate.reached.complete(Unit)
+            gate.release.await()
+        }
+        apply(writes)
+    }
+
+    @Synchronized
+    private fun apply(writes: List<RemoteWrite>) {
+        for (write in writes) {
+            when (write) {
+                is RemoteWrite.Set -> collection(write.collection)[write.docId] = write.data
+                is RemoteWrite.Delete -> collection(write.collection).remove(write.docId)
+            }
+        }
+    }
+
+    @Synchronized
+    override suspend fun deleteAll(name: String, onProgress: (BulkProgress) -> Unit) {
+        collection(name).clear()
+    }
+
+    @Synchronized
+    override suspend fun insertSoldItems(items: List<SoldItem>, onProgress: (BulkProgress) -> Unit) {
+        for (item in items) {
+            storedSale(item.docId)?.let { addRollup(it, -1) }
+            collection(FirestoreCollections.SOLD_ITEMS)[item.docId] = EntityCodecs.SOLD_ITEM.encode(item)
+            addRollup(item, 1)
+        }
+    }
+
+    @Synchronized
+    override suspend fun updateSoldItem(item: SoldItem) {
+        insertSoldItems(listOf(item)) {}
+    }
+
+    @Synchronized
+    override suspend fun deleteSoldItem(docId: String) {
+        val previous = storedSale(docId) ?: return
+        addRollup(previous, -1)
+        collection(FirestoreCollections.SOLD_ITEMS).remove(docId)
+    }
+
+    @Synchronized
+    override suspend fun deleteAllSoldItems(onProgress: (BulkProgress) -> Unit) {
+        collection(FirestoreCollections.SOLD_ITEMS).clear()
+        rollups.clear()
+    }
+
+    @Synchronized
+    override suspend fun sellItem(shopItemDocId: String, sale: SoldItem?): Boolean {
+        val items = collection(FirestoreCollections.SHOP_ITEMS)
+        val item = items[shopItemDocId] ?: return false
+        val count = (item["count"] as Number).toLong()
+        if (count <= 0) return false
+        if (count == 1L) items.remove(shopItemDocId) else items[shopItemDocId] = item + ("count" to count - 1)
+        if (sale != null) insertSoldItems(listOf(sale)) {}
+        return true
+    }
+
+    @Synchronized
+    override suspend fun <T> fetch(name: String, docId: String, codec: EntityCodec<T>): T? {
+        return collection(name)[docId]?.let { codec.decode(docId, it) }
+    }
+}
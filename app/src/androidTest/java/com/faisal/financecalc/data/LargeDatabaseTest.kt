@@ -0,0 +1,132 @@
+package com.faisal.financecalc.data
+
+import android.content.Context
+import android.util.Log
+import androidx.paging.PagingSource
+import androidx.room.withTransaction
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.AfterClass
+import org.junit.Assert.assertTrue
+import org.junit.BeforeClass
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Lookup times on a store of ROWS rows per table. The median of RUNS calls has to stay inside
+// one frame (BUDGET_MS); with the indexes in place they take well under a millisecond.
+// adb logcat -s LargeDatabaseTest shows the measured times.
+@RunWith(AndroidJUnit4::class)
+class LargeDatabaseTest {
+
+    private val dao get() = database.financeDao()
+
+    @Test
+    fun getEntryByName() = assertFast("getEntryByName") { dao.getEntryByName("Entry ${ROWS / 2}") }
+
+    @Test
+    fun getMaxOrderIndex() = assertFast("getMaxOrderIndex") { dao.getMaxOrderIndex(EntryType.EXPENSE) }
+
+    @Test
+    fun pageSoldItemsForMonth() = assertFast("pageSoldItemsForMonth") {
+        dao.pageSoldItemsForMonth(6, 2024).load(PagingSource.LoadParams.Refresh(null, PAGE_SIZE, false))
+    }
+
+    @Test
+    fun pageHistoryForEntry() = assertFast("pageHistoryForEntry") {
+        dao.pageHistoryForEntry(42).load(PagingSource.LoadParams.Refresh(null, PAGE_SIZE, false))
+    }
+
+    @Test
+    fun getPendingDocIds() = assertFast("getPendingDocIds") { dao.getPendingDocIds(FirestoreCollections.CREDIT_CARDS) }
+
+    @Test
+    fun hasPendingWrite() = assertFast("hasPendingWrite") { dao.hasPendingWrite(FirestoreCollections.ENTRIES, "e${ROWS / 2}") }
+
+    @Test
+    fun getProfitForMonth() = assertFast("getProfitForMonth") { dao.getProfitForMonth(6, 2024).first() }
+
+    // The search screen runs this on every keystroke: three FTS queries, 50 hits each at most
+    @Test
+    fun search() {
+        val scope = CoroutineScope(SupervisorJob())
+        val prefs = InstrumentationRegistry.getInstrumentation().targetContext.getSharedPreferences(TAG, Context.MODE_PRIVATE)
+        val repository = FinanceRepository(database, FirestoreRepository(scope), SyncEngine(database, FakeSyncRemote(), prefs, scope))
+        try {
+            // Common prefix, a number prefix in every table, two words, one exact row, no hit
+            for (text in listOf("s", "12", "sale 77", "Entry ${ROWS - 1}", "zzz")) {
+                assertFast("search \"$text\"") { repository.search(text).first() }
+            }
+        } finally {
+            scope.cancel()
+        }
+    }
+
+    private fun assertFast(name: String, lookup: suspend () -> Unit) = runBlocking {
+        repeat(WARMUP) { lookup() }
+        val times = LongArray(RUNS) {
+            val start = System.nanoTime()
+            lookup()
+            System.nanoTime() - start
+        }
+        times.sort()
+        val medianMs = times[RUNS / 2] / 1_000_000.0
+        Log.i(TAG, "$name: median %.3f ms, max %.3f ms over $ROWS rows".format(medianMs, times.last() / 1_000_000.0))
+        assertTrue("$name took $medianMs ms", medianMs < BUDGET_MS)
+    }
+
+    companion object {
+        private const val TAG = "LargeDatabaseTest"
+        private const val ROWS = 100_000
+        private const val CHUNK = 5_000
+        private const val PAGE_SIZE = 30
+        private const val WARMUP = 5
+        private const val RUNS = 25
+        private const val BUDGET_MS = 16.0
+
+        private lateinit var database: AppDatabase
+
+        // Seeded once for the class: entries, shop items, sold items (spread over five years),
+        // history (spread over 1000 entries) and an outbox of pending entry writes
+        @BeforeClass
+        @JvmStatic
+        fun seed() = runBlocking {
+            database = AppDatabase.inMemory(InstrumentationRegistry.getInstrumentation().targetContext)
+            val dao = database.financeDao()
+            for (from in 0 until ROWS step CHUNK) {
+                val range = from until from + CHUNK
+                database.withTransaction {
+                    dao.insertEntries(range.map {
+                        FinanceEntry(name = "Entry $it", amount = Money(it.toLong()), type = EntryType.values()[it % 2],
+                            category = "Fixed", orderIndex = it, dateTimestamp = it.toLong(), docId = "e$it")
+                    })
+                    dao.insertShopItems(range.map {
+                        ShopItem(name = "Item $it", count = it % 10, pricePerUnit = Money(500), purchasePrice = Money(200),
+                            orderIndex = it, category = "General", docId = "i$it")
+                    })
+                    dao.insertSoldItems(range.map {
+                        SoldItem(name = "Sale $it", profit = Money(it % 1000L), dateTimestamp = it.toLong(),
+                            month = it % 12 + 1, year = 2020 + it % 5, docId = "s$it")
+                    })
+                    dao.insertHistoryEntries(range.map {
+                        HistoryEntry(entryId = it % 1000L, oldAmount = Money(it.toLong()), newAmount = Money(it + 1L),
+                            dateTimestamp = it.toLong(), docId = "h$it")
+                    })
+                    dao.insertOutboxOps(range.map { OutboxOperation(collection = FirestoreCollections.ENTRIES, docId = "e$it", type = OutboxOp.UPSERT) })
+                }
+            }
+        }
+
+        @AfterClass
+        @JvmStatic
+        fun close() {
+            database.close()
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.faisal.financecalc.data
+
+import androidx.paging.PagingSource
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.faisal.financecalc.core.EntryType
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Collections
+
+// The DAO's lookups are answered from an index, never by scanning the table. Each test runs
+// the real DAO call, captures the SQL Room sends (query callback) and checks its
+// EXPLAIN QUERY PLAN.
+@RunWith(AndroidJUnit4::class)
+class QueryPlanTest {
+
+    private lateinit var database: AppDatabase
+    private val dao get() = database.financeDao()
+    private val statements = Collections.synchronizedList(ArrayList<Pair<String, List<Any?>>>())
+
+    @Before
+    fun setUp() = runBlocking {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        database = AppDatabase.inMemory(context) {
+            setQueryCallback({ sql, args -> statements += sql to args.toList() }, Runnable::run)
+        }
+        dao.insertEntries(List(10) { FinanceEntry(name = "Entry $it", type = EntryType.values()[it % 2], orderIndex = it, docId = "e$it") })
+        dao.insertSoldItems(List(10) { SoldItem(name = "Sale $it", month = it % 12 + 1, year = 2024, dateTimestamp = it.toLong(), docId = "s$it") })
+        dao.insertHistoryEntries(List(10) { HistoryEntry(entryId = it % 3L, dateTimestamp = it.toLong(), docId = "h$it") })
+        dao.insertOutboxOps(List(10) {
+            OutboxOperation(collection = FirestoreCollections.SOLD_ITEMS, docId = "s$it", type = OutboxOp.SELL,
+                relatedCollection = FirestoreCollections.SHOP_ITEMS, relatedDocId = "i$it")
+        })
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun getEntryByName() = runBlocking {
+        assertSearch(plan { dao.getEntryByName("Entry 3") }, "entries", "index_entries_name")
+    }
+
+    @Test
+    fun getMaxOrderIndex() = runBlocking {
+        val plan = plan { dao.getMaxOrderIndex(EntryType.EXPENSE) }
+        assertSearch(plan, "entries", "index_entries_type_orderIndex")
+        assertTrue(plan.toString(), plan.any { "COVERING INDEX index_entries_type_orderIndex" in it })
+    }
+
+    @Test
+    fun pageSoldItemsForMonth() = runBlocking {
+        val plan = plan { dao.pageSoldItemsForMonth(3, 2024).load(PagingSource.LoadParams.Refresh(null, 20, false)) }
+        assertSearch(plan, "sold_items", "index_sold_items_year_month_dateTimestamp")
+        assertNoSort(plan)
+    }
+
+    @Test
+    fun pageHistoryForEntry() = runBlocking {
+        val plan = plan { dao.pageHistoryForEntry(1).load(PagingSource.LoadParams.Refresh(null, 20, false)) }
+        assertSearch(plan, "entry_history", "index_entry_history_entryId_dateTimestamp")
+        assertNoSort(plan)
+    }
+
+    @Test
+    fun getPendingDocIds() = runBlocking {
+        val plan = plan { dao.getPendingDocIds(FirestoreCollections.SHOP_ITEMS) }
+        assertSearch(plan, "outbox", "index_outbox_collection_docId")
+        assertSearch(plan, "outbox", "index_outbox_relatedCollection_relatedDocId")
+    }
+
+    @Test
+    fun getChangingDocIds() = runBlocking {
+        val plan = plan { dao.getChangingDocIds(FirestoreCollections.SHOP_ITEMS) }
+        assertSearch(plan, "outbox", "index_outbox_collection_docId")
+        assertSearch(plan, "outbox", "index_outbox_relatedCollection_relatedDocId")
+    }
+
+    @Test
+    fun hasPendingWrite() = runBlocking {
+        assertSearch(plan { dao.hasPendingWrite(FirestoreCollections.SHOP_ITEMS, "i1") }, "outbox", "index_outbox_collection_docId")
+    }
+
+    @Test
+    fun deleteOutboxFor() = runBlocking {
+        assertSearch(plan { dao.deleteOutboxFor(FirestoreCollections.SOLD_ITEMS, "s1") }, "outbox", "index_outbox_collection_docId")
+    }
+
+    @Test
+    fun getProfitForMonth() = runBlocking {
+        assertSearch(plan { dao.getProfitForMonth(3, 2024).first() }, "monthly_rollups", "sqlite_autoindex_monthly_rollups_1")
+    }
+
+    @Test
+    fun getMonthlyProfits() = runBlocking {
+        // Reads every month, but in primary key order without sorting
+        assertNoSort(plan { dao.getMonthlyProfits().first() })
+    }
+
+    // EXPLAIN QUERY PLAN details of the statements block sends (without Room's own bookkeeping)
+    private suspend fun plan(block: suspend () -> Unit): List<String> {
+        statements.clear()
+        block()
+        val sent = statements.toList().filter { (sql, _) ->
+            val verb = sql.trimStart().substringBefore(' ').uppercase()
+            (verb == "SELECT" || verb == "DELETE") && "room_table_modification_log" !in sql
+        }
+        assertFalse("No statement captured", sent.isEmpty())
+        val db = database.openHelper.readableDatabase
+        return sent.flatMap { (sql, args) ->
+            db.query(SimpleSQLiteQuery("EXPLAIN QUERY PLAN $sql", args.toTypedArray())).use { cursor ->
+                val detail = cursor.getColumnIndexOrThrow("detail")
+                List(cursor.count) { cursor.moveToNext(); cursor.getString(detail) }
+            }
+        }
+    }
+
+    // Every step on table is an index SEARCH, and index is one of them. Older SQLite versions
+    // write "SEARCH TABLE x", newer ones "SEARCH x".
+    private fun assertSearch(plan: List<String>, table: String, index: String) {
+        val steps = plan.filter { Regex("^(SCAN|SEARCH) (TABLE )?$table\\b").containsMatchIn(it) }
+        assertFalse("$table not in plan: $plan", steps.isEmpty())
+        val search = Regex("^SEARCH (TABLE )?$table USING (COVERING )?INDEX ")
+        assertTrue("$table is scanned: $plan", steps.all { search.containsMatchIn(it) })
+        assertTrue("$index not used: $plan", steps.any { Regex("INDEX $index\\b").containsMatchIn(it) })
+    }
+
+    private fun assertNoSort(plan: List<String>) {
+        assertFalse("Sorts: $plan", plan.any { "TEMP B-TREE FOR ORDER BY" in it })
+    }
+}
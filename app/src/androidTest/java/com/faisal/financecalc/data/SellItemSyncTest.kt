@@ -0,0 +1,158 @@
+package com.faisal.financecalc.data
+
+import android.content.Context
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.ProfitRollups
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Sales pushed by the SyncEngine take exactly one unit off the server's stock, whether the
+// shop item was already on the server or is still waiting in the outbox itself.
+@RunWith(AndroidJUnit4::class)
+class SellItemSyncTest {
+
+    private lateinit var database: AppDatabase
+    private lateinit var scope: CoroutineScope
+    private lateinit var server: FakeSyncRemote
+    private lateinit var sync: SyncEngine
+    private lateinit var repository: FinanceRepository
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        database = AppDatabase.inMemory(context)
+        scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+        server = FakeSyncRemote()
+        // Same owner as the fake server's user, so starting sync keeps the local store
+        val prefs = context.getSharedPreferences("sell_item_sync_test", Context.MODE_PRIVATE)
+        prefs.edit().clear().putString("local_store_owner", server.currentUserId()).commit()
+        sync = SyncEngine(database, server, prefs, scope)
+        repository = FinanceRepository(database, FirestoreRepository(scope), sync)
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        database.close()
+    }
+
+    @Test
+    fun sellLastUnitOfItemCreatedOffline() = runBlocking {
+        // Offline: sync isn't running, so both writes wait in the outbox
+        repository.insertShopItem(ShopItem(name = "Cable", count = 1, pricePerUnit = Money(500), purchasePrice = Money(200)))
+        val item = database.financeDao().getAllShopItems().first().single()
+        repository.sellItem(item, sale(item))
+
+        syncAndDrain()
+
+        assertNull(server.documents(FirestoreCollections.SHOP_ITEMS)[item.docId])
+        assertSaleKept()
+    }
+
+    @Test
+    fun sellOneOfSeveralCreatedOffline() = runBlocking {
+        repository.insertShopItem(ShopItem(name = "Cable", count = 3, pricePerUnit = Money(500), purchasePrice = Money(200)))
+        val item = database.financeDao().getAllShopItems().first().single()
+        repository.sellItem(item, sale(item))
+
+        syncAndDrain()
+
+        assertEquals(2L, (server.documents(FirestoreCollections.SHOP_ITEMS).getValue(item.docId)["count"] as Number).toLong())
+        assertSaleKept()
+    }
+
+    // The item's INSERT has been read and is being committed when the sale happens, so the
+    // server gets the pre-sale count from it; the sale has to correct that on its own
+    @Test
+    fun sellWhileItemPushIsInFlight() = runBlocking {
+        repository.insertShopItem(ShopItem(name = "Cable", count = 3, pricePerUnit = Money(500), purchasePrice = Money(200)))
+        val item = database.financeDao().getAllShopItems().first().single()
+
+        val gate = FakeSyncRemote.CommitGate()
+        server.commitGate = gate
+        sync.start()
+        withTimeout(TIMEOUT_MS) { gate.reached.await() }
+        repository.sellItem(item, sale(item))
+        gate.release.complete(Unit)
+        drain()
+
+        assertEquals(2L, (server.documents(FirestoreCollections.SHOP_ITEMS).getValue(item.docId)["count"] as Number).toLong())
+        assertEquals(2, database.financeDao().getShopItem(item.docId)?.count)
+        assertSaleKept()
+    }
+
+    @Test
+    fun sellLastUnitWhileItemPushIsInFlight() = runBlocking {
+        repository.insertShopItem(ShopItem(name = "Cable", count = 1, pricePerUnit = Money(500), purchasePrice = Money(200)))
+        val item = database.financeDao().getAllShopItems().first().single()
+
+        val gate = FakeSyncRemote.CommitGate()
+        server.commitGate = gate
+        sync.start()
+        withTimeout(TIMEOUT_MS) { gate.reached.await() }
+        repository.sellItem(item, sale(item))
+        gate.release.complete(Unit)
+        drain()
+
+        assertNull(server.documents(FirestoreCollections.SHOP_ITEMS)[item.docId])
+        assertSaleKept()
+    }
+
+    @Test
+    fun sellLastUnitOfSyncedItem() = runBlocking {
+        repository.insertShopItem(ShopItem(name = "Cable", count = 1, pricePerUnit = Money(500), purchasePrice = Money(200)))
+        syncAndDrain()
+        val item = database.financeDao().getAllShopItems().first().single()
+
+        // Goes through the server transaction (SELL)
+        repository.sellItem(item, sale(item))
+        drain()
+
+        assertNull(server.documents(FirestoreCollections.SHOP_ITEMS)[item.docId])
+        assertSaleKept()
+    }
+
+    private fun sale(item: ShopItem) = SoldItem(
+        name = item.name,
+        profit = item.pricePerUnit - item.purchasePrice,
+        dateTimestamp = 1_700_000_000_000L,
+        month = 11,
+        year = 2023
+    )
+
+    private suspend fun syncAndDrain() {
+        sync.start()
+        drain()
+    }
+
+    private suspend fun drain() {
+        withTimeout(TIMEOUT_MS) { database.financeDao().observeOutboxCount().first { it == 0 } }
+    }
+
+    private suspend fun assertSaleKept() {
+        val local = database.financeDao().getSoldItemDocIds()
+        assertEquals(1, local.size)
+        assertNotNull(server.documents(FirestoreCollections.SOLD_ITEMS)[local.single()])
+        val rollup = server.rollups.getValue(ProfitRollups.key(11, 2023))
+        assertEquals(1L, rollup.count)
+        assertEquals(Money(300), rollup.profit)
+    }
+
+    companion object {
+        private const val TIMEOUT_MS = 30_000L
+    }
+}
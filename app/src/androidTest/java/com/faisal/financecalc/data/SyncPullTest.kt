@@ -0,0 +1,81 @@
+package com.faisal.financecalc.data
+
+import android.content.Context
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.faisal.financecalc.core.Money
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// A snapshot listener that fails (e.g. PERMISSION_DENIED) marks its collection as not
+// confirmed and is attached again, so the collection keeps syncing for the session.
+@RunWith(AndroidJUnit4::class)
+class SyncPullTest {
+
+    private lateinit var database: AppDatabase
+    private lateinit var scope: CoroutineScope
+    private lateinit var server: FakeSyncRemote
+    private lateinit var sync: SyncEngine
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        database = AppDatabase.inMemory(context)
+        scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+        server = FakeSyncRemote()
+        val prefs = context.getSharedPreferences("sync_pull_test", Context.MODE_PRIVATE)
+        prefs.edit().clear().putString("local_store_owner", server.currentUserId()).commit()
+        sync = SyncEngine(database, server, prefs, scope, pullRetryMillis = RETRY_MS)
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        database.close()
+    }
+
+    @Test
+    fun failedListenerIsAttachedAgain() = runBlocking {
+        val shop = FirestoreCollections.SHOP_ITEMS
+        server.commit(listOf(write(item("a")))) {}
+        server.serveSnapshots(shop)
+        sync.start()
+
+        withTimeout(TIMEOUT_MS) {
+            awaitShopItems("a")
+            sync.fromCache.first { shop !in it }
+
+            // Changed on the server while the listener is down
+            server.commit(listOf(write(item("b")))) {}
+            server.breakListener(shop)
+            sync.fromCache.first { shop in it }
+
+            awaitShopItems("a", "b")
+            sync.fromCache.first { shop !in it }
+        }
+        assertEquals(2, server.subscriptions(shop))
+    }
+
+    private fun item(docId: String) = ShopItem(name = "Item $docId", count = 1, pricePerUnit = Money(100), docId = docId)
+
+    private fun write(item: ShopItem) = RemoteWrite.Set(FirestoreCollections.SHOP_ITEMS, item.docId, EntityCodecs.SHOP_ITEM.encode(item))
+
+    private suspend fun awaitShopItems(vararg docIds: String) {
+        database.financeDao().getAllShopItems().first { items -> items.map { it.docId }.toSet() == docIds.toSet() }
+    }
+
+    companion object {
+        private const val RETRY_MS = 500L
+        private const val TIMEOUT_MS = 30_000L
+    }
+}
@@ -0,0 +1,81 @@
+package com.faisal.financecalc
+
+import android.app.Activity
+import android.os.Bundle
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.data.DocumentKeys
+import com.faisal.financecalc.data.FinanceEntry
+import com.faisal.financecalc.data.ShopItem
+import com.faisal.financecalc.data.SubEntry
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
+
+// Benchmark build only. Fills the local store with a large synthetic ledger and switches the
+// app to local mode (no login, no sync), so the macrobenchmark measures the same data on
+// every run. Started with:
+// adb shell am start -W -n com.faisal.financecalc/.BenchmarkDataActivity --ei entries 1000 --ei shopItems 500
+class BenchmarkDataActivity : Activity() {
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+        val entryCount = intent.getIntExtra("entries", 1000)
+        val shopItemCount = intent.getIntExtra("shopItems", 500)
+
+        val app = application as FinanceApplication
+        // am start -W waits until this activity is done, so the data is in place before
+        // the benchmark starts MainActivity
+        runBlocking {
+            withContext(Dispatchers.IO) {
+                app.database.clearAllTables()
+                val dao = app.database.financeDao()
+                dao.insertEntries(syntheticEntries(entryCount))
+                dao.insertShopItems(syntheticShopItems(shopItemCount))
+            }
+        }
+        getSharedPreferences("finance_prefs", MODE_PRIVATE).edit()
+            .putBoolean(FinanceApplication.KEY_LOCAL_MODE, true)
+            .commit()
+        finish()
+    }
+
+    private fun syntheticEntries(count: Int): List<FinanceEntry> {
+        val types = EntryType.values()
+        val categories = listOf("Account", "Cash", "Shop", "Family", "Shopping", "Transport", "Savings", "Other")
+        val now = System.currentTimeMillis()
+        return List(count) { i ->
+            val key = DocumentKeys.newKey()
+            FinanceEntry(
+                id = DocumentKeys.longIdOf(key),
+                docId = key,
+                name = "Entry $i",
+                amount = Money(1_000L + (i * 7_919L) % 500_000L),
+                type = types[i % types.size],
+                category = categories[i % categories.size],
+                // Every fifth row is a split booking, the taller row variant
+                subEntries = if (i % 5 == 0) List(3) { SubEntry("Part $it", Money(500L * (it + 1))) } else emptyList(),
+                excludedFromTotal = i % 17 == 0,
+                orderIndex = i / types.size,
+                dateTimestamp = now - i * 3_600_000L
+            )
+        }
+    }
+
+    private fun syntheticShopItems(count: Int): List<ShopItem> {
+        val categories = listOf("Xbox", "Playstation", "Nintendo", "PC", "Phones", "Tablets", "Audio", "Cameras", "Games", "Accessories")
+        return List(count) { i ->
+            val key = DocumentKeys.newKey()
+            ShopItem(
+                id = DocumentKeys.longIdOf(key),
+                docId = key,
+                name = "Item $i",
+                // Enough stock that repeated sell iterations never empty a row
+                count = 1_000 + i % 20,
+                purchasePrice = Money(5_000L + (i * 1_237L) % 40_000L),
+                orderIndex = i,
+                category = categories[i % categories.size]
+            )
+        }
+    }
+}
@@ -1,12 +1,50 @@
 package com.faisal.financecalc
 
 import android.app.Application
+import com.faisal.financecalc.data.AppDatabase
+import com.faisal.financecalc.data.BackupManager
+import com.faisal.financecalc.data.FinanceRepository
 import com.faisal.financecalc.data.FirestoreRepository
+import com.faisal.financecalc.data.StatementImporter
+import com.faisal.financecalc.data.SyncEngine
+import com.google.firebase.auth.FirebaseAuth
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.SupervisorJob
 
 class FinanceApplication : Application() {
     val applicationScope = CoroutineScope(SupervisorJob())
 
-    val repository by lazy { FirestoreRepository() }
+    internal val database by lazy { AppDatabase.getDatabase(this) }
+    private val remoteRepository by lazy { FirestoreRepository(applicationScope) }
+    private val syncEngine by lazy {
+        SyncEngine(database, remoteRepository, getSharedPreferences("finance_prefs", MODE_PRIVATE), applicationScope)
+    }
+
+    val repository by lazy { FinanceRepository(database, remoteRepository, syncEngine) }
+
+    val statementImporter by lazy {
+        StatementImporter(contentResolver, repository, getSharedPreferences("finance_prefs", MODE_PRIVATE))
+    }
+
+    // Snapshots go to files/backups/<uid>. They stay on the device: Android's backup already
+    // carries the database (backup_rules.xml), a second copy would only cost backup quota.
+    val backupManager by lazy {
+        BackupManager(java.io.File(filesDir, "backups"), repository) {
+            FirebaseAuth.getInstance().currentUser?.uid ?: "local"
+        }
+    }
+
+    override fun onCreate() {
+        super.onCreate()
+        FirestoreRepository.configureLocalCache()
+    }
+
+    // Local mode: no login and no sync, the app runs on what is in the local store. Only the
+    // benchmark build can switch it on (src/benchmark, BenchmarkDataActivity).
+    val isLocalMode: Boolean
+        get() = getSharedPreferences("finance_prefs", MODE_PRIVATE).getBoolean(KEY_LOCAL_MODE, false)
+
+    companion object {
+        const val KEY_LOCAL_MODE = "local_mode"
+    }
 }
@@ -11,6 +11,7 @@ import androidx.compose.material.icons.filled.Home
 import androidx.compose.material.icons.filled.LightMode
 import androidx.compose.material.icons.filled.Logout
 import androidx.compose.material.icons.filled.MoneyOff
+import androidx.compose.material.icons.filled.Search
 import androidx.compose.material.icons.filled.Settings
 import androidx.compose.material.icons.filled.Share
 import androidx.compose.material.icons.filled.ShoppingCart
@@ -25,36 +26,50 @@ import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.remember
 import androidx.compose.runtime.setValue
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.ExperimentalComposeUiApi
 import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.testTag
+import androidx.compose.ui.semantics.semantics
+import androidx.compose.ui.semantics.testTagsAsResourceId
 import androidx.lifecycle.ViewModelProvider
+import androidx.lifecycle.viewmodel.compose.viewModel
 import androidx.navigation.NavHostController
 import androidx.navigation.compose.NavHost
 import androidx.navigation.compose.composable
 import androidx.navigation.compose.currentBackStackEntryAsState
 import androidx.navigation.compose.rememberNavController
 import androidx.navigation.NavGraph.Companion.findStartDestination
-import com.faisal.financecalc.data.EntryType
+import com.faisal.financecalc.core.EntryType
 import com.faisal.financecalc.ui.screens.FinanceListScreen
 
 import com.faisal.financecalc.ui.screens.LoginScreen
 import com.faisal.financecalc.ui.screens.PremiumDashboardScreen
 import com.faisal.financecalc.ui.screens.ShopScreen
 import com.faisal.financecalc.ui.theme.FinanceCalcTheme
+import com.faisal.financecalc.viewmodel.DashboardViewModel
+import com.faisal.financecalc.viewmodel.FinanceViewModelFactory
+import com.faisal.financecalc.viewmodel.LedgerViewModel
 import com.faisal.financecalc.viewmodel.MainViewModel
-import com.faisal.financecalc.viewmodel.MainViewModelFactory
+import com.faisal.financecalc.viewmodel.ProfitViewModel
+import com.faisal.financecalc.viewmodel.SearchViewModel
+import com.faisal.financecalc.viewmodel.SettingsViewModel
+import com.faisal.financecalc.viewmodel.ShopViewModel
 import com.google.firebase.auth.FirebaseAuth
 
 class MainActivity : ComponentActivity() {
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         
-        val repository = (application as FinanceApplication).repository
-        val viewModel = ViewModelProvider(this, MainViewModelFactory(application, repository))[MainViewModel::class.java]
+        val app = application as FinanceApplication
+        val repository = app.repository
+        val factory = FinanceViewModelFactory(application, repository)
+        // App-wide state (session, theme, language); each destination gets its own ViewModel below
+        val viewModel = ViewModelProvider(this, factory)[MainViewModel::class.java]
 
         setContent {
             val isDarkMode by viewModel.isDarkMode.collectAsState()
             val language by viewModel.appLanguage.collectAsState()
-            var isLoggedIn by remember { mutableStateOf(FirebaseAuth.getInstance().currentUser != null) }
+            var isLoggedIn by remember { mutableStateOf(FirebaseAuth.getInstance().currentUser != null || app.isLocalMode) }
 
             val appStrings = when(language) {
                 "English" -> com.faisal.financecalc.ui.theme.EnStrings
@@ -78,11 +93,11 @@ class MainActivity : ComponentActivity() {
                         }
                         
                         MainApp(
-                            viewModel = viewModel, 
+                            appViewModel = viewModel,
+                            factory = factory,
                             isDarkMode = isDarkMode,
                             onLogout = {
-                                FirebaseAuth.getInstance().signOut()
-                                isLoggedIn = false
+                                viewModel.signOut { isLoggedIn = false }
                             }
                         )
                     } else {
@@ -98,25 +113,34 @@ class MainActivity : ComponentActivity() {
     }
 }
 
-@OptIn(ExperimentalMaterial3Api::class)
+@OptIn(ExperimentalMaterial3Api::class, ExperimentalComposeUiApi::class)
 @Composable
-fun MainApp(viewModel: MainViewModel, isDarkMode: Boolean, onLogout: () -> Unit) {
+fun MainApp(appViewModel: MainViewModel, factory: FinanceViewModelFactory, isDarkMode: Boolean, onLogout: () -> Unit) {
     val navController = rememberNavController()
     val context = LocalContext.current
+    val currencySymbol by appViewModel.currencySymbol.collectAsState()
     
     Scaffold(
+        // Lets UiAutomator (macrobenchmark) find composables by their testTag
+        modifier = Modifier.semantics { testTagsAsResourceId = true },
         topBar = {
             TopAppBar(
                 title = { Text("FinanceCalc") },
                 actions = {
-                    IconButton(onClick = { viewModel.toggleDarkMode() }) {
+                    IconButton(onClick = { navController.navigate("search") { launchSingleTop = true } }) {
+                        Icon(Icons.Default.Search, contentDescription = "Search")
+                    }
+                    IconButton(onClick = { appViewModel.toggleDarkMode() }) {
                         Icon(
                             imageVector = if (isDarkMode) Icons.Default.LightMode else Icons.Default.DarkMode,
                             contentDescription = "Toggle Theme"
                         )
                     }
                     IconButton(onClick = { 
-                        shareCsv(context, viewModel)
+                        appViewModel.exportCsv(
+                            onReady = { uri -> shareCsv(context, uri) },
+                            onFailed = { android.widget.Toast.makeText(context, "Export failed", android.widget.Toast.LENGTH_SHORT).show() }
+                        )
                     }) {
                         Icon(Icons.Default.Share, contentDescription = "Export CSV")
                     }
@@ -136,9 +160,12 @@ fun MainApp(viewModel: MainViewModel, isDarkMode: Boolean, onLogout: () -> Unit)
             startDestination = "home",
             modifier = Modifier.padding(innerPadding)
         ) {
+            // ViewModels created inside a destination are scoped to its back stack entry, so
+            // only the screens that are open keep their queries running
             composable("home") {
                 PremiumDashboardScreen(
-                    viewModel = viewModel,
+                    viewModel = viewModel<DashboardViewModel>(factory = factory),
+                    currencySymbol = currencySymbol,
                     onNavigateToIncome = { navController.navigate("income") },
                     onNavigateToExpenses = { navController.navigate("expenses") },
                     onNavigateToCards = { navController.navigate("shop") },
@@ -146,45 +173,52 @@ fun MainApp(viewModel: MainViewModel, isDarkMode: Boolean, onLogout: () -> Unit)
                 )
             }
             composable("income") {
-                FinanceListScreen(viewModel = viewModel, type = EntryType.INCOME, title = "Income")
+                FinanceListScreen(viewModel = viewModel<LedgerViewModel>(factory = factory), type = EntryType.INCOME, title = "Income")
             }
             composable("expenses") {
-                FinanceListScreen(viewModel = viewModel, type = EntryType.EXPENSE, title = "Expenses")
+                FinanceListScreen(viewModel = viewModel<LedgerViewModel>(factory = factory), type = EntryType.EXPENSE, title = "Expenses")
             }
             composable("shop") {
-                ShopScreen(viewModel = viewModel)
+                ShopScreen(viewModel = viewModel<ShopViewModel>(factory = factory), currencySymbol = currencySymbol)
             }
             composable("debts") {
-                FinanceListScreen(viewModel = viewModel, type = EntryType.DEBT, title = "Debts")
+                FinanceListScreen(viewModel = viewModel<LedgerViewModel>(factory = factory), type = EntryType.DEBT, title = "Debts")
             }
             composable("profit") {
-                com.faisal.financecalc.ui.screens.ProfitScreen(viewModel = viewModel)
+                com.faisal.financecalc.ui.screens.ProfitScreen(viewModel = viewModel<ProfitViewModel>(factory = factory))
+            }
+            composable("search") {
+                com.faisal.financecalc.ui.screens.SearchScreen(
+                    viewModel = viewModel<SearchViewModel>(factory = factory),
+                    onOpenEntry = { result ->
+                        navController.navigate(when (result.type) {
+                            EntryType.EXPENSE -> "expenses"
+                            EntryType.DEBT -> "debts"
+                            else -> "income"
+                        })
+                    },
+                    onOpenShopItem = { navController.navigate("shop") },
+                    onOpenSale = { navController.navigate("profit") }
+                )
             }
             composable("settings") {
-                com.faisal.financecalc.ui.screens.SettingsScreen(viewModel = viewModel)
+                com.faisal.financecalc.ui.screens.SettingsScreen(
+                    viewModel = appViewModel,
+                    settingsViewModel = viewModel<SettingsViewModel>(factory = factory)
+                )
             }
         }
     }
 }
 
-fun shareCsv(context: android.content.Context, viewModel: MainViewModel) {
-    val entries = viewModel.allEntries.value
-    val maxShopItems = viewModel.allShopItems.value
-    
-    val sb = StringBuilder()
-    sb.append("Type,Name,Amount,Category\n")
-    for (entry in entries) {
-        sb.append("${entry.type},${entry.name},${entry.amount},${entry.category}\n")
-    }
-    sb.append("\nSHOP ITEMS\n")
-    for (item in maxShopItems) {
-        sb.append("Item,${item.name},${item.count},${item.pricePerUnit},${item.total}\n")
-    }
-
+// The export file goes out as a content:// URI with a read grant, so its size doesn't matter
+fun shareCsv(context: android.content.Context, uri: android.net.Uri) {
     val intent = android.content.Intent(android.content.Intent.ACTION_SEND).apply {
-        type = "text/plain"
+        type = "text/csv"
         putExtra(android.content.Intent.EXTRA_SUBJECT, "Finance Export")
-        putExtra(android.content.Intent.EXTRA_TEXT, sb.toString())
+        putExtra(android.content.Intent.EXTRA_STREAM, uri)
+        clipData = android.content.ClipData.newRawUri("Finance Export", uri)
+        addFlags(android.content.Intent.FLAG_GRANT_READ_URI_PERMISSION)
     }
     context.startActivity(android.content.Intent.createChooser(intent, "Export Data"))
 }
@@ -206,6 +240,7 @@ fun BottomNavBar(navController: NavHostController) {
         
         for ((route, icon) in items) {
             NavigationBarItem(
+                modifier = Modifier.testTag("nav_$route"),
                 icon = { Icon(icon, contentDescription = route) },
                 label = { Text(route.replaceFirstChar { it.uppercase() }) },
                 selected = currentRoute == route,
@@ -4,97 +4,87 @@ import android.content.Context
 import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
+import androidx.room.TypeConverters
 import androidx.sqlite.db.SupportSQLiteDatabase
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
 
-@Database(entities = [FinanceEntry::class, ShopItem::class, SoldItem::class, HistoryEntry::class, CreditCard::class], version = 8, exportSchema = false)
+@Database(
+    entities = [
+        FinanceEntry::class, ShopItem::class, SoldItem::class, HistoryEntry::class, CreditCard::class, OutboxOperation::class, MonthlyRollup::class,
+        FinanceEntryFts::class, ShopItemFts::class, SoldItemFts::class
+    ],
+    version = AppDatabase.VERSION,
+    exportSchema = false
+)
+@TypeConverters(Converters::class)
 abstract class AppDatabase : RoomDatabase() {
     abstract fun financeDao(): FinanceDao
-    // ... rest of file
-
 
     companion object {
+        const val VERSION = 16
+
         @Volatile
         private var INSTANCE: AppDatabase? = null
 
-        fun getDatabase(context: Context, scope: CoroutineScope): AppDatabase {
+        // Maintain monthly_rollups by deltas. Sold items are written with upserts (INSERT or
+        // UPDATE, never REPLACE), so the insert/update/delete triggers see every change exactly once.
+        private val ROLLUP_TRIGGERS = listOf(
+            """
+            CREATE TRIGGER IF NOT EXISTS sold_items_rollup_insert AFTER INSERT ON sold_items BEGIN
+                INSERT OR IGNORE INTO monthly_rollups (year, month, profit, count) VALUES (NEW.year, NEW.month, 0, 0);
+                UPDATE monthly_rollups SET profit = profit + NEW.profit, count = count + 1
+                    WHERE year = NEW.year AND month = NEW.month;
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS sold_items_rollup_delete AFTER DELETE ON sold_items BEGIN
+                UPDATE monthly_rollups SET profit = profit - OLD.profit, count = count - 1
+                    WHERE year = OLD.year AND month = OLD.month;
+                DELETE FROM monthly_rollups WHERE year = OLD.year AND month = OLD.month AND count <= 0;
+            END
+            """,
+            """
+            CREATE TRIGGER IF NOT EXISTS sold_items_rollup_update AFTER UPDATE OF profit, month, year ON sold_items BEGIN
+                UPDATE monthly_rollups SET profit = profit - OLD.profit, count = count - 1
+                    WHERE year = OLD.year AND month = OLD.month;
+                DELETE FROM monthly_rollups WHERE year = OLD.year AND month = OLD.month AND count <= 0;
+                INSERT OR IGNORE INTO monthly_rollups (year, month, profit, count) VALUES (NEW.year, NEW.month, 0, 0);
+                UPDATE monthly_rollups SET profit = profit + NEW.profit, count = count + 1
+                    WHERE year = NEW.year AND month = NEW.month;
+            END
+            """
+        )
+
+        // The local store is a replica of the user's Firestore data (see SyncEngine), so it is
+        // not seeded here; an empty database is filled by the first pull.
+        fun getDatabase(context: Context): AppDatabase {
             return INSTANCE ?: synchronized(this) {
                 val instance = Room.databaseBuilder(
                     context.applicationContext,
                     AppDatabase::class.java,
                     "finance_database"
                 )
-                .fallbackToDestructiveMigration() // Wipe DB on schema change for simplicity during dev
-                .addCallback(AppDatabaseCallback(scope))
+                .fallbackToDestructiveMigration() // Safe: the data is pulled again from Firestore
+                .addCallback(TRIGGERS_CALLBACK)
                 .build()
                 INSTANCE = instance
                 instance
             }
         }
-    }
-
-    private class AppDatabaseCallback(
-        private val scope: CoroutineScope
-    ) : RoomDatabase.Callback() {
 
-        override fun onCreate(db: SupportSQLiteDatabase) {
-            super.onCreate(db)
-            INSTANCE?.let { database ->
-                scope.launch(Dispatchers.IO) {
-                    populateDatabase(database.financeDao())
-                }
-            }
+        // Same schema and triggers, in memory (instrumented tests)
+        fun inMemory(context: Context, configure: Builder<AppDatabase>.() -> Unit = {}): AppDatabase {
+            return Room.inMemoryDatabaseBuilder(context.applicationContext, AppDatabase::class.java)
+                .addCallback(TRIGGERS_CALLBACK)
+                .apply(configure)
+                .build()
         }
 
-        suspend fun populateDatabase(dao: FinanceDao) {
-            // 1. Account / Main Income
-            dao.insertEntry(FinanceEntry(name = "Sparkasse", amount = 1634.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "DKB", amount = 106.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "Revolut", amount = 0.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "Bar 1", amount = 520.0, type = EntryType.INCOME, category = "Cash"))
-            dao.insertEntry(FinanceEntry(name = "Bar 2", amount = 1080.0, type = EntryType.INCOME, category = "Cash"))
-            dao.insertEntry(FinanceEntry(name = "Shop T (Cash/Alt)", amount = 2400.0, type = EntryType.INCOME, category = "Shop"))
-            dao.insertEntry(FinanceEntry(name = "PayPal", amount = 310.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "In Safe (Tresor)", amount = 1020.0, type = EntryType.INCOME, category = "Safe"))
-            dao.insertEntry(FinanceEntry(name = "GIB", amount = 2952.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "PS", amount = 10.0, type = EntryType.INCOME, category = "Account"))
-            
-            // Shop T Placeholder (Auto-calculated from items below)
-            dao.insertEntry(FinanceEntry(name = "Shop T Calculated", amount = 0.0, type = EntryType.INCOME, category = "Shop", isAutoCalculated = true))
-
-            // 2. Extra Income
-            dao.insertEntry(FinanceEntry(name = "Temu", amount = 196.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Temu 2", amount = 95.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Amazon", amount = 700.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mama", amount = 710.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mama extra", amount = 350.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mona", amount = 56.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mo", amount = 100.0, type = EntryType.INCOME, category = "Extra"))
-
-            // 3. Expenses
-            dao.insertEntry(FinanceEntry(name = "Car", amount = 190.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "Save", amount = 305.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "Baba", amount = 4166.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "Ola", amount = 1500.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "GM", amount = 245.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "GM2", amount = 160.0, type = EntryType.EXPENSE, category = "Fixed"))
-
-            // 4. Shop Items (Profit test: Purchase Price = 0 for now)
-            val shopItems = listOf(
-                ShopItem(name = "xss", count = 1, pricePerUnit = 105.0, purchasePrice = 0.0),
-                ShopItem(name = "xsx", count = 1, pricePerUnit = 210.0, purchasePrice = 0.0),
-                ShopItem(name = "xsx", count = 1, pricePerUnit = 275.0, purchasePrice = 0.0),
-                ShopItem(name = "xc", count = 3, pricePerUnit = 60.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 290.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 290.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 295.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 300.0, purchasePrice = 0.0),
-                ShopItem(name = "nin", count = 1, pricePerUnit = 100.0, purchasePrice = 0.0),
-                ShopItem(name = "nin", count = 1, pricePerUnit = 120.0, purchasePrice = 0.0)
-            )
-            shopItems.forEach { dao.insertShopItem(it) }
+        private val TRIGGERS_CALLBACK = object : Callback() {
+            // onOpen rather than onCreate: a destructive migration recreates the tables
+            // (dropping their triggers) without calling onCreate
+            override fun onOpen(db: SupportSQLiteDatabase) {
+                ROLLUP_TRIGGERS.forEach { db.execSQL(it) }
+            }
         }
     }
 }
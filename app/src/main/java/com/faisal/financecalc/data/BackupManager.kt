@@ -0,0 +1,171 @@
+package com.faisal.financecalc.data
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+
+data class BackupInfo(
+    val lastBackup: Long, // Id (creation time) of the newest snapshot
+    val snapshots: Int,   // FULL + incrementals in the chain
+    val bytes: Long       // Size of the whole chain
+)
+
+data class BackupResult(
+    val kind: SnapshotKind,
+    val written: Int,     // Records in the new snapshot (changed ones for INCREMENTAL)
+    val deleted: Int,     // Documents gone since the previous snapshot
+    val info: BackupInfo
+)
+
+// Local snapshot backups of the signed-in account, one directory per account under root.
+// A backup is INCREMENTAL when the chain has a FULL snapshot and its index is intact: only
+// records whose content hash changed are written, plus DELETED markers. Once a chain holds
+// MAX_INCREMENTALS incrementals the next backup starts a new chain with a FULL snapshot.
+// The index (collection/docId -> content hash of the last snapshot) lives next to the chain.
+class BackupManager(
+    private val root: File,
+    private val repository: FinanceRepository,
+    private val accountId: () -> String
+) {
+    private val dir: File get() = File(root, accountId())
+
+    fun latest(): BackupInfo? = info(chain())
+
+    suspend fun backup(): BackupResult = withContext(Dispatchers.IO) {
+        val dir = dir.apply { mkdirs() }
+        val chain = chain()
+        val last = chain.lastOrNull()
+        val previous = if (last != null && extendsChain(chain.size)) readIndex(last.id) else null
+        val kind = if (previous == null) SnapshotKind.FULL else SnapshotKind.INCREMENTAL
+        val id = maxOf(System.currentTimeMillis(), (last?.id ?: 0L) + 1)
+
+        val index = HashMap<String, Long>(previous?.size ?: 1024)
+        var written = 0
+        var deleted = 0
+        val temp = File(dir, "$id$TEMP_SUFFIX")
+        try {
+            SnapshotWriter(temp.outputStream(), kind, id, baseId = if (previous != null) last!!.id else 0L).use { writer ->
+                repository.forEachRecord { record ->
+                    val key = "${record.collection}/${record.docId}"
+                    val previousHash = previous?.remove(key) ?: SnapshotWriter.NO_HASH
+                    val hash = writer.write(record, previousHash)
+                    if (hash != previousHash) written++
+                    index[key] = hash
+                }
+                // Whatever is left of the previous index no longer exists
+                previous?.keys?.forEach { key ->
+                    writer.delete(key.substringBefore('/'), key.substringAfter('/'))
+                    deleted++
+                }
+            }
+
+            if (kind == SnapshotKind.INCREMENTAL && written == 0 && deleted == 0) {
+                // Nothing changed since the last snapshot
+                temp.delete()
+            } else {
+                if (!temp.renameTo(File(dir, "$id.${kind.name.lowercase()}$SNAPSHOT_SUFFIX"))) throw IOException("Cannot store backup")
+                writeIndex(id, index)
+                if (kind == SnapshotKind.FULL) chain.forEach { it.file.delete() }
+            }
+        } catch (e: Exception) {
+            // Failed or cancelled halfway: no half-written snapshot is left behind
+            temp.delete()
+            throw e
+        }
+        BackupResult(kind, written, deleted, info(chain())!!)
+    }
+
+    // Replaces the account with the newest backup chain. Returns the number of documents.
+    suspend fun restoreLatest(): Int = withContext(Dispatchers.IO) {
+        val chain = chain()
+        if (chain.isEmpty()) throw IOException("No backup")
+        val readers = ArrayList<SnapshotReader>(chain.size)
+        try {
+            var baseId = 0L
+            for (snapshot in chain) {
+                val reader = SnapshotReader(snapshot.file.inputStream()).also { readers += it }
+                // Each snapshot must apply on top of the one before it
+                val expected = if (baseId == 0L) SnapshotKind.FULL else SnapshotKind.INCREMENTAL
+                if (reader.header.kind != expected || reader.header.baseId != baseId || reader.header.id != snapshot.id) {
+                    throw IOException("Backup chain is broken at ${snapshot.file.name}")
+                }
+                baseId = snapshot.id
+            }
+            repository.restore(readers)
+        } finally {
+            readers.forEach { it.close() }
+        }
+    }
+
+    // ========== Chain ==========
+
+    private class Snapshot(val file: File, val id: Long)
+
+    // Snapshots of the current chain, oldest (the FULL one) first
+    private fun chain(): List<Snapshot> {
+        val snapshots = dir.listFiles { file -> file.name.endsWith(SNAPSHOT_SUFFIX) }.orEmpty()
+            .mapNotNull { file -> file.name.substringBefore('.').toLongOrNull()?.let { Snapshot(file, it) } }
+            .sortedBy { it.id }
+        val full = snapshots.indexOfLast { it.file.name.contains(".full.") }
+        return if (full < 0) emptyList() else snapshots.subList(full, snapshots.size)
+    }
+
+    private fun info(chain: List<Snapshot>): BackupInfo? {
+        if (chain.isEmpty()) return null
+        return BackupInfo(lastBackup = chain.last().id, snapshots = chain.size, bytes = chain.sumOf { it.file.length() })
+    }
+
+    // ========== Index ==========
+
+    // Null when there is no index for snapshotId (missing, stale or unreadable), which makes
+    // the next backup a FULL one
+    private fun readIndex(snapshotId: Long): HashMap<String, Long>? {
+        val file = File(dir, INDEX_FILE)
+        if (!file.exists()) return null
+        return try {
+            DataInputStream(file.inputStream().buffered()).use { input ->
+                if (input.readLong() != snapshotId) return null
+                val count = input.readInt()
+                HashMap<String, Long>(count * 2).apply {
+                    repeat(count) { put(input.readUTF(), input.readLong()) }
+                }
+            }
+        } catch (e: IOException) {
+            null
+        }
+    }
+
+    private fun writeIndex(snapshotId: Long, index: Map<String, Long>) {
+        val temp = File(dir, "$INDEX_FILE$TEMP_SUFFIX")
+        try {
+            DataOutputStream(temp.outputStream().buffered()).use { output ->
+                output.writeLong(snapshotId)
+                output.writeInt(index.size)
+                for ((key, hash) in index) {
+                    output.writeUTF(key)
+                    output.writeLong(hash)
+                }
+            }
+            if (!temp.renameTo(File(dir, INDEX_FILE))) throw IOException("Cannot store backup index")
+        } catch (e: IOException) {
+            temp.delete()
+            throw e
+        }
+    }
+
+    companion object {
+        internal const val MAX_INCREMENTALS = 10
+        private const val SNAPSHOT_SUFFIX = ".afsn"
+        private const val TEMP_SUFFIX = ".tmp"
+        private const val INDEX_FILE = "index"
+
+        // Whether the next backup is an INCREMENTAL on top of a chain of chainSize snapshots
+        // (the FULL one plus chainSize - 1 incrementals)
+        internal fun extendsChain(chainSize: Int): Boolean {
+            return chainSize > 0 && chainSize - 1 < MAX_INCREMENTALS
+        }
+    }
+}
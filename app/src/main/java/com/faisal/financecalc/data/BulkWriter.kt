@@ -0,0 +1,79 @@
+package com.faisal.financecalc.data
+
+import com.google.firebase.firestore.DocumentReference
+import com.google.firebase.firestore.FirebaseFirestore
+import com.google.firebase.firestore.SetOptions
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.tasks.await
+import java.util.concurrent.atomic.AtomicInteger
+
+sealed class BulkOperation {
+    data class Set(val ref: DocumentReference, val data: Map<String, Any?>, val merge: Boolean = false) : BulkOperation()
+    data class Delete(val ref: DocumentReference) : BulkOperation()
+}
+
+data class BulkProgress(val completed: Int, val total: Int) {
+    val fraction: Float get() = if (total == 0) 1f else completed.toFloat() / total
+}
+
+// Groups writes into WriteBatch commits (Firestore allows 500 operations per batch) and
+// commits a few batches at a time instead of awaiting every document on its own.
+// Concurrent batches can land in any order, so writes where the order matters (the outbox
+// push can hold an UPSERT and a later DELETE of the same document) go in with ordered = true.
+class BulkWriter(
+    private val db: FirebaseFirestore,
+    private val maxConcurrentBatches: Int = 4
+) {
+
+    suspend fun commit(
+        operations: List<BulkOperation>,
+        ordered: Boolean = false,
+        onProgress: (BulkProgress) -> Unit = {}
+    ) {
+        if (operations.isEmpty()) return
+        val chunks = operations.chunked(MAX_BATCH_SIZE)
+        onProgress(BulkProgress(0, operations.size))
+
+        if (ordered) {
+            var completed = 0
+            for (chunk in chunks) {
+                commitBatch(chunk)
+                completed += chunk.size
+                onProgress(BulkProgress(completed, operations.size))
+            }
+            return
+        }
+
+        val completed = AtomicInteger(0)
+        val permits = Semaphore(maxConcurrentBatches)
+        coroutineScope {
+            chunks.map { chunk ->
+                async {
+                    permits.withPermit { commitBatch(chunk) }
+                    onProgress(BulkProgress(completed.addAndGet(chunk.size), operations.size))
+                }
+            }.awaitAll()
+        }
+    }
+
+    private suspend fun commitBatch(chunk: List<BulkOperation>) {
+        val batch = db.batch()
+        for (op in chunk) {
+            when (op) {
+                is BulkOperation.Set -> {
+                    if (op.merge) batch.set(op.ref, op.data, SetOptions.merge()) else batch.set(op.ref, op.data)
+                }
+                is BulkOperation.Delete -> batch.delete(op.ref)
+            }
+        }
+        batch.commit().await()
+    }
+
+    companion object {
+        const val MAX_BATCH_SIZE = 500
+    }
+}
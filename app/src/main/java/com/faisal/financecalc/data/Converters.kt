@@ -0,0 +1,30 @@
+package com.faisal.financecalc.data
+
+import androidx.room.TypeConverter
+import com.faisal.financecalc.core.Money
+import org.json.JSONArray
+import org.json.JSONObject
+
+class Converters {
+
+    // Split bookings are small, so they are kept as a JSON column on the entry
+    @TypeConverter
+    fun subEntriesToJson(subEntries: List<SubEntry>): String {
+        val array = JSONArray()
+        for (sub in subEntries) {
+            array.put(JSONObject().put("name", sub.name).put("amountMinor", sub.amount.minor))
+        }
+        return array.toString()
+    }
+
+    @TypeConverter
+    fun subEntriesFromJson(json: String): List<SubEntry> {
+        val array = JSONArray(json)
+        return List(array.length()) { i ->
+            val obj = array.getJSONObject(i)
+            // Rows written before minor units hold "amount" in major units
+            val amount = if (obj.has("amountMinor")) Money(obj.optLong("amountMinor")) else Money.of(obj.optDouble("amount", 0.0))
+            SubEntry(name = obj.optString("name"), amount = amount)
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.faisal.financecalc.data
+
+import java.security.MessageDigest
+import java.security.SecureRandom
+
+object DocumentKeys {
+
+    // Keys are generated on the device (same format as Firestore auto ids), so a row can be
+    // written to Room and the outbox before the document exists on the server.
+    fun newKey(): String {
+        val chars = CharArray(KEY_LENGTH)
+        for (i in chars.indices) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)]
+        }
+        return String(chars)
+    }
+
+    // Key derived from content (statement imports): the same booking always gets the same
+    // key, so importing a statement twice finds the rows of the first import
+    fun keyFrom(content: String): String {
+        val digest = MessageDigest.getInstance("SHA-256").digest(content.toByteArray(Charsets.UTF_8))
+        val chars = CharArray(KEY_LENGTH)
+        for (i in chars.indices) {
+            chars[i] = ALPHABET[(digest[i].toInt() and 0xFF) % ALPHABET.length]
+        }
+        return String(chars)
+    }
+
+    // Firestore document ids are the real key of every entity (see docId on the entities).
+    // The numeric id is still needed by Room and HistoryEntry.entryId, so derive a stable
+    // 64-bit value from the key instead of the old 32-bit String.hashCode().
+    fun longIdOf(key: String): Long {
+        var hash = FNV_OFFSET_BASIS
+        for (c in key) {
+            hash = hash xor c.code.toLong()
+            hash *= FNV_PRIME
+        }
+        return hash and Long.MAX_VALUE // Keep ids positive
+    }
+
+    private const val ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+    private const val KEY_LENGTH = 20
+    private val random = SecureRandom()
+
+    private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL // 0xcbf29ce484222325
+    private const val FNV_PRIME = 0x100000001b3L
+}
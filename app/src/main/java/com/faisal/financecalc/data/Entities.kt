@@ -1,103 +1,111 @@
 package com.faisal.financecalc.data
 
 import androidx.room.Entity
-import androidx.room.Ignore
+import androidx.room.Index
 import androidx.room.PrimaryKey
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.LedgerRecord
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.SaleRecord
+import com.faisal.financecalc.core.StockRecord
 import java.util.Date
 
-enum class EntryType {
-    INCOME, // Sources like Sparkasse, DKB, Temu
-    EXPENSE, // Destinations like Car, Save, Baba
-    DEBT    // Schulden
-}
+// The math on these (totals, balance, rollups, CSV) lives in :core, through the record
+// interfaces they implement
 
-@Entity(tableName = "entries")
+// Indexes follow the DAO's lookups: by name (getEntryByName) and the highest orderIndex of a
+// type (getMaxOrderIndex, answered from the index alone)
+@Entity(
+    tableName = "entries",
+    indices = [Index(value = ["name"]), Index(value = ["type", "orderIndex"])]
+)
 data class FinanceEntry(
-    @PrimaryKey(autoGenerate = true) var id: Long = 0,
-    var name: String = "",
-    var amount: Double = 0.0,
-    var type: EntryType = EntryType.INCOME,
-    var category: String = "", // "Fixed", "Shop", "Extra", "Account"
-    var isAutoCalculated: Boolean = false, // True for Shop T Total
-    @Ignore var subEntries: List<SubEntry> = emptyList(), // New: Split bookings
-    var excludedFromTotal: Boolean = false, // User request: Option not to count in calculation
-    var orderIndex: Int = 0,
-    var dateTimestamp: Long = System.currentTimeMillis() // New: Date support
-) {
-    // No-arg constructor for Firebase
-    constructor() : this(0, "", 0.0, EntryType.INCOME, "", false, emptyList(), false, 0, System.currentTimeMillis())
-}
+    val id: Long = 0,
+    override val name: String = "",
+    override val amount: Money = Money.ZERO,
+    override val type: EntryType = EntryType.INCOME,
+    override val category: String = "", // "Fixed", "Shop", "Extra", "Account"
+    override val isAutoCalculated: Boolean = false, // True for Shop T Total
+    val subEntries: List<SubEntry> = emptyList(), // New: Split bookings (stored as JSON in Room)
+    override val excludedFromTotal: Boolean = false, // User request: Option not to count in calculation
+    override val orderIndex: Int = 0,
+    val dateTimestamp: Long = System.currentTimeMillis(), // New: Date support
+    @PrimaryKey val docId: String = "" // Firestore document key, also the Room key
+) : LedgerRecord
 
 data class SubEntry(
-    var name: String = "",
-    var amount: Double = 0.0
-) {
-    constructor() : this("", 0.0)
-}
+    val name: String = "",
+    val amount: Money = Money.ZERO
+)
 
 @Entity(tableName = "shop_items")
 data class ShopItem(
-    @PrimaryKey(autoGenerate = true) var id: Long = 0,
-    var name: String = "",
-    var count: Int = 0,
-    var pricePerUnit: Double = 0.0,      // Verkaufspreis (Selling Price)
-    var purchasePrice: Double = 0.0, // Einkaufspreis (Buying Price)
-    var orderIndex: Int = 0,
-    var category: String = "General" // New: Category support
-) {
-    // No-arg constructor for Firebase
-    constructor() : this(0, "", 0, 0.0, 0.0, 0, "General")
-    
-    val total: Double get() = count * pricePerUnit
-    val totalProfit: Double get() = count * (pricePerUnit - purchasePrice)
+    val id: Long = 0,
+    override val name: String = "",
+    override val count: Int = 0,
+    override val pricePerUnit: Money = Money.ZERO,      // Verkaufspreis (Selling Price)
+    override val purchasePrice: Money = Money.ZERO, // Einkaufspreis (Buying Price)
+    override val orderIndex: Int = 0,
+    override val category: String = "General", // New: Category support
+    @PrimaryKey val docId: String = ""
+) : StockRecord {
+    val total: Money get() = pricePerUnit * count
+    val totalProfit: Money get() = (pricePerUnit - purchasePrice) * count
+    val stockValue: Money get() = purchasePrice * count // Inventory value at purchase price
 }
 
-@Entity(tableName = "sold_items")
+// Index matches the month page query (one month, newest first): a range seek with no sort step
+@Entity(tableName = "sold_items", indices = [Index(value = ["year", "month", "dateTimestamp"])])
 data class SoldItem(
-    @PrimaryKey(autoGenerate = true) var id: Long = 0,
-    var name: String = "",
-    var profit: Double = 0.0,
-    var dateTimestamp: Long = 0L, // For processing
-    var month: Int = 0, // 1-12
-    var year: Int = 0   // 2024, 2025
-) {
-    // No-arg constructor for Firebase
-    constructor() : this(0, "", 0.0, 0L, 0, 0)
-}
+    val id: Long = 0,
+    val name: String = "",
+    override val profit: Money = Money.ZERO,
+    val dateTimestamp: Long = 0L, // For processing
+    override val month: Int = 0, // 1-12
+    override val year: Int = 0,  // 2024, 2025
+    @PrimaryKey val docId: String = ""
+) : SaleRecord
 
-@Entity(tableName = "entry_history")
+// Index matches the history query (one entry, newest first), so opening it doesn't scan the table
+@Entity(tableName = "entry_history", indices = [Index(value = ["entryId", "dateTimestamp"])])
 data class HistoryEntry(
-    @PrimaryKey(autoGenerate = true) var id: Long = 0,
-    var entryId: Long = 0,
-    var oldAmount: Double = 0.0,
-    var newAmount: Double = 0.0,
-    var dateTimestamp: Long = 0L
+    val id: Long = 0,
+    val entryId: Long = 0,
+    val oldAmount: Money = Money.ZERO,
+    val newAmount: Money = Money.ZERO,
+    val dateTimestamp: Long = 0L,
+    @PrimaryKey val docId: String = ""
 ) {
-    // No-arg constructor for Firebase
-    constructor() : this(0, 0, 0.0, 0.0, 0L)
-    
     val timestamp: Long get() = dateTimestamp
 }
 
+// Local per-month profit index. Kept up to date by SQLite triggers on sold_items (see
+// AppDatabase), so every write only touches its own month and reads never aggregate.
+@Entity(tableName = "monthly_rollups", primaryKeys = ["year", "month"])
+data class MonthlyRollup(
+    val year: Int,
+    val month: Int,
+    val profit: Money,
+    val count: Long
+)
+
 // For monthly profit aggregation
 data class MonthlyProfit(
     val month: Int,
     val year: Int,
-    val profit: Double
+    val profit: Money
 )
 
 @Entity(tableName = "credit_cards")
 data class CreditCard(
-    @PrimaryKey(autoGenerate = true) var id: Long = 0,
-    var holderName: String = "",
-    var cardNumber: String = "", // Storing last 4 digits mainly for display
-    var expiryDate: String = "",
-    var balance: Double = 0.0,
-    var cardType: String = "VISA", // VISA, MASTERCARD
-    var colorTheme: Int = 0 // 0=DarkBlue, 1=Black, 2=Gold, 3=Purple
-) {
-    // No-arg constructor for Firebase
-    constructor() : this(0, "", "", "", 0.0, "VISA", 0)
-}
+    val id: Long = 0,
+    val holderName: String = "",
+    val cardNumber: String = "", // Storing last 4 digits mainly for display
+    val expiryDate: String = "",
+    val balance: Money = Money.ZERO,
+    val cardType: String = "VISA", // VISA, MASTERCARD
+    val colorTheme: Int = 0, // 0=DarkBlue, 1=Black, 2=Gold, 3=Purple
+    @PrimaryKey val docId: String = ""
+)
 
 
@@ -0,0 +1,203 @@
+package com.faisal.financecalc.data
+
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.ProfitRollup
+
+// Hand-written mapping between entities and Firestore document data. Replaces
+// DocumentSnapshot.toObject / reflective serialization (CustomClassMapper), which walked every
+// class with reflection on each decode and forced the entities to be mutable with no-arg
+// constructors. The document key is not part of the data, it is passed in as docId.
+interface EntityCodec<T> {
+    fun encode(value: T): Map<String, Any?>
+    fun decode(docId: String, data: Map<String, Any?>): T
+
+    // True if the document was written in an older format and should be written again
+    fun isOutdated(data: Map<String, Any?>): Boolean = false
+}
+
+object EntityCodecs {
+
+    // Field names are the ones the reflective mapper wrote, so existing documents keep
+    // decoding. Note: Kotlin's isAutoCalculated was stored as "autoCalculated".
+    // Amounts are written as Long minor units under "<name>Minor"; documents from before
+    // that hold a Double in major units under "<name>", which is still read (see money()).
+
+    val ENTRY = object : EntityCodec<FinanceEntry> {
+        override fun encode(value: FinanceEntry): Map<String, Any?> = hashMapOf(
+            "id" to value.id,
+            "name" to value.name,
+            "amountMinor" to value.amount.minor,
+            "type" to value.type.name,
+            "category" to value.category,
+            "autoCalculated" to value.isAutoCalculated,
+            "subEntries" to value.subEntries.map { hashMapOf("name" to it.name, "amountMinor" to it.amount.minor) },
+            "excludedFromTotal" to value.excludedFromTotal,
+            "orderIndex" to value.orderIndex,
+            "dateTimestamp" to value.dateTimestamp
+        )
+
+        override fun decode(docId: String, data: Map<String, Any?>) = FinanceEntry(
+            id = data.long("id"),
+            name = data.string("name"),
+            amount = data.money("amount"),
+            type = data.entryType("type"),
+            category = data.string("category"),
+            isAutoCalculated = data.boolean("autoCalculated"),
+            subEntries = data.subEntries("subEntries"),
+            excludedFromTotal = data.boolean("excludedFromTotal"),
+            orderIndex = data.int("orderIndex"),
+            dateTimestamp = data.long("dateTimestamp"),
+            docId = docId
+        )
+
+        override fun isOutdated(data: Map<String, Any?>) = "amount" in data
+    }
+
+    val SHOP_ITEM = object : EntityCodec<ShopItem> {
+        override fun encode(value: ShopItem): Map<String, Any?> = hashMapOf(
+            "id" to value.id,
+            "name" to value.name,
+            "count" to value.count,
+            "pricePerUnitMinor" to value.pricePerUnit.minor,
+            "purchasePriceMinor" to value.purchasePrice.minor,
+            "orderIndex" to value.orderIndex,
+            "category" to value.category
+        )
+
+        override fun decode(docId: String, data: Map<String, Any?>) = ShopItem(
+            id = data.long("id"),
+            name = data.string("name"),
+            count = data.int("count"),
+            pricePerUnit = data.money("pricePerUnit"),
+            purchasePrice = data.money("purchasePrice"),
+            orderIndex = data.int("orderIndex"),
+            category = data.string("category", "General"),
+            docId = docId
+        )
+
+        override fun isOutdated(data: Map<String, Any?>) = "pricePerUnit" in data || "purchasePrice" in data
+    }
+
+    val SOLD_ITEM = object : EntityCodec<SoldItem> {
+        override fun encode(value: SoldItem): Map<String, Any?> = hashMapOf(
+            "id" to value.id,
+            "name" to value.name,
+            "profitMinor" to value.profit.minor,
+            "dateTimestamp" to value.dateTimestamp,
+            "month" to value.month,
+            "year" to value.year
+        )
+
+        override fun decode(docId: String, data: Map<String, Any?>) = SoldItem(
+            id = data.long("id"),
+            name = data.string("name"),
+            profit = data.money("profit"),
+            dateTimestamp = data.long("dateTimestamp"),
+            month = data.int("month"),
+            year = data.int("year"),
+            docId = docId
+        )
+
+        override fun isOutdated(data: Map<String, Any?>) = "profit" in data
+    }
+
+    val HISTORY = object : EntityCodec<HistoryEntry> {
+        override fun encode(value: HistoryEntry): Map<String, Any?> = hashMapOf(
+            "id" to value.id,
+            "entryId" to value.entryId,
+            "oldAmountMinor" to value.oldAmount.minor,
+            "newAmountMinor" to value.newAmount.minor,
+            "dateTimestamp" to value.dateTimestamp
+        )
+
+        override fun decode(docId: String, data: Map<String, Any?>) = HistoryEntry(
+            id = data.long("id"),
+            entryId = data.long("entryId"),
+            oldAmount = data.money("oldAmount"),
+            newAmount = data.money("newAmount"),
+            dateTimestamp = data.long("dateTimestamp"),
+            docId = docId
+        )
+
+        override fun isOutdated(data: Map<String, Any?>) = "oldAmount" in data || "newAmount" in data
+    }
+
+    val CREDIT_CARD = object : EntityCodec<CreditCard> {
+        override fun encode(value: CreditCard): Map<String, Any?> = hashMapOf(
+            "id" to value.id,
+            "holderName" to value.holderName,
+            "cardNumber" to value.cardNumber,
+            "expiryDate" to value.expiryDate,
+            "balanceMinor" to value.balance.minor,
+            "cardType" to value.cardType,
+            "colorTheme" to value.colorTheme
+        )
+
+        override fun decode(docId: String, data: Map<String, Any?>) = CreditCard(
+            id = data.long("id"),
+            holderName = data.string("holderName"),
+            cardNumber = data.string("cardNumber"),
+            expiryDate = data.string("expiryDate"),
+            balance = data.money("balance"),
+            cardType = data.string("cardType", "VISA"),
+            colorTheme = data.int("colorTheme"),
+            docId = docId
+        )
+
+        override fun isOutdated(data: Map<String, Any?>) = "balance" in data
+    }
+
+    // Rollups are keyed by month (see ProfitRollups.key), the key itself isn't needed.
+    // Increments only go to "profitMinor"; a rollup created before minor units keeps its
+    // old total in "profit" until it is rebuilt, so both are added up.
+    val PROFIT_ROLLUP = object : EntityCodec<ProfitRollup> {
+        override fun encode(value: ProfitRollup): Map<String, Any?> = hashMapOf(
+            "month" to value.month,
+            "year" to value.year,
+            "profitMinor" to value.profit.minor,
+            "count" to value.count
+        )
+
+        override fun decode(docId: String, data: Map<String, Any?>) = ProfitRollup(
+            month = data.int("month"),
+            year = data.int("year"),
+            profit = Money(data.long("profitMinor")) + Money.of(data.double("profit")),
+            count = data.long("count")
+        )
+    }
+
+    // ========== Field Readers ==========
+
+    // Firestore hands numbers back as Long or Double regardless of how they were written,
+    // so every reader goes through Number and falls back to the entity default.
+
+    private fun Map<String, Any?>.long(key: String): Long = (this[key] as? Number)?.toLong() ?: 0L
+
+    private fun Map<String, Any?>.int(key: String): Int = (this[key] as? Number)?.toInt() ?: 0
+
+    private fun Map<String, Any?>.double(key: String): Double = (this[key] as? Number)?.toDouble() ?: 0.0
+
+    private fun Map<String, Any?>.money(key: String): Money {
+        val minor = this["${key}Minor"] as? Number
+        return if (minor != null) Money(minor.toLong()) else Money.of(double(key))
+    }
+
+    private fun Map<String, Any?>.boolean(key: String): Boolean = this[key] as? Boolean ?: false
+
+    private fun Map<String, Any?>.string(key: String, default: String = ""): String = this[key] as? String ?: default
+
+    private fun Map<String, Any?>.entryType(key: String): EntryType {
+        val name = this[key] as? String ?: return EntryType.INCOME
+        return EntryType.values().firstOrNull { it.name == name } ?: EntryType.INCOME
+    }
+
+    private fun Map<String, Any?>.subEntries(key: String): List<SubEntry> {
+        val list = this[key] as? List<*> ?: return emptyList()
+        return list.mapNotNull { element ->
+            @Suppress("UNCHECKED_CAST")
+            val map = element as? Map<String, Any?> ?: return@mapNotNull null
+            SubEntry(name = map.string("name"), amount = map.money("amount"))
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.faisal.financecalc.data
 
+import androidx.paging.PagingSource
 import androidx.room.*
+import com.faisal.financecalc.core.EntryType
 import kotlinx.coroutines.flow.Flow
 
 @Dao
@@ -9,17 +11,30 @@ interface FinanceDao {
     @Query("SELECT * FROM entries")
     fun getAllEntries(): Flow<List<FinanceEntry>>
 
-    @Query("SELECT COUNT(*) FROM entries")
-    suspend fun getEntryCount(): Int
-    
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    @Query("SELECT * FROM entries WHERE docId = :docId")
+    suspend fun getEntry(docId: String): FinanceEntry?
+
+    @Query("SELECT docId FROM entries")
+    suspend fun getEntryDocIds(): List<String>
+
+    // Upserts: a REPLACE would skip the search index triggers (see SearchIndex.kt)
+    @Upsert
     suspend fun insertEntry(entry: FinanceEntry)
 
-    @Update
-    suspend fun updateEntry(entry: FinanceEntry)
+    @Upsert
+    suspend fun insertEntries(entries: List<FinanceEntry>)
+
+    @Query("DELETE FROM entries WHERE docId IN (:docIds)")
+    suspend fun deleteEntries(docIds: List<String>)
+
+    @Query("DELETE FROM entries")
+    suspend fun deleteAllEntries()
+
+    @Query("SELECT docId FROM entries WHERE docId IN (:docIds)")
+    suspend fun getExistingEntryDocIds(docIds: List<String>): List<String>
 
-    @Delete
-    suspend fun deleteEntry(entry: FinanceEntry)
+    @Query("SELECT MAX(orderIndex) FROM entries WHERE type = :type")
+    suspend fun getMaxOrderIndex(type: EntryType): Int?
 
     @Query("SELECT * FROM entries WHERE name = :name LIMIT 1")
     suspend fun getEntryByName(name: String): FinanceEntry?
@@ -28,48 +43,161 @@ interface FinanceDao {
     @Query("SELECT * FROM shop_items")
     fun getAllShopItems(): Flow<List<ShopItem>>
 
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    @Query("SELECT * FROM shop_items WHERE docId = :docId")
+    suspend fun getShopItem(docId: String): ShopItem?
+
+    @Query("SELECT docId FROM shop_items")
+    suspend fun getShopItemDocIds(): List<String>
+
+    @Upsert
     suspend fun insertShopItem(item: ShopItem)
 
-    @Update
-    suspend fun updateShopItem(item: ShopItem)
+    @Upsert
+    suspend fun insertShopItems(items: List<ShopItem>)
 
-    @Delete
-    suspend fun deleteShopItem(item: ShopItem)
+    @Query("DELETE FROM shop_items WHERE docId IN (:docIds)")
+    suspend fun deleteShopItems(docIds: List<String>)
+
+    @Query("DELETE FROM shop_items")
+    suspend fun deleteAllShopItems()
     
+    // Money columns hold minor units, so SQL sums are exact integer sums
     @Query("SELECT SUM(count * purchasePrice) FROM shop_items")
-    fun getShopTotal(): Flow<Double?>
+    fun getShopTotal(): Flow<Long?>
     
     // Sold History
-    @Insert
+    @Query("SELECT * FROM sold_items WHERE docId = :docId")
+    suspend fun getSoldItem(docId: String): SoldItem?
+
+    @Query("SELECT docId FROM sold_items")
+    suspend fun getSoldItemDocIds(): List<String>
+
+    @Query("SELECT docId FROM sold_items WHERE docId IN (:docIds)")
+    suspend fun getExistingSoldItemDocIds(docIds: List<String>): List<String>
+
+    // Upserts, not REPLACE: a replace deletes silently and would skip the rollup triggers
+    @Upsert
     suspend fun insertSoldItem(item: SoldItem)
 
-    @Update
-    suspend fun updateSoldItem(item: SoldItem)
+    @Upsert
+    suspend fun insertSoldItems(items: List<SoldItem>)
+
+    @Query("DELETE FROM sold_items WHERE docId IN (:docIds)")
+    suspend fun deleteSoldItems(docIds: List<String>)
 
-    @Delete
-    suspend fun deleteSoldItem(item: SoldItem)
+    @Query("DELETE FROM sold_items")
+    suspend fun deleteAllSoldItems()
     
-    @Query("SELECT * FROM sold_items ORDER BY dateTimestamp DESC") // Get all for editing if needed, or stick to monthly aggregate for view
-    fun getAllSoldItems(): Flow<List<SoldItem>>
+    // Paged, so a month with many sales is loaded while scrolling instead of all at once
+    @Query("SELECT * FROM sold_items WHERE month = :month AND year = :year ORDER BY dateTimestamp DESC")
+    fun pageSoldItemsForMonth(month: Int, year: Int): PagingSource<Int, SoldItem>
 
-    @Query("SELECT year, month, SUM(profit) as profit FROM sold_items GROUP BY year, month ORDER BY year DESC, month DESC")
+    // Read from the trigger-maintained index, one row per month
+    @Query("SELECT year, month, profit FROM monthly_rollups ORDER BY year, month")
     fun getMonthlyProfits(): Flow<List<MonthlyProfit>>
 
+    @Query("SELECT profit FROM monthly_rollups WHERE year = :year AND month = :month")
+    fun getProfitForMonth(month: Int, year: Int): Flow<Long?>
+
     // Entry History
-    @Insert
+    @Query("SELECT * FROM entry_history WHERE docId = :docId")
+    suspend fun getHistoryEntry(docId: String): HistoryEntry?
+
+    @Query("SELECT docId FROM entry_history")
+    suspend fun getHistoryDocIds(): List<String>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertHistoryEntry(history: HistoryEntry)
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertHistoryEntries(history: List<HistoryEntry>)
+
+    @Query("DELETE FROM entry_history WHERE docId IN (:docIds)")
+    suspend fun deleteHistoryEntries(docIds: List<String>)
+
+    @Query("DELETE FROM entry_history")
+    suspend fun deleteAllHistory()
+
     @Query("SELECT * FROM entry_history WHERE entryId = :entryId ORDER BY dateTimestamp DESC")
-    fun getHistoryForEntry(entryId: Long): Flow<List<HistoryEntry>>
+    fun pageHistoryForEntry(entryId: Long): PagingSource<Int, HistoryEntry>
 
     // Credit Cards
     @Query("SELECT * FROM credit_cards")
     fun getAllCreditCards(): Flow<List<CreditCard>>
 
+    @Query("SELECT * FROM credit_cards WHERE docId = :docId")
+    suspend fun getCreditCard(docId: String): CreditCard?
+
+    @Query("SELECT docId FROM credit_cards")
+    suspend fun getCreditCardDocIds(): List<String>
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insertCreditCard(card: CreditCard)
 
-    @Delete
-    suspend fun deleteCreditCard(card: CreditCard)
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertCreditCards(cards: List<CreditCard>)
+
+    @Query("DELETE FROM credit_cards WHERE docId IN (:docIds)")
+    suspend fun deleteCreditCards(docIds: List<String>)
+
+    @Query("DELETE FROM credit_cards")
+    suspend fun deleteAllCreditCards()
+
+    // Export pages: keyset on the primary key, so every page is an index seek and the export
+    // never holds more than one page (see FinanceRepository.exportCsv and forEachRecord)
+    @Query("SELECT * FROM entries WHERE docId > :afterDocId ORDER BY docId LIMIT :limit")
+    suspend fun getEntriesAfter(afterDocId: String, limit: Int): List<FinanceEntry>
+
+    @Query("SELECT * FROM shop_items WHERE docId > :afterDocId ORDER BY docId LIMIT :limit")
+    suspend fun getShopItemsAfter(afterDocId: String, limit: Int): List<ShopItem>
+
+    @Query("SELECT * FROM sold_items WHERE docId > :afterDocId ORDER BY docId LIMIT :limit")
+    suspend fun getSoldItemsAfter(afterDocId: String, limit: Int): List<SoldItem>
+
+    @Query("SELECT * FROM entry_history WHERE docId > :afterDocId ORDER BY docId LIMIT :limit")
+    suspend fun getHistoryAfter(afterDocId: String, limit: Int): List<HistoryEntry>
+
+    @Query("SELECT * FROM credit_cards WHERE docId > :afterDocId ORDER BY docId LIMIT :limit")
+    suspend fun getCreditCardsAfter(afterDocId: String, limit: Int): List<CreditCard>
+
+    // Search: the MATCH runs on the FTS index and each hit is a rowid lookup in the entity
+    // table. No ORDER BY, so SQLite stops after :limit hits even for a one-letter prefix.
+    @Query("SELECT entries.* FROM entries JOIN entries_fts ON entries.rowid = entries_fts.rowid WHERE entries_fts MATCH :match LIMIT :limit")
+    fun searchEntries(match: String, limit: Int): Flow<List<FinanceEntry>>
+
+    @Query("SELECT shop_items.* FROM shop_items JOIN shop_items_fts ON shop_items.rowid = shop_items_fts.rowid WHERE shop_items_fts MATCH :match LIMIT :limit")
+    fun searchShopItems(match: String, limit: Int): Flow<List<ShopItem>>
+
+    @Query("SELECT sold_items.* FROM sold_items JOIN sold_items_fts ON sold_items.rowid = sold_items_fts.rowid WHERE sold_items_fts MATCH :match LIMIT :limit")
+    fun searchSoldItems(match: String, limit: Int): Flow<List<SoldItem>>
+
+    // Outbox (pending pushes, see SyncEngine)
+    @Insert
+    suspend fun insertOutbox(op: OutboxOperation)
+
+    @Insert
+    suspend fun insertOutboxOps(ops: List<OutboxOperation>)
+
+    @Query("SELECT COUNT(*) FROM outbox")
+    fun observeOutboxCount(): Flow<Int>
+
+    @Query("SELECT * FROM outbox ORDER BY seq LIMIT :limit")
+    suspend fun getOutbox(limit: Int): List<OutboxOperation>
+
+    @Query("DELETE FROM outbox WHERE seq IN (:seqs)")
+    suspend fun deleteOutbox(seqs: List<Long>)
+
+    @Query("SELECT docId FROM outbox WHERE collection = :collection UNION SELECT relatedDocId FROM outbox WHERE relatedCollection = :collection")
+    suspend fun getPendingDocIds(collection: String): List<String>
+
+    @Query("DELETE FROM outbox WHERE collection = :collection AND docId = :docId")
+    suspend fun deleteOutboxFor(collection: String, docId: String)
+
+    // Like getPendingDocIds, without format rewrites (documents that really change)
+    @Query("SELECT docId FROM outbox WHERE collection = :collection AND type != 'REWRITE' UNION SELECT relatedDocId FROM outbox WHERE relatedCollection = :collection")
+    suspend fun getChangingDocIds(collection: String): List<String>
+
+    // Whether the document still has an INSERT or UPSERT waiting (it pushes the row as it is then)
+    @Query("SELECT EXISTS(SELECT 1 FROM outbox WHERE collection = :collection AND docId = :docId AND type IN ('INSERT', 'UPSERT'))")
+    suspend fun hasPendingWrite(collection: String, docId: String): Boolean
 }
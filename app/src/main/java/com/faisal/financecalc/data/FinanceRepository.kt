@@ -1,148 +1,544 @@
 package com.faisal.financecalc.data
 
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.PagingSource
+import androidx.room.withTransaction
+import com.faisal.financecalc.core.CsvWriter
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.LedgerCsv
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.ProfitRollup
+import com.faisal.financecalc.core.RollupMismatch
+import com.google.firebase.firestore.DocumentSnapshot
+import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.map
+import java.time.Instant
+import java.time.ZoneId
 
-class FinanceRepository(private val dao: FinanceDao) {
+// What the UI talks to. Reads come straight from Room; every write lands in Room and the
+// outbox in one transaction and is pushed to Firestore by the SyncEngine in the background,
+// so the app renders and edits the same way online and offline.
+class FinanceRepository(
+    private val database: AppDatabase,
+    private val remote: FirestoreRepository,
+    private val sync: SyncEngine
+) {
+    private val dao = database.financeDao()
 
-    val allEntries: Flow<List<FinanceEntry>> = dao.getAllEntries()
-    val allShopItems: Flow<List<ShopItem>> = dao.getAllShopItems()
-    val shopTotal: Flow<Double?> = dao.getShopTotal()
-    val monthlyProfits: Flow<List<MonthlyProfit>> = dao.getMonthlyProfits()
-    val allSoldItems: Flow<List<SoldItem>> = dao.getAllSoldItems()
+    val syncProgress: StateFlow<BulkProgress?> = sync.progress
+
+    // Whether the local data is confirmed by the server and all local changes are pushed
+    val syncStatus: Flow<SyncStatus> = combine(sync.fromCache, dao.observeOutboxCount()) { fromCache, pending ->
+        SyncStatus(fromCache = fromCache.isNotEmpty(), pendingWrites = pending)
+    }
+
+    fun startSync() {
+        sync.start()
+    }
+
+    suspend fun signOut() {
+        sync.reset()
+    }
+
+    // ========== Finance Entries ==========
+
+    fun getAllEntries(): Flow<List<FinanceEntry>> = dao.getAllEntries()
 
     suspend fun insertEntry(entry: FinanceEntry) {
-        dao.insertEntry(entry)
+        val key = DocumentKeys.newKey()
+        write(FirestoreCollections.ENTRIES, key, OutboxOp.INSERT) {
+            dao.insertEntry(entry.copy(id = DocumentKeys.longIdOf(key), docId = key))
+        }
     }
 
     suspend fun updateEntry(entry: FinanceEntry) {
-        dao.updateEntry(entry)
+        write(FirestoreCollections.ENTRIES, entry.docId, OutboxOp.UPSERT) { dao.insertEntry(entry) }
     }
 
     suspend fun deleteEntry(entry: FinanceEntry) {
-        dao.deleteEntry(entry)
+        write(FirestoreCollections.ENTRIES, entry.docId, OutboxOp.DELETE) { dao.deleteEntries(listOf(entry.docId)) }
+    }
+
+    suspend fun getEntryByName(name: String): FinanceEntry? {
+        return dao.getEntryByName(name)
     }
 
+    // ========== Shop Items ==========
+
+    fun getAllShopItems(): Flow<List<ShopItem>> = dao.getAllShopItems()
+
+    fun getShopTotal(): Flow<Money> = dao.getShopTotal().map { Money(it ?: 0L) }
+
     suspend fun insertShopItem(item: ShopItem) {
-        dao.insertShopItem(item)
+        val key = DocumentKeys.newKey()
+        write(FirestoreCollections.SHOP_ITEMS, key, OutboxOp.INSERT) {
+            dao.insertShopItem(item.copy(id = DocumentKeys.longIdOf(key), docId = key))
+        }
     }
 
     suspend fun updateShopItem(item: ShopItem) {
-        dao.updateShopItem(item)
+        write(FirestoreCollections.SHOP_ITEMS, item.docId, OutboxOp.UPSERT) { dao.insertShopItem(item) }
     }
 
     suspend fun deleteShopItem(item: ShopItem) {
-        dao.deleteShopItem(item)
+        write(FirestoreCollections.SHOP_ITEMS, item.docId, OutboxOp.DELETE) { dao.deleteShopItems(listOf(item.docId)) }
+    }
+
+    // ========== Sold Items ==========
+
+    // Sales of one month, newest first, loaded page by page while scrolling
+    fun getSoldItemsForMonth(month: Int, year: Int): Flow<PagingData<SoldItem>> {
+        return paged(
+            FirestoreCollections.SOLD_ITEMS,
+            SOLD_ITEMS_PAGE_SIZE,
+            { dao.pageSoldItemsForMonth(month, year) },
+            { remote.soldItemsPagingSource(month, year) }
+        )
+    }
+
+    // Room's monthly_rollups once the sold items have been pulled. Before that (fresh login,
+    // sales still downloading) the rollups the server keeps next to the sales, so the profit
+    // screens show the real totals instead of counting up while Room fills.
+    fun getMonthlyProfits(): Flow<List<MonthlyProfit>> {
+        return untilPulled(FirestoreCollections.SOLD_ITEMS, { dao.getMonthlyProfits() }) {
+            serverRollups().map { rollups -> rollups.map { MonthlyProfit(it.month, it.year, it.profit) } }
+        }
+    }
+
+    fun getProfitForMonth(month: Int, year: Int): Flow<Money> {
+        return untilPulled(FirestoreCollections.SOLD_ITEMS, { dao.getProfitForMonth(month, year).map { Money(it ?: 0L) } }) {
+            serverRollups().map { rollups ->
+                rollups.firstOrNull { it.month == month && it.year == year }?.profit ?: Money.ZERO
+            }
+        }
+    }
+
+    // Same rows and order as monthly_rollups (months without sales are dropped there too)
+    private fun serverRollups(): Flow<List<ProfitRollup>> {
+        return remote.snapshots(FirestoreCollections.PROFIT_ROLLUPS, EntityCodecs.PROFIT_ROLLUP).map { snapshot ->
+            snapshot.items.filter { it.count > 0 }.sortedWith(compareBy({ it.year }, { it.month }))
+        }
     }
-    
+
     suspend fun insertSoldItem(item: SoldItem) {
-        dao.insertSoldItem(item)
+        val key = DocumentKeys.newKey()
+        write(FirestoreCollections.SOLD_ITEMS, key, OutboxOp.INSERT) {
+            dao.insertSoldItem(item.copy(id = DocumentKeys.longIdOf(key), docId = key))
+        }
     }
 
     suspend fun updateSoldItem(item: SoldItem) {
-        dao.updateSoldItem(item)
+        write(FirestoreCollections.SOLD_ITEMS, item.docId, OutboxOp.UPSERT) { dao.insertSoldItem(item) }
     }
 
     suspend fun deleteSoldItem(item: SoldItem) {
-        dao.deleteSoldItem(item)
+        write(FirestoreCollections.SOLD_ITEMS, item.docId, OutboxOp.DELETE) { dao.deleteSoldItems(listOf(item.docId)) }
     }
-    
-    // History
-    fun getHistoryForEntry(entryId: Long): Flow<List<HistoryEntry>> = dao.getHistoryForEntry(entryId)
-    
+
+    // Takes one unit off the shop item and records the sale in one local transaction; the
+    // server applies both in one transaction as well (see FirestoreRepository.sellItem).
+    // The stock is read from the store, not from the UI's copy, so quick double taps can't
+    // both sell the same last unit.
+    // While the item itself still has an INSERT/UPSERT pending (created or edited offline), the
+    // server may not have the item yet or will get it with the pre-sale count, so a SELL would
+    // either fail or take the unit off twice. The sale then goes out as a plain sold item INSERT
+    // plus a fresh UPSERT of the item (DELETE for the last unit). The pending op may already be
+    // in flight with the pre-sale row, so it can't carry the new count; the fresh op pushes the
+    // row as it is after the sale, and the pending one pushing the same row again is harmless.
+    suspend fun sellItem(item: ShopItem, sale: SoldItem) {
+        require(item.docId.isNotEmpty()) { "Entity has no document key" }
+        val key = DocumentKeys.newKey()
+        val sold = database.withTransaction {
+            val current = dao.getShopItem(item.docId) ?: return@withTransaction false
+            if (current.count > 1) {
+                dao.insertShopItem(current.copy(count = current.count - 1))
+            } else {
+                dao.deleteShopItems(listOf(current.docId))
+            }
+            dao.insertSoldItem(sale.copy(id = DocumentKeys.longIdOf(key), docId = key))
+            if (dao.hasPendingWrite(FirestoreCollections.SHOP_ITEMS, current.docId)) {
+                dao.insertOutbox(OutboxOperation(collection = FirestoreCollections.SOLD_ITEMS, docId = key, type = OutboxOp.INSERT))
+                val itemOp = if (current.count > 1) OutboxOp.UPSERT else OutboxOp.DELETE
+                dao.insertOutbox(OutboxOperation(collection = FirestoreCollections.SHOP_ITEMS, docId = current.docId, type = itemOp))
+            } else {
+                dao.insertOutbox(OutboxOperation(
+                    collection = FirestoreCollections.SOLD_ITEMS,
+                    docId = key,
+                    type = OutboxOp.SELL,
+                    relatedCollection = FirestoreCollections.SHOP_ITEMS,
+                    relatedDocId = current.docId
+                ))
+            }
+            true
+        }
+        if (sold) sync.requestPush()
+    }
+
+    // ========== History ==========
+
+    // Newest changes first; the dialog only loads further pages when scrolled
+    fun getHistoryForEntry(entryId: Long): Flow<PagingData<HistoryEntry>> {
+        return paged(
+            FirestoreCollections.HISTORY,
+            HISTORY_PAGE_SIZE,
+            { dao.pageHistoryForEntry(entryId) },
+            { remote.historyPagingSource(entryId) }
+        )
+    }
+
     suspend fun insertHistoryEntry(history: HistoryEntry) {
-        dao.insertHistoryEntry(history)
+        val key = DocumentKeys.newKey()
+        write(FirestoreCollections.HISTORY, key, OutboxOp.INSERT) {
+            dao.insertHistoryEntry(history.copy(id = DocumentKeys.longIdOf(key), docId = key))
+        }
     }
 
-    // Credit Cards
-    val allCreditCards: Flow<List<CreditCard>> = dao.getAllCreditCards()
-    
+    // ========== Credit Cards ==========
+
+    fun getAllCreditCards(): Flow<List<CreditCard>> = dao.getAllCreditCards()
+
     suspend fun insertCreditCard(card: CreditCard) {
-        dao.insertCreditCard(card)
+        val key = DocumentKeys.newKey()
+        write(FirestoreCollections.CREDIT_CARDS, key, OutboxOp.INSERT) {
+            dao.insertCreditCard(card.copy(id = DocumentKeys.longIdOf(key), docId = key))
+        }
+    }
+
+    suspend fun updateCreditCard(card: CreditCard) {
+        write(FirestoreCollections.CREDIT_CARDS, card.docId, OutboxOp.UPSERT) { dao.insertCreditCard(card) }
     }
-    
+
     suspend fun deleteCreditCard(card: CreditCard) {
-        dao.deleteCreditCard(card)
+        write(FirestoreCollections.CREDIT_CARDS, card.docId, OutboxOp.DELETE) { dao.deleteCreditCards(listOf(card.docId)) }
     }
 
-    suspend fun getEntryByName(name: String): FinanceEntry? {
-        return dao.getEntryByName(name)
+    // ========== Bulk Operations ==========
+
+    // Bulk changes are applied to Room at once; the SyncEngine pushes them in WriteBatch
+    // commits of up to 500 operations and reports progress through syncProgress.
+
+    suspend fun insertAll(
+        entries: List<FinanceEntry> = emptyList(),
+        shopItems: List<ShopItem> = emptyList(),
+        soldItems: List<SoldItem> = emptyList()
+    ) {
+        database.withTransaction {
+            insertAllLocked(entries, shopItems, soldItems)
+        }
+        sync.requestPush()
     }
 
-    suspend fun populateIfEmpty() {
-        if (dao.getEntryCount() == 0) {
-            // 1. Account / Main Income
-            dao.insertEntry(FinanceEntry(name = "Sparkasse", amount = 1634.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "DKB", amount = 106.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "Revolut", amount = 0.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "Bar 1", amount = 520.0, type = EntryType.INCOME, category = "Cash"))
-            dao.insertEntry(FinanceEntry(name = "Bar 2", amount = 1080.0, type = EntryType.INCOME, category = "Cash"))
-            dao.insertEntry(FinanceEntry(name = "Shop T (Cash/Alt)", amount = 2400.0, type = EntryType.INCOME, category = "Shop"))
-            dao.insertEntry(FinanceEntry(name = "PayPal", amount = 310.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "In Safe (Tresor)", amount = 1020.0, type = EntryType.INCOME, category = "Safe"))
-            dao.insertEntry(FinanceEntry(name = "GIB", amount = 2952.0, type = EntryType.INCOME, category = "Account"))
-            dao.insertEntry(FinanceEntry(name = "PS", amount = 10.0, type = EntryType.INCOME, category = "Account"))
-            
-            // Shop T Placeholder
-            dao.insertEntry(FinanceEntry(name = "Shop T Calculated", amount = 0.0, type = EntryType.INCOME, category = "Shop", isAutoCalculated = true))
-
-            // 2. Extra Income
-            dao.insertEntry(FinanceEntry(name = "Temu", amount = 196.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Temu 2", amount = 95.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Amazon", amount = 700.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mama", amount = 710.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mama extra", amount = 350.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mona", amount = 56.0, type = EntryType.INCOME, category = "Extra"))
-            dao.insertEntry(FinanceEntry(name = "Mo", amount = 100.0, type = EntryType.INCOME, category = "Extra"))
-
-            // 3. Expenses
-            dao.insertEntry(FinanceEntry(name = "Car", amount = 190.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "Save", amount = 305.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "Baba", amount = 4166.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "Ola", amount = 1500.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "GM", amount = 245.0, type = EntryType.EXPENSE, category = "Fixed"))
-            dao.insertEntry(FinanceEntry(name = "GM2", amount = 160.0, type = EntryType.EXPENSE, category = "Fixed"))
-
-            // 4. Shop Items
-            val shopItems = listOf(
-                ShopItem(name = "xss", count = 1, pricePerUnit = 105.0, purchasePrice = 0.0),
-                ShopItem(name = "xsx", count = 1, pricePerUnit = 210.0, purchasePrice = 0.0),
-                ShopItem(name = "xsx", count = 1, pricePerUnit = 275.0, purchasePrice = 0.0),
-                ShopItem(name = "xc", count = 3, pricePerUnit = 60.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 290.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 290.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 295.0, purchasePrice = 0.0),
-                ShopItem(name = "ps5", count = 1, pricePerUnit = 300.0, purchasePrice = 0.0),
-                ShopItem(name = "nin", count = 1, pricePerUnit = 100.0, purchasePrice = 0.0),
-                ShopItem(name = "nin", count = 1, pricePerUnit = 120.0, purchasePrice = 0.0)
-            )
-            shopItems.forEach { dao.insertShopItem(it) }
-
-            // 5. Pre-fill Sold History (Monthly Profits)
-            // 12 : 330€, 1: 632€, 2: 350€ ...
-            val historyData = listOf(
-                Triple(12, 2024, 330.0),
-                Triple(1, 2025, 632.0),
-                Triple(2, 2025, 350.0),
-                Triple(3, 2025, 135.0),
-                Triple(4, 2025, 60.0),
-                Triple(5, 2025, 765.0),
-                Triple(6, 2025, 70.0),
-                Triple(7, 2025, 510.0),
-                Triple(8, 2025, 10.0),
-                Triple(9, 2025, 840.0),
-                Triple(10, 2025, 607.0),
-                Triple(11, 2025, 850.0)
+    // Replaces all entries and shop items of the user (used for first-login seeding)
+    suspend fun replaceLedger(entries: List<FinanceEntry>, shopItems: List<ShopItem>) {
+        database.withTransaction {
+            dao.deleteAllEntries()
+            dao.deleteAllShopItems()
+            dao.insertOutboxOps(listOf(
+                OutboxOperation(collection = FirestoreCollections.ENTRIES, docId = SyncEngine.CLEAR_KEY, type = OutboxOp.CLEAR),
+                OutboxOperation(collection = FirestoreCollections.SHOP_ITEMS, docId = SyncEngine.CLEAR_KEY, type = OutboxOp.CLEAR)
+            ))
+            insertAllLocked(entries, shopItems, emptyList())
+        }
+        sync.requestPush()
+    }
+
+    // ========== Import ==========
+
+    // Imported rows already carry their key (derived from the booking's content, see
+    // StatementImporter), so rows that are in the store from an earlier import are skipped.
+    // One transaction and one push request per batch. Returns how many rows were new.
+    suspend fun importEntries(entries: List<FinanceEntry>): Int {
+        val added = database.withTransaction {
+            val existing = dao.getExistingEntryDocIds(entries.map { it.docId }).toHashSet()
+            val fresh = entries.filter { it.docId !in existing }
+            dao.insertEntries(fresh)
+            dao.insertOutboxOps(fresh.map { OutboxOperation(collection = FirestoreCollections.ENTRIES, docId = it.docId, type = OutboxOp.INSERT) })
+            fresh.size
+        }
+        if (added > 0) sync.requestPush()
+        return added
+    }
+
+    suspend fun importSoldItems(items: List<SoldItem>): Int {
+        val added = database.withTransaction {
+            val existing = dao.getExistingSoldItemDocIds(items.map { it.docId }).toHashSet()
+            val fresh = items.filter { it.docId !in existing }
+            dao.insertSoldItems(fresh)
+            dao.insertOutboxOps(fresh.map { OutboxOperation(collection = FirestoreCollections.SOLD_ITEMS, docId = it.docId, type = OutboxOp.INSERT) })
+            fresh.size
+        }
+        if (added > 0) sync.requestPush()
+        return added
+    }
+
+    // Imported entries are appended after the existing ones of their type
+    suspend fun nextOrderIndex(type: EntryType): Int = (dao.getMaxOrderIndex(type) ?: -1) + 1
+
+    suspend fun deleteAllSoldItems() {
+        database.withTransaction {
+            dao.deleteAllSoldItems()
+            dao.insertOutbox(OutboxOperation(collection = FirestoreCollections.SOLD_ITEMS, docId = SyncEngine.CLEAR_KEY, type = OutboxOp.CLEAR))
+        }
+        sync.requestPush()
+    }
+
+    private suspend fun insertAllLocked(entries: List<FinanceEntry>, shopItems: List<ShopItem>, soldItems: List<SoldItem>) {
+        val outbox = ArrayList<OutboxOperation>(entries.size + shopItems.size + soldItems.size)
+        dao.insertEntries(entries.map { entry ->
+            val key = DocumentKeys.newKey()
+            outbox += OutboxOperation(collection = FirestoreCollections.ENTRIES, docId = key, type = OutboxOp.INSERT)
+            entry.copy(id = DocumentKeys.longIdOf(key), docId = key)
+        })
+        dao.insertShopItems(shopItems.map { item ->
+            val key = DocumentKeys.newKey()
+            outbox += OutboxOperation(collection = FirestoreCollections.SHOP_ITEMS, docId = key, type = OutboxOp.INSERT)
+            item.copy(id = DocumentKeys.longIdOf(key), docId = key)
+        })
+        dao.insertSoldItems(soldItems.map { item ->
+            val key = DocumentKeys.newKey()
+            outbox += OutboxOperation(collection = FirestoreCollections.SOLD_ITEMS, docId = key, type = OutboxOp.INSERT)
+            item.copy(id = DocumentKeys.longIdOf(key), docId = key)
+        })
+        dao.insertOutboxOps(outbox)
+    }
+
+    private suspend fun write(collection: String, docId: String, type: OutboxOp, change: suspend () -> Unit) {
+        require(docId.isNotEmpty()) { "Entity has no document key" }
+        database.withTransaction {
+            change()
+            dao.insertOutbox(OutboxOperation(collection = collection, docId = docId, type = type))
+        }
+        sync.requestPush()
+    }
+
+    // ========== Paging ==========
+
+    // Pages come from Room once the collection has been pulled completely for this account.
+    // Before that (fresh login) they are read from the server with limit/cursor queries.
+    private fun <T : Any> paged(
+        collection: String,
+        pageSize: Int,
+        local: () -> PagingSource<Int, T>,
+        server: () -> PagingSource<DocumentSnapshot, T>
+    ): Flow<PagingData<T>> {
+        val config = PagingConfig(pageSize = pageSize, enablePlaceholders = false)
+        return untilPulled(
+            collection,
+            { Pager(config, pagingSourceFactory = local).flow },
+            { Pager(config, pagingSourceFactory = server).flow }
+        )
+    }
+
+    // Reads the server until the collection has been pulled completely, Room after that.
+    // If the server can't be read (offline right after login) Room's partial copy is shown.
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private fun <T> untilPulled(collection: String, local: () -> Flow<T>, server: () -> Flow<T>): Flow<T> {
+        return sync.pulled
+            .map { collection in it }
+            .distinctUntilChanged()
+            .flatMapLatest { pulled ->
+                if (pulled) local() else server().catch { emitAll(local()) }
+            }
+    }
+
+    // ========== Search ==========
+
+    // Live results: the queries re-run when one of the tables changes while the user looks
+    fun search(text: String): Flow<SearchResults> {
+        val match = SearchQuery.toMatch(text) ?: return flowOf(SearchResults.NONE)
+        return combine(
+            dao.searchEntries(match, SEARCH_LIMIT),
+            dao.searchShopItems(match, SEARCH_LIMIT),
+            dao.searchSoldItems(match, SEARCH_LIMIT)
+        ) { entries, shopItems, soldItems -> SearchResults(entries, shopItems, soldItems) }
+    }
+
+    // ========== Export ==========
+
+    // Streams every collection into out as CSV, one page of rows at a time, so memory use
+    // doesn't grow with the ledger. Blocking writes: call it on Dispatchers.IO.
+    suspend fun exportCsv(out: Appendable) {
+        val csv = CsvWriter(out)
+
+        LedgerCsv.entriesHeader(csv)
+        forEachPage({ dao.getEntriesAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { LedgerCsv.entry(csv, it) }
+
+        LedgerCsv.shopItemsHeader(csv)
+        forEachPage({ dao.getShopItemsAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { LedgerCsv.shopItem(csv, it) }
+
+        csv.line()
+        csv.line("SOLD ITEMS")
+        csv.line("Name,Profit,Date,Month,Year")
+        forEachPage({ dao.getSoldItemsAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { item ->
+            csv.field(item.name).amount(item.profit).field(exportDate(item.dateTimestamp))
+                .number(item.month.toLong()).number(item.year.toLong()).endRow()
+        }
+
+        csv.line()
+        csv.line("HISTORY")
+        csv.line("Entry,Old Amount,New Amount,Date")
+        forEachPage({ dao.getHistoryAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { history ->
+            csv.number(history.entryId).amount(history.oldAmount).amount(history.newAmount)
+                .field(exportDate(history.dateTimestamp)).endRow()
+        }
+
+        csv.line()
+        csv.line("CREDIT CARDS")
+        csv.line("Holder,Card,Expiry,Type,Balance")
+        forEachPage({ dao.getCreditCardsAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { card ->
+            // Only the last digits leave the app
+            csv.field(card.holderName).field(card.cardNumber.takeLast(4)).field(card.expiryDate)
+                .field(card.cardType).amount(card.balance).endRow()
+        }
+    }
+
+    // ========== Backup ==========
+
+    // Every document of the account as snapshot records, streamed a page at a time in docId
+    // order. Blocking callback: call it on Dispatchers.IO.
+    suspend fun forEachRecord(action: (SnapshotRecord) -> Unit) {
+        forEachPage({ dao.getEntriesAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { action(SnapshotRecord.Entry(it)) }
+        forEachPage({ dao.getShopItemsAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { action(SnapshotRecord.Shop(it)) }
+        forEachPage({ dao.getSoldItemsAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { action(SnapshotRecord.Sold(it)) }
+        forEachPage({ dao.getHistoryAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { action(SnapshotRecord.History(it)) }
+        forEachPage({ dao.getCreditCardsAfter(it, EXPORT_PAGE_SIZE) }, { it.docId }) { action(SnapshotRecord.Card(it)) }
+    }
+
+    // Replaces the account with a snapshot chain (one FULL snapshot, then its incrementals in
+    // order). One transaction: the records are streamed in and inserted RESTORE_BATCH_SIZE at a
+    // time, so either the whole chain is applied or nothing changes. The server copy is
+    // cleared and rewritten by the SyncEngine like any other bulk change. Returns the number
+    // of documents in the restored account.
+    suspend fun restore(chain: List<SnapshotReader>): Int {
+        val restored = database.withTransaction {
+            dao.deleteAllEntries()
+            dao.deleteAllShopItems()
+            dao.deleteAllSoldItems()
+            dao.deleteAllHistory()
+            dao.deleteAllCreditCards()
+
+            val batch = RestoreBatch()
+            for (snapshot in chain) {
+                while (true) {
+                    batch.add(snapshot.next() ?: break)
+                }
+            }
+            batch.flush()
+
+            // Clear first, then one INSERT per document that is there after the whole chain
+            val outbox = ArrayList<OutboxOperation>()
+            val restored = listOf(
+                FirestoreCollections.ENTRIES to dao.getEntryDocIds(),
+                FirestoreCollections.SHOP_ITEMS to dao.getShopItemDocIds(),
+                FirestoreCollections.SOLD_ITEMS to dao.getSoldItemDocIds(),
+                FirestoreCollections.HISTORY to dao.getHistoryDocIds(),
+                FirestoreCollections.CREDIT_CARDS to dao.getCreditCardDocIds()
             )
-            val now = System.currentTimeMillis()
-            historyData.forEach { (m, y, profit) ->
-                dao.insertSoldItem(SoldItem(
-                    name = "Legacy Sale",
-                    profit = profit,
-                    dateTimestamp = now,
-                    month = m,
-                    year = y
-                ))
+            restored.forEach { (collection, _) ->
+                outbox += OutboxOperation(collection = collection, docId = SyncEngine.CLEAR_KEY, type = OutboxOp.CLEAR)
+            }
+            restored.forEach { (collection, docIds) ->
+                docIds.mapTo(outbox) { OutboxOperation(collection = collection, docId = it, type = OutboxOp.INSERT) }
+            }
+            dao.insertOutboxOps(outbox)
+            restored.sumOf { it.second.size }
+        }
+        sync.requestPush()
+        return restored
+    }
+
+    // Buffers restored records per collection; deletions (incremental snapshots) flush first so
+    // they apply after the records that came before them
+    private inner class RestoreBatch {
+        private val entries = ArrayList<FinanceEntry>()
+        private val shopItems = ArrayList<ShopItem>()
+        private val soldItems = ArrayList<SoldItem>()
+        private val history = ArrayList<HistoryEntry>()
+        private val cards = ArrayList<CreditCard>()
+        private var size = 0
+
+        suspend fun add(record: SnapshotRecord) {
+            when (record) {
+                is SnapshotRecord.Entry -> entries += record.entry
+                is SnapshotRecord.Shop -> shopItems += record.item
+                is SnapshotRecord.Sold -> soldItems += record.item
+                is SnapshotRecord.History -> history += record.history
+                is SnapshotRecord.Card -> cards += record.card
+                is SnapshotRecord.Deleted -> {
+                    flush()
+                    delete(record)
+                    return
+                }
             }
+            if (++size >= RESTORE_BATCH_SIZE) flush()
         }
+
+        suspend fun flush() {
+            if (entries.isNotEmpty()) dao.insertEntries(entries)
+            if (shopItems.isNotEmpty()) dao.insertShopItems(shopItems)
+            if (soldItems.isNotEmpty()) dao.insertSoldItems(soldItems)
+            if (history.isNotEmpty()) dao.insertHistoryEntries(history)
+            if (cards.isNotEmpty()) dao.insertCreditCards(cards)
+            entries.clear(); shopItems.clear(); soldItems.clear(); history.clear(); cards.clear()
+            size = 0
+        }
+
+        private suspend fun delete(record: SnapshotRecord.Deleted) {
+            val docIds = listOf(record.docId)
+            when (record.collection) {
+                FirestoreCollections.ENTRIES -> dao.deleteEntries(docIds)
+                FirestoreCollections.SHOP_ITEMS -> dao.deleteShopItems(docIds)
+                FirestoreCollections.SOLD_ITEMS -> dao.deleteSoldItems(docIds)
+                FirestoreCollections.HISTORY -> dao.deleteHistoryEntries(docIds)
+                FirestoreCollections.CREDIT_CARDS -> dao.deleteCreditCards(docIds)
+            }
+        }
+    }
+
+    private inline fun <T> forEachPage(load: (String) -> List<T>, docIdOf: (T) -> String, action: (T) -> Unit) {
+        var after = ""
+        while (true) {
+            val page = load(after)
+            page.forEach(action)
+            if (page.size < EXPORT_PAGE_SIZE) return
+            after = docIdOf(page.last())
+        }
+    }
+
+    private fun exportDate(timestamp: Long): String {
+        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault()).toLocalDate().toString()
+    }
+
+    // ========== Account ==========
+
+    // Asks the server, the local store is still empty right after login
+    suspend fun claimSeeding(): Boolean {
+        return remote.claimSeeding()
+    }
+
+    suspend fun ensureProfitRollups() {
+        remote.ensureProfitRollups()
+    }
+
+    suspend fun verifyProfitRollups(repair: Boolean): List<RollupMismatch> {
+        return remote.verifyProfitRollups(repair)
+    }
+
+    companion object {
+        private const val SOLD_ITEMS_PAGE_SIZE = 30
+        private const val HISTORY_PAGE_SIZE = 20
+        private const val EXPORT_PAGE_SIZE = 500
+        private const val RESTORE_BATCH_SIZE = 500
+        private const val SEARCH_LIMIT = 50 // Per collection
     }
 }
@@ -0,0 +1,36 @@
+package com.faisal.financecalc.data
+
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.Query
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.tasks.await
+
+// Pages an ordered Firestore query with startAfter(cursor).limit(n), so only the documents
+// of the pages that were actually scrolled to are read and kept in memory.
+// The query must already carry its orderBy; the last document of a page is the next cursor.
+class FirestorePagingSource<T : Any>(
+    private val query: Query,
+    private val decode: (DocumentSnapshot) -> T?
+) : PagingSource<DocumentSnapshot, T>() {
+
+    override suspend fun load(params: LoadParams<DocumentSnapshot>): LoadResult<DocumentSnapshot, T> {
+        return try {
+            val page = params.key?.let { query.startAfter(it) } ?: query
+            val documents = page.limit(params.loadSize.toLong()).get().await().documents
+            LoadResult.Page(
+                data = documents.mapNotNull(decode),
+                prevKey = null, // Append only
+                nextKey = if (documents.size < params.loadSize) null else documents.last()
+            )
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            LoadResult.Error(e)
+        }
+    }
+
+    // Cursors are document snapshots, a refresh simply starts over from the top
+    override fun getRefreshKey(state: PagingState<DocumentSnapshot, T>): DocumentSnapshot? = null
+}
@@ -1,250 +1,360 @@
 package com.faisal.financecalc.data
 
-import android.util.Log
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.ProfitRollup
+import com.faisal.financecalc.core.ProfitRollups
+import com.faisal.financecalc.core.RollupMismatch
 import com.google.firebase.auth.FirebaseAuth
+import com.google.firebase.firestore.AggregateSource
+import com.google.firebase.firestore.CollectionReference
+import com.google.firebase.firestore.DocumentReference
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.FieldPath
+import com.google.firebase.firestore.FieldValue
 import com.google.firebase.firestore.FirebaseFirestore
+import com.google.firebase.firestore.FirebaseFirestoreSettings
+import com.google.firebase.firestore.MetadataChanges
+import com.google.firebase.firestore.PersistentCacheSettings
+import com.google.firebase.firestore.Query
+import com.google.firebase.firestore.SetOptions
+import com.google.firebase.firestore.Source
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.callbackFlow
 import kotlinx.coroutines.tasks.await
 
-class FirestoreRepository {
-    
+object FirestoreCollections {
+    const val ENTRIES = "entries"
+    const val SHOP_ITEMS = "shopItems"
+    const val SOLD_ITEMS = "soldItems"
+    const val HISTORY = "history"
+    const val CREDIT_CARDS = "creditCards"
+    const val PROFIT_ROLLUPS = "profitRollups"
+}
+
+// Remote side of the data layer. The UI reads from Room (FinanceRepository); SyncEngine pulls
+// the snapshot streams below into Room and pushes the outbox back through the write API.
+class FirestoreRepository(scope: CoroutineScope) : SyncRemote {
+
     private val auth = FirebaseAuth.getInstance()
     private val db = FirebaseFirestore.getInstance()
-    
+    private val bulkWriter = BulkWriter(db)
+    private val listeners = SnapshotListenerRegistry(scope)
+
+    override fun currentUserId(): String? = auth.currentUser?.uid
+
     private fun getUserId(): String {
         return auth.currentUser?.uid ?: throw IllegalStateException("User not logged in")
     }
-    
-    // ========== Finance Entries ==========
-    
-    fun getAllEntries(): Flow<List<FinanceEntry>> = callbackFlow {
-        val listener = db.collection("users").document(getUserId())
-            .collection("entries")
-            .addSnapshotListener { snapshot, error ->
-                if (error != null) {
-                    close(error)
-                    return@addSnapshotListener
-                }
-                val entries = snapshot?.documents?.mapNotNull { it.toObject(FinanceEntry::class.java) } ?: emptyList()
-                trySend(entries)
-            }
-        awaitClose { listener.remove() }
-    }
-    
-    suspend fun insertEntry(entry: FinanceEntry) {
-        val docRef = db.collection("users").document(getUserId())
-            .collection("entries").document()
-        val entryWithId = entry.copy(id = docRef.id.hashCode().toLong())
-        docRef.set(entryWithId).await()
-    }
-    
-    suspend fun updateEntry(entry: FinanceEntry) {
-        db.collection("users").document(getUserId())
-            .collection("entries")
-            .whereEqualTo("id", entry.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.set(entry)?.await()
-    }
-    
-    suspend fun deleteEntry(entry: FinanceEntry) {
-        db.collection("users").document(getUserId())
-            .collection("entries")
-            .whereEqualTo("id", entry.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.delete()?.await()
-    }
-    
-    suspend fun getEntryByName(name: String): FinanceEntry? {
+
+    private fun userDocument(): DocumentReference {
         return db.collection("users").document(getUserId())
-            .collection("entries")
-            .whereEqualTo("name", name)
-            .get().await()
-            .documents.firstOrNull()?.toObject(FinanceEntry::class.java)
-    }
-    
-    // ========== Shop Items ==========
-    
-    fun getAllShopItems(): Flow<List<ShopItem>> = callbackFlow {
-        val listener = db.collection("users").document(getUserId())
-            .collection("shopItems")
-            .addSnapshotListener { snapshot, error ->
-                if (error != null) {
-                    close(error)
-                    return@addSnapshotListener
-                }
-                val items = snapshot?.documents?.mapNotNull { it.toObject(ShopItem::class.java) } ?: emptyList()
-                trySend(items)
+    }
+
+    private fun collection(name: String): CollectionReference {
+        return userDocument().collection(name)
+    }
+
+    // Entities carry their document key (docId), so updates and deletes are a single write
+    // without looking the document up first.
+    private fun CollectionReference.keyed(key: String): DocumentReference {
+        require(key.isNotEmpty()) { "Entity has no document key" }
+        return document(key)
+    }
+
+    // ========== Snapshot Streams ==========
+
+    // One shared listener per collection; every consumer (sync, account checks) gets the
+    // same stream instead of attaching listeners of its own.
+    override fun <T> snapshots(name: String, codec: EntityCodec<T>): Flow<RemoteSnapshot<T>> {
+        val ref = collection(name)
+        return listeners.stream(ref.path) { snapshotsOf(ref, codec) }
+    }
+
+    // Only the documents that changed are decoded; see SnapshotMaterializer.
+    // Metadata changes are included so consumers learn when the server has confirmed the cache.
+    private fun <T> snapshotsOf(query: Query, codec: EntityCodec<T>): Flow<RemoteSnapshot<T>> = callbackFlow {
+        val materializer = SnapshotMaterializer(
+            decode = { doc -> codec.decode(doc.id, doc.data.orEmpty()) },
+            isOutdated = { doc -> codec.isOutdated(doc.data.orEmpty()) }
+        )
+        val listener = query.addSnapshotListener(MetadataChanges.INCLUDE) { snapshot, error ->
+            if (error != null) {
+                close(error)
+                return@addSnapshotListener
             }
+            if (snapshot == null) return@addSnapshotListener
+            materializer.apply(snapshot)?.let { trySend(it) }
+        }
         awaitClose { listener.remove() }
     }
-    
-    suspend fun insertShopItem(item: ShopItem) {
-        val docRef = db.collection("users").document(getUserId())
-            .collection("shopItems").document()
-        val itemWithId = item.copy(id = docRef.id.hashCode().toLong())
-        docRef.set(itemWithId).await()
-    }
-    
-    suspend fun updateShopItem(item: ShopItem) {
-        db.collection("users").document(getUserId())
-            .collection("shopItems")
-            .whereEqualTo("id", item.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.set(item)?.await()
-    }
-    
-    suspend fun deleteShopItem(item: ShopItem) {
-        db.collection("users").document(getUserId())
-            .collection("shopItems")
-            .whereEqualTo("id", item.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.delete()?.await()
-    }
-    
-    fun getShopTotal(): Flow<Double?> = callbackFlow {
-        val listener = db.collection("users").document(getUserId())
-            .collection("shopItems")
-            .addSnapshotListener { snapshot, error ->
-                if (error != null) {
-                    close(error)
-                    return@addSnapshotListener
-                }
-                val total = snapshot?.documents?.mapNotNull { it.toObject(ShopItem::class.java) }
-                    ?.sumOf { it.total } ?: 0.0
-                trySend(total)
+
+    private fun <T> decode(doc: DocumentSnapshot, codec: EntityCodec<T>): T? {
+        return doc.data?.let { codec.decode(doc.id, it) }
+    }
+
+    // ========== Writes ==========
+
+    // Plain documents are pushed as batched set/delete operations (see BulkWriter), one batch
+    // after the other: the same document can be written more than once in the list and the
+    // last write has to win
+    override suspend fun commit(writes: List<RemoteWrite>, onProgress: (BulkProgress) -> Unit) {
+        val ops = writes.map { write ->
+            val ref = collection(write.collection).keyed(write.docId)
+            when (write) {
+                is RemoteWrite.Set -> BulkOperation.Set(ref, write.data)
+                is RemoteWrite.Delete -> BulkOperation.Delete(ref)
             }
-        awaitClose { listener.remove() }
+        }
+        bulkWriter.commit(ops, ordered = true, onProgress = onProgress)
     }
-    
+
+    override suspend fun deleteAll(name: String, onProgress: (BulkProgress) -> Unit) {
+        bulkWriter.commit(deleteAllOps(name), onProgress = onProgress)
+    }
+
+    private suspend fun deleteAllOps(name: String): List<BulkOperation> {
+        return collection(name).get().await()
+            .documents.map { BulkOperation.Delete(it.reference) }
+    }
+
     // ========== Sold Items ==========
-    
-    fun getAllSoldItems(): Flow<List<SoldItem>> = callbackFlow {
-        val listener = db.collection("users").document(getUserId())
-            .collection("soldItems")
-            .addSnapshotListener { snapshot, error ->
-                if (error != null) {
-                    close(error)
-                    return@addSnapshotListener
-                }
-                val items = snapshot?.documents?.mapNotNull { it.toObject(SoldItem::class.java) } ?: emptyList()
-                trySend(items)
+
+    // New sold items, batched. The rollup deltas are taken from what the server already holds
+    // for each document (like updateSoldItem does), so pushing the same sales again after a
+    // failed or interrupted push doesn't count them twice. Every chunk is one WriteBatch with
+    // its sales and their rollup changes, committed one after the other.
+    override suspend fun insertSoldItems(items: List<SoldItem>, onProgress: (BulkProgress) -> Unit) {
+        if (items.isEmpty()) return
+        val sold = collection(FirestoreCollections.SOLD_ITEMS)
+        var completed = 0
+        onProgress(BulkProgress(0, items.size))
+        for (chunk in items.chunked(SALES_PER_BATCH)) {
+            val previous = storedSoldItems(chunk.map { it.docId })
+            val deltas = LinkedHashMap<String, ProfitRollup>()
+            fun add(month: Int, year: Int, profit: Money, count: Long) {
+                val key = ProfitRollups.key(month, year)
+                val current = deltas[key] ?: ProfitRollup(month, year)
+                deltas[key] = current.copy(profit = current.profit + profit, count = current.count + count)
             }
-        awaitClose { listener.remove() }
+
+            val batch = db.batch()
+            for (item in chunk) {
+                val before = previous[item.docId]
+                if (before != null) add(before.month, before.year, -before.profit, -1)
+                add(item.month, item.year, item.profit, 1)
+                batch.set(sold.keyed(item.docId), EntityCodecs.SOLD_ITEM.encode(item))
+            }
+            for ((key, delta) in deltas) {
+                if (delta.profit == Money.ZERO && delta.count == 0L) continue // Pushed before, unchanged
+                batch.set(
+                    collection(FirestoreCollections.PROFIT_ROLLUPS).document(key),
+                    rollupIncrement(delta.month, delta.year, delta.profit, delta.count),
+                    SetOptions.merge()
+                )
+            }
+            batch.commit().await()
+            completed += chunk.size
+            onProgress(BulkProgress(completed, items.size))
+        }
     }
-    
-    suspend fun insertSoldItem(item: SoldItem) {
-        val docRef = db.collection("users").document(getUserId())
-            .collection("soldItems").document()
-        val itemWithId = item.copy(id = docRef.id.hashCode().toLong())
-        docRef.set(itemWithId).await()
-    }
-    
-    suspend fun updateSoldItem(item: SoldItem) {
-        db.collection("users").document(getUserId())
-            .collection("soldItems")
-            .whereEqualTo("id", item.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.set(item)?.await()
-    }
-    
-    suspend fun deleteSoldItem(item: SoldItem) {
-        db.collection("users").document(getUserId())
-            .collection("soldItems")
-            .whereEqualTo("id", item.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.delete()?.await()
-    }
-    
-    fun getMonthlyProfits(): Flow<List<MonthlyProfit>> = callbackFlow {
-        val listener = db.collection("users").document(getUserId())
-            .collection("soldItems")
-            .addSnapshotListener { snapshot, error ->
-                if (error != null) {
-                    close(error)
-                    return@addSnapshotListener
-                }
-                val profitMap = mutableMapOf<Pair<Int, Int>, Double>()
-                snapshot?.documents?.mapNotNull { it.toObject(SoldItem::class.java) }?.forEach { item ->
-                    val key = Pair(item.month, item.year)
-                    profitMap[key] = (profitMap[key] ?: 0.0) + item.profit
-                }
-                val profits = profitMap.map { (key, profit) ->
-                    MonthlyProfit(month = key.first, year = key.second, profit = profit)
-                }.sortedWith(compareBy({ it.year }, { it.month }))
-                trySend(profits)
+
+    // The server's copy of the given sold items (only the ones that exist), read from the
+    // server rather than the cache
+    private suspend fun storedSoldItems(docIds: List<String>): Map<String, SoldItem> = coroutineScope {
+        val sold = collection(FirestoreCollections.SOLD_ITEMS)
+        docIds.chunked(MAX_IN_VALUES).map { keys ->
+            async {
+                sold.whereIn(FieldPath.documentId(), keys).get(Source.SERVER).await().documents
+                    .mapNotNull { doc -> decode(doc, EntityCodecs.SOLD_ITEM)?.let { doc.id to it } }
             }
-        awaitClose { listener.remove() }
+        }.awaitAll().flatten().toMap()
     }
-    
-    // ========== History ==========
-    
-    fun getHistoryForEntry(entryId: Long): Flow<List<HistoryEntry>> = callbackFlow {
-        val listener = db.collection("users").document(getUserId())
-            .collection("history")
-            .whereEqualTo("entryId", entryId)
-            .addSnapshotListener { snapshot, error ->
-                if (error != null) {
-                    close(error)
-                    return@addSnapshotListener
-                }
-                val history = snapshot?.documents?.mapNotNull { it.toObject(HistoryEntry::class.java) }
-                    ?.sortedByDescending { it.timestamp } ?: emptyList()
-                trySend(history)
+
+    // Runs as a transaction so the rollup delta is taken from the stored document,
+    // not from a possibly stale copy held by the device
+    override suspend fun updateSoldItem(item: SoldItem) {
+        val docRef = collection(FirestoreCollections.SOLD_ITEMS).keyed(item.docId)
+        val rollups = collection(FirestoreCollections.PROFIT_ROLLUPS)
+        val newRollup = rollups.document(ProfitRollups.key(item.month, item.year))
+        db.runTransaction { tx ->
+            val previous = decode(tx.get(docRef), EntityCodecs.SOLD_ITEM)
+            if (previous == null) {
+                tx.set(newRollup, rollupIncrement(item.month, item.year, item.profit, 1), SetOptions.merge())
+            } else if (previous.month == item.month && previous.year == item.year) {
+                tx.set(newRollup, rollupIncrement(item.month, item.year, item.profit - previous.profit, 0), SetOptions.merge())
+            } else {
+                tx.set(rollups.document(ProfitRollups.key(previous.month, previous.year)), rollupIncrement(previous.month, previous.year, -previous.profit, -1), SetOptions.merge())
+                tx.set(newRollup, rollupIncrement(item.month, item.year, item.profit, 1), SetOptions.merge())
             }
-        awaitClose { listener.remove() }
+            tx.set(docRef, EntityCodecs.SOLD_ITEM.encode(item))
+        }.await()
     }
-    
-    suspend fun insertHistoryEntry(history: HistoryEntry) {
-        val docRef = db.collection("users").document(getUserId())
-            .collection("history").document()
-        val historyWithId = history.copy(id = docRef.id.hashCode().toLong())
-        docRef.set(historyWithId).await()
-    }
-    
-    // ========== Credit Cards ==========
-    
-    fun getAllCreditCards(): Flow<List<CreditCard>> = callbackFlow {
-        val listener = db.collection("users").document(getUserId())
-            .collection("creditCards")
-            .addSnapshotListener { snapshot, error ->
-                if (error != null) {
-                    close(error)
-                    return@addSnapshotListener
+
+    // Sells one unit of a shop item in a single transaction: the stock goes down by one (the
+    // item is deleted at zero) and the sale is recorded together with its rollup. Returns false
+    // without writing anything when the item is already sold out, e.g. sold on another device.
+    // sale is null when the sold record was deleted locally before it could be pushed.
+    override suspend fun sellItem(shopItemDocId: String, sale: SoldItem?): Boolean {
+        val shopRef = collection(FirestoreCollections.SHOP_ITEMS).keyed(shopItemDocId)
+        val saleRef = sale?.let { collection(FirestoreCollections.SOLD_ITEMS).keyed(it.docId) }
+        val rollup = sale?.let { rollupRef(it.month, it.year) }
+        return db.runTransaction { tx ->
+            val count = tx.get(shopRef).getLong("count") ?: 0L
+            if (count > 0) {
+                if (count == 1L) tx.delete(shopRef) else tx.update(shopRef, "count", FieldValue.increment(-1))
+                if (sale != null && saleRef != null && rollup != null) {
+                    tx.set(saleRef, EntityCodecs.SOLD_ITEM.encode(sale))
+                    tx.set(rollup, rollupIncrement(sale.month, sale.year, sale.profit, 1), SetOptions.merge())
                 }
-                val items = snapshot?.documents?.mapNotNull { it.toObject(CreditCard::class.java) } ?: emptyList()
-                trySend(items)
             }
-        awaitClose { listener.remove() }
+            count > 0
+        }.await()
+    }
+
+    override suspend fun <T> fetch(name: String, docId: String, codec: EntityCodec<T>): T? {
+        return decode(collection(name).keyed(docId).get().await(), codec)
+    }
+
+    override suspend fun deleteSoldItem(docId: String) {
+        val docRef = collection(FirestoreCollections.SOLD_ITEMS).keyed(docId)
+        val rollups = collection(FirestoreCollections.PROFIT_ROLLUPS)
+        db.runTransaction { tx ->
+            val previous = decode(tx.get(docRef), EntityCodecs.SOLD_ITEM)
+            if (previous != null) {
+                tx.set(
+                    rollups.document(ProfitRollups.key(previous.month, previous.year)),
+                    rollupIncrement(previous.month, previous.year, -previous.profit, -1),
+                    SetOptions.merge()
+                )
+                tx.delete(docRef)
+            }
+        }.await()
     }
-    
-    suspend fun insertCreditCard(card: CreditCard) {
-        val docRef = db.collection("users").document(getUserId())
-            .collection("creditCards").document()
-        val cardWithId = card.copy(id = docRef.id.hashCode().toLong())
-        docRef.set(cardWithId).await()
-    }
-    
-    suspend fun updateCreditCard(card: CreditCard) {
-        db.collection("users").document(getUserId())
-            .collection("creditCards")
-            .whereEqualTo("id", card.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.set(card)?.await()
-    }
-    
-    suspend fun deleteCreditCard(card: CreditCard) {
-        db.collection("users").document(getUserId())
-            .collection("creditCards")
-            .whereEqualTo("id", card.id)
-            .get().await()
-            .documents.firstOrNull()?.reference?.delete()?.await()
-    }
-
-    // ========== Initial Data Population ==========
-    
-    suspend fun populateIfEmpty() {
-        // Handled by MainViewModel to ensure specific user data is used.
+
+    // Server-side pages of one month, newest first (composite index in firestore.indexes.json)
+    fun soldItemsPagingSource(month: Int, year: Int): FirestorePagingSource<SoldItem> {
+        val query = collection(FirestoreCollections.SOLD_ITEMS)
+            .whereEqualTo("year", year)
+            .whereEqualTo("month", month)
+            .orderBy("dateTimestamp", Query.Direction.DESCENDING)
+        return FirestorePagingSource(query) { doc -> decode(doc, EntityCodecs.SOLD_ITEM) }
+    }
+
+    override suspend fun deleteAllSoldItems(onProgress: (BulkProgress) -> Unit) {
+        val ops = deleteAllOps(FirestoreCollections.SOLD_ITEMS) + deleteAllOps(FirestoreCollections.PROFIT_ROLLUPS)
+        bulkWriter.commit(ops, onProgress = onProgress)
+    }
+
+    // ========== History ==========
+
+    // Newest changes of one entry first, a page at a time (composite index in firestore.indexes.json)
+    fun historyPagingSource(entryId: Long): FirestorePagingSource<HistoryEntry> {
+        val query = collection(FirestoreCollections.HISTORY)
+            .whereEqualTo("entryId", entryId)
+            .orderBy("dateTimestamp", Query.Direction.DESCENDING)
+        return FirestorePagingSource(query) { doc -> decode(doc, EntityCodecs.HISTORY) }
+    }
+
+    // ========== Account ==========
+
+    // Decides once per account (not per device) whether the starter ledger is written.
+    // The marker lives on the user document, so the usual cold start costs a single document
+    // read. Without it, two aggregate count() queries check for existing data instead of
+    // downloading the collections, and the marker is claimed in a transaction so two devices
+    // signing in at the same time don't both seed. Returns true if this caller should seed.
+    suspend fun claimSeeding(): Boolean {
+        val account = userDocument()
+        if (account.get().await().contains(FIELD_SEEDED)) return false
+
+        val isEmpty = count(FirestoreCollections.ENTRIES) == 0L && count(FirestoreCollections.SHOP_ITEMS) == 0L
+        return db.runTransaction { tx ->
+            if (tx.get(account).contains(FIELD_SEEDED)) return@runTransaction false
+            // Accounts that already have data get the marker too, so they skip the counts next time
+            tx.set(account, mapOf(FIELD_SEEDED to SEED_VERSION, "seededAt" to FieldValue.serverTimestamp()), SetOptions.merge())
+            isEmpty
+        }.await()
+    }
+
+    private suspend fun count(name: String): Long {
+        return collection(name).count().get(AggregateSource.SERVER).await().count
+    }
+
+    // ========== Profit Rollups ==========
+
+    private fun rollupRef(month: Int, year: Int): DocumentReference {
+        return collection(FirestoreCollections.PROFIT_ROLLUPS).document(ProfitRollups.key(month, year))
+    }
+
+    // Integer increments on minor units are exact, unlike the double increments used before
+    private fun rollupIncrement(month: Int, year: Int, profit: Money, count: Long): Map<String, Any> {
+        return mapOf(
+            "month" to month,
+            "year" to year,
+            "profitMinor" to FieldValue.increment(profit.minor),
+            "count" to FieldValue.increment(count)
+        )
+    }
+
+    private suspend fun allSoldItems(): List<SoldItem> {
+        return collection(FirestoreCollections.SOLD_ITEMS).get().await().documents
+            .mapNotNull { decode(it, EntityCodecs.SOLD_ITEM) }
+    }
+
+    // One-time backfill for accounts that have sales from before rollups existed
+    suspend fun ensureProfitRollups() {
+        if (!collection(FirestoreCollections.PROFIT_ROLLUPS).limit(1).get().await().isEmpty) return
+        if (collection(FirestoreCollections.SOLD_ITEMS).limit(1).get().await().isEmpty) return
+        backfillProfitRollups()
+    }
+
+    suspend fun backfillProfitRollups() {
+        val rollups = collection(FirestoreCollections.PROFIT_ROLLUPS)
+        val expected = ProfitRollups.compute(allSoldItems())
+        val stale = rollups.get().await().documents.filter { it.id !in expected }
+        val ops = stale.map { BulkOperation.Delete(it.reference) } +
+            expected.map { (key, rollup) -> BulkOperation.Set(rollups.document(key), EntityCodecs.PROFIT_ROLLUP.encode(rollup)) }
+        bulkWriter.commit(ops)
+    }
+
+    // Consistency check: recomputes every month from the sold items and compares it with
+    // the stored rollups. With repair = true the differing months are overwritten.
+    suspend fun verifyProfitRollups(repair: Boolean): List<RollupMismatch> {
+        val rollups = collection(FirestoreCollections.PROFIT_ROLLUPS)
+        val expected = ProfitRollups.compute(allSoldItems())
+        val actual = rollups.get().await().documents
+            .mapNotNull { doc -> decode(doc, EntityCodecs.PROFIT_ROLLUP)?.let { doc.id to it } }
+            .toMap()
+        val mismatches = ProfitRollups.compare(expected, actual)
+        if (repair && mismatches.isNotEmpty()) {
+            bulkWriter.commit(mismatches.map { mismatch ->
+                val ref = rollups.document(mismatch.key)
+                if (mismatch.expected.count == 0L) BulkOperation.Delete(ref) else BulkOperation.Set(ref, EntityCodecs.PROFIT_ROLLUP.encode(mismatch.expected))
+            })
+        }
+        return mismatches
+    }
+
+    companion object {
+        private const val FIELD_SEEDED = "seededVersion"
+        private const val SEED_VERSION = 3 // Version of the starter ledger (was the data_seeded_v3 pref)
+        private const val CACHE_SIZE_BYTES = 50L * 1024 * 1024
+        private const val SALES_PER_BATCH = 240 // Sale + rollup writes stay below the 500 per batch
+        private const val MAX_IN_VALUES = 30    // Limit of a whereIn filter
+
+        // Persistent local cache with an explicit size, and indexes on it so cached queries
+        // (the first snapshot of every listener, offline reads) don't scan every document.
+        // Settings only apply before the first use of the instance, so this runs in
+        // FinanceApplication.onCreate.
+        fun configureLocalCache(firestore: FirebaseFirestore = FirebaseFirestore.getInstance()) {
+            firestore.firestoreSettings = FirebaseFirestoreSettings.Builder()
+                .setLocalCacheSettings(PersistentCacheSettings.newBuilder().setSizeBytes(CACHE_SIZE_BYTES).build())
+                .build()
+            firestore.persistentCacheIndexManager?.enableIndexAutoCreation()
+        }
     }
 }
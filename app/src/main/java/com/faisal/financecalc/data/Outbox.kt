@@ -0,0 +1,45 @@
+package com.faisal.financecalc.data
+
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+enum class OutboxOp {
+    INSERT, // New document, can be batched (sold items also bump their rollup)
+    UPSERT, // Changed document
+    DELETE,
+    CLEAR,  // Whole collection, docId is empty
+    SELL,   // New sold item (docId) that takes one unit off a shop item (relatedDocId)
+    REWRITE // Unchanged document stored in an older format on the server, written again as is
+}
+
+// What the local store shows compared to the server, for the "from cache" indicator
+data class SyncStatus(
+    val fromCache: Boolean = false, // Some collection hasn't been confirmed by the server yet
+    val pendingWrites: Int = 0      // Outbox operations not pushed yet
+) {
+    val isSynced: Boolean get() = !fromCache && pendingWrites == 0
+
+    companion object {
+        val SYNCED = SyncStatus()
+    }
+}
+
+// Local mutations waiting to be pushed to Firestore. Rows are written in the same Room
+// transaction as the change itself and only removed once the server write succeeded.
+// The payload is not stored: an INSERT/UPSERT pushes whatever the row looks like at push time.
+// Pulls ask for the pending docIds of a collection (getPendingDocIds) and sale pushes drop the
+// ops of one document (deleteOutboxFor); during a bulk push the outbox holds thousands of rows
+@Entity(
+    tableName = "outbox",
+    indices = [Index(value = ["collection", "docId"]), Index(value = ["relatedCollection", "relatedDocId"])]
+)
+data class OutboxOperation(
+    @PrimaryKey(autoGenerate = true) val seq: Long = 0,
+    val collection: String,
+    val docId: String,
+    val type: OutboxOp,
+    val relatedCollection: String = "", // Second document touched by the operation (SELL)
+    val relatedDocId: String = "",
+    val createdAt: Long = System.currentTimeMillis()
+)
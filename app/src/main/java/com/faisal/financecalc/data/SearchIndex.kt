@@ -0,0 +1,60 @@
+package com.faisal.financecalc.data
+
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+
+// Full-text index for the global search. External-content FTS4 tables: the text stays in the
+// entity tables and Room's generated triggers update the index on every insert, update and
+// delete there, so the sync pull, the outbox writes and imports keep it current without any
+// extra code. That is also why entries and shop items are written with upserts now: a
+// REPLACE deletes the old row without firing the delete trigger and leaves stale tokens.
+// unicode61 folds case and diacritics ("cafe" finds "Café", Arabic is tokenized too).
+
+@Fts4(contentEntity = FinanceEntry::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "entries_fts")
+data class FinanceEntryFts(
+    val name: String,
+    val category: String
+)
+
+@Fts4(contentEntity = ShopItem::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "shop_items_fts")
+data class ShopItemFts(
+    val name: String,
+    val category: String
+)
+
+@Fts4(contentEntity = SoldItem::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "sold_items_fts")
+data class SoldItemFts(
+    val name: String
+)
+
+data class SearchResults(
+    val entries: List<FinanceEntry> = emptyList(),
+    val shopItems: List<ShopItem> = emptyList(),
+    val soldItems: List<SoldItem> = emptyList()
+) {
+    val isEmpty: Boolean get() = entries.isEmpty() && shopItems.isEmpty() && soldItems.isEmpty()
+
+    companion object {
+        val NONE = SearchResults()
+    }
+}
+
+object SearchQuery {
+
+    // What the user typed as an FTS MATCH expression: every word is a prefix term and all of
+    // them have to match ("ps 5" -> "ps* 5*"). Only letters and digits are kept, so input can
+    // never form query syntax; words are lowercased because AND/OR/NOT are operators only in
+    // upper case. Null when there is nothing to search for.
+    fun toMatch(text: String): String? {
+        val words = text.split(NON_WORD).filter { it.isNotEmpty() }.take(MAX_WORDS)
+        if (words.isEmpty()) return null
+        return words.joinToString(" ") { "${it.lowercase()}*" }
+    }
+
+    private val NON_WORD = Regex("[^\\p{L}\\p{N}]+")
+    private const val MAX_WORDS = 8
+}
@@ -0,0 +1,398 @@
+package com.faisal.financecalc.data
+
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.InflaterInputStream
+
+// Binary backup of a whole account (entries with their sub-entries, shop items, sold items,
+// history and credit cards). Layout:
+//
+//   header:  "AFSN" | version u8 | kind u8 | flags u8 | id i64 | baseId i64
+//   body:    record* | END           (deflated when flags has COMPRESSED)
+//   record:  tag u8 | length varint | payload
+//
+// Numbers in payloads are varints (zigzag for values that can be negative), strings are
+// a varint byte length + UTF-8. Every record is length-prefixed, so a reader skips tags it
+// doesn't know. An INCREMENTAL snapshot holds the records that changed since the snapshot
+// baseId plus DELETED records for the ones that are gone (see BackupManager).
+
+enum class SnapshotKind { FULL, INCREMENTAL }
+
+data class SnapshotHeader(
+    val version: Int,
+    val kind: SnapshotKind,
+    val compressed: Boolean,
+    val id: Long,     // Creation time, identifies the snapshot in a chain
+    val baseId: Long  // Snapshot this one applies on top of, 0 for FULL
+)
+
+sealed class SnapshotRecord {
+    abstract val collection: String
+    abstract val docId: String
+
+    data class Entry(val entry: FinanceEntry) : SnapshotRecord() {
+        override val collection get() = FirestoreCollections.ENTRIES
+        override val docId get() = entry.docId
+    }
+
+    data class Shop(val item: ShopItem) : SnapshotRecord() {
+        override val collection get() = FirestoreCollections.SHOP_ITEMS
+        override val docId get() = item.docId
+    }
+
+    data class Sold(val item: SoldItem) : SnapshotRecord() {
+        override val collection get() = FirestoreCollections.SOLD_ITEMS
+        override val docId get() = item.docId
+    }
+
+    data class History(val history: HistoryEntry) : SnapshotRecord() {
+        override val collection get() = FirestoreCollections.HISTORY
+        override val docId get() = history.docId
+    }
+
+    data class Card(val card: CreditCard) : SnapshotRecord() {
+        override val collection get() = FirestoreCollections.CREDIT_CARDS
+        override val docId get() = card.docId
+    }
+
+    // Incremental snapshots only: the document was removed since the base snapshot
+    data class Deleted(override val collection: String, override val docId: String) : SnapshotRecord()
+}
+
+// ========== Writer ==========
+
+class SnapshotWriter(
+    output: OutputStream,
+    kind: SnapshotKind,
+    id: Long,
+    baseId: Long = 0L,
+    compress: Boolean = true
+) : Closeable {
+    private val raw = BufferedOutputStream(output, BUFFER_SIZE)
+    private val deflater = if (compress) Deflater(Deflater.BEST_COMPRESSION) else null
+    private val body: OutputStream
+    private val record = RecordBuffer() // Reused for every payload
+    private var closed = false
+
+    init {
+        raw.write(MAGIC)
+        raw.write(VERSION)
+        raw.write(kind.ordinal)
+        raw.write(if (compress) FLAG_COMPRESSED else 0)
+        DataOutputStream(raw).run {
+            writeLong(id)
+            writeLong(baseId)
+        }
+        body = if (deflater != null) DeflaterOutputStream(raw, deflater, BUFFER_SIZE) else raw
+    }
+
+    // Writes the record unless its content hash equals previousHash (unchanged since the base
+    // snapshot). Returns the hash either way, for the index of the next incremental backup.
+    fun write(value: SnapshotRecord, previousHash: Long = NO_HASH): Long {
+        record.reset()
+        val tag = encode(value, record)
+        val hash = record.contentHash()
+        if (hash != previousHash) writeRecord(tag)
+        return hash
+    }
+
+    fun delete(collection: String, docId: String) {
+        record.reset()
+        writeRecord(encode(SnapshotRecord.Deleted(collection, docId), record))
+    }
+
+    private fun writeRecord(tag: Int) {
+        body.write(tag)
+        writeVarint(body, record.size().toLong())
+        record.writeTo(body)
+    }
+
+    override fun close() {
+        if (closed) return
+        closed = true
+        body.write(TAG_END)
+        body.close()
+        deflater?.end()
+    }
+
+    private class RecordBuffer : ByteArrayOutputStream(256) {
+        // FNV-1a over the payload
+        fun contentHash(): Long {
+            var hash = FNV_OFFSET_BASIS
+            for (i in 0 until count) {
+                hash = hash xor (buf[i].toLong() and 0xFF)
+                hash *= FNV_PRIME
+            }
+            return hash
+        }
+    }
+
+    companion object {
+        const val NO_HASH = 0L
+    }
+}
+
+// ========== Reader ==========
+
+// Pulls one record at a time, the snapshot is never held in memory as a whole
+class SnapshotReader(input: InputStream) : Closeable {
+    val header: SnapshotHeader
+    private val body: DataInputStream
+    private var finished = false
+
+    init {
+        val raw = BufferedInputStream(input, BUFFER_SIZE)
+        val start = DataInputStream(raw)
+        val magic = ByteArray(MAGIC.size)
+        start.readFully(magic)
+        if (!magic.contentEquals(MAGIC)) throw IOException("Not a snapshot file")
+        val version = start.readUnsignedByte()
+        if (version > VERSION) throw IOException("Snapshot version $version is newer than this app")
+        val kind = SnapshotKind.values().getOrNull(start.readUnsignedByte()) ?: throw IOException("Unknown snapshot kind")
+        val flags = start.readUnsignedByte()
+        val compressed = flags and FLAG_COMPRESSED != 0
+        header = SnapshotHeader(version, kind, compressed, id = start.readLong(), baseId = start.readLong())
+        body = if (compressed) DataInputStream(BufferedInputStream(InflaterInputStream(raw), BUFFER_SIZE)) else start
+    }
+
+    // Next record, or null at the end of the snapshot. A file that was cut off throws
+    // EOFException, a damaged compressed one ZipException.
+    fun next(): SnapshotRecord? {
+        while (!finished) {
+            val tag = body.read()
+            if (tag < 0) throw EOFException("Snapshot is truncated")
+            if (tag == TAG_END) {
+                finished = true
+                // Reading to the end of the deflate stream checks its Adler-32 trailer
+                if (header.compressed && body.read() >= 0) throw IOException("Unexpected data after snapshot")
+                return null
+            }
+            val length = readVarint(body).toInt()
+            val payload = ByteArray(length)
+            body.readFully(payload)
+            decode(tag, Payload(payload))?.let { return it }
+            // Unknown tag from a newer writer: skipped
+        }
+        return null
+    }
+
+    override fun close() {
+        body.close()
+    }
+}
+
+// ========== Encoding ==========
+
+private val MAGIC = byteArrayOf('A'.code.toByte(), 'F'.code.toByte(), 'S'.code.toByte(), 'N'.code.toByte())
+private const val VERSION = 1
+private const val FLAG_COMPRESSED = 1
+private const val BUFFER_SIZE = 64 * 1024
+
+private const val TAG_END = 0
+private const val TAG_ENTRY = 1
+private const val TAG_SHOP_ITEM = 2
+private const val TAG_SOLD_ITEM = 3
+private const val TAG_HISTORY = 4
+private const val TAG_CREDIT_CARD = 5
+private const val TAG_DELETED = 6
+
+private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL // 0xcbf29ce484222325
+private const val FNV_PRIME = 0x100000001b3L
+
+// Collections as they are stored in DELETED records
+private val COLLECTIONS = listOf(
+    FirestoreCollections.ENTRIES,
+    FirestoreCollections.SHOP_ITEMS,
+    FirestoreCollections.SOLD_ITEMS,
+    FirestoreCollections.HISTORY,
+    FirestoreCollections.CREDIT_CARDS
+)
+
+private fun encode(value: SnapshotRecord, out: OutputStream): Int = when (value) {
+    is SnapshotRecord.Entry -> {
+        val e = value.entry
+        writeString(out, e.docId)
+        writeSigned(out, e.id)
+        writeString(out, e.name)
+        writeSigned(out, e.amount.minor)
+        writeVarint(out, e.type.ordinal.toLong())
+        writeString(out, e.category)
+        writeVarint(out, (if (e.isAutoCalculated) 1L else 0L) or (if (e.excludedFromTotal) 2L else 0L))
+        writeSigned(out, e.orderIndex.toLong())
+        writeSigned(out, e.dateTimestamp)
+        writeVarint(out, e.subEntries.size.toLong())
+        for (sub in e.subEntries) {
+            writeString(out, sub.name)
+            writeSigned(out, sub.amount.minor)
+        }
+        TAG_ENTRY
+    }
+    is SnapshotRecord.Shop -> {
+        val s = value.item
+        writeString(out, s.docId)
+        writeSigned(out, s.id)
+        writeString(out, s.name)
+        writeSigned(out, s.count.toLong())
+        writeSigned(out, s.pricePerUnit.minor)
+        writeSigned(out, s.purchasePrice.minor)
+        writeSigned(out, s.orderIndex.toLong())
+        writeString(out, s.category)
+        TAG_SHOP_ITEM
+    }
+    is SnapshotRecord.Sold -> {
+        val s = value.item
+        writeString(out, s.docId)
+        writeSigned(out, s.id)
+        writeString(out, s.name)
+        writeSigned(out, s.profit.minor)
+        writeSigned(out, s.dateTimestamp)
+        writeVarint(out, s.month.toLong())
+        writeVarint(out, s.year.toLong())
+        TAG_SOLD_ITEM
+    }
+    is SnapshotRecord.History -> {
+        val h = value.history
+        writeString(out, h.docId)
+        writeSigned(out, h.id)
+        writeSigned(out, h.entryId)
+        writeSigned(out, h.oldAmount.minor)
+        writeSigned(out, h.newAmount.minor)
+        writeSigned(out, h.dateTimestamp)
+        TAG_HISTORY
+    }
+    is SnapshotRecord.Card -> {
+        val c = value.card
+        writeString(out, c.docId)
+        writeSigned(out, c.id)
+        writeString(out, c.holderName)
+        writeString(out, c.cardNumber)
+        writeString(out, c.expiryDate)
+        writeSigned(out, c.balance.minor)
+        writeString(out, c.cardType)
+        writeVarint(out, c.colorTheme.toLong())
+        TAG_CREDIT_CARD
+    }
+    is SnapshotRecord.Deleted -> {
+        writeVarint(out, COLLECTIONS.indexOf(value.collection).toLong())
+        writeString(out, value.docId)
+        TAG_DELETED
+    }
+}
+
+// Named arguments are evaluated in the order they are written, which is the field order
+private fun decode(tag: Int, p: Payload): SnapshotRecord? = when (tag) {
+    TAG_ENTRY -> SnapshotRecord.Entry(run {
+        val docId = p.string()
+        val id = p.signed()
+        val name = p.string()
+        val amount = Money(p.signed())
+        val type = EntryType.values()[p.varint().toInt()]
+        val category = p.string()
+        val flags = p.varint()
+        val orderIndex = p.signed().toInt()
+        val date = p.signed()
+        val subEntries = List(p.varint().toInt()) { SubEntry(name = p.string(), amount = Money(p.signed())) }
+        FinanceEntry(
+            id = id, name = name, amount = amount, type = type, category = category,
+            isAutoCalculated = flags and 1L != 0L, subEntries = subEntries,
+            excludedFromTotal = flags and 2L != 0L, orderIndex = orderIndex,
+            dateTimestamp = date, docId = docId
+        )
+    })
+    TAG_SHOP_ITEM -> SnapshotRecord.Shop(ShopItem(
+        docId = p.string(), id = p.signed(), name = p.string(), count = p.signed().toInt(),
+        pricePerUnit = Money(p.signed()), purchasePrice = Money(p.signed()),
+        orderIndex = p.signed().toInt(), category = p.string()
+    ))
+    TAG_SOLD_ITEM -> SnapshotRecord.Sold(SoldItem(
+        docId = p.string(), id = p.signed(), name = p.string(), profit = Money(p.signed()),
+        dateTimestamp = p.signed(), month = p.varint().toInt(), year = p.varint().toInt()
+    ))
+    TAG_HISTORY -> SnapshotRecord.History(HistoryEntry(
+        docId = p.string(), id = p.signed(), entryId = p.signed(),
+        oldAmount = Money(p.signed()), newAmount = Money(p.signed()), dateTimestamp = p.signed()
+    ))
+    TAG_CREDIT_CARD -> SnapshotRecord.Card(CreditCard(
+        docId = p.string(), id = p.signed(), holderName = p.string(), cardNumber = p.string(),
+        expiryDate = p.string(), balance = Money(p.signed()), cardType = p.string(),
+        colorTheme = p.varint().toInt()
+    ))
+    TAG_DELETED -> SnapshotRecord.Deleted(
+        collection = COLLECTIONS.getOrNull(p.varint().toInt()) ?: throw IOException("Unknown collection"),
+        docId = p.string()
+    )
+    else -> null
+}
+
+private class Payload(private val bytes: ByteArray) {
+    private var pos = 0
+
+    fun varint(): Long {
+        var result = 0L
+        var shift = 0
+        while (true) {
+            if (pos >= bytes.size) throw EOFException("Record is truncated")
+            val b = bytes[pos++].toInt()
+            result = result or ((b and 0x7F).toLong() shl shift)
+            if (b and 0x80 == 0) return result
+            shift += 7
+        }
+    }
+
+    fun signed(): Long {
+        val n = varint()
+        return (n ushr 1) xor -(n and 1)
+    }
+
+    fun string(): String {
+        val length = varint().toInt()
+        if (pos + length > bytes.size) throw EOFException("Record is truncated")
+        val s = String(bytes, pos, length, Charsets.UTF_8)
+        pos += length
+        return s
+    }
+}
+
+private fun writeVarint(out: OutputStream, value: Long) {
+    var v = value
+    while (v and 0x7FL.inv() != 0L) {
+        out.write(((v and 0x7F) or 0x80).toInt())
+        v = v ushr 7
+    }
+    out.write(v.toInt())
+}
+
+// Zigzag, so small negative amounts stay short
+private fun writeSigned(out: OutputStream, value: Long) {
+    writeVarint(out, (value shl 1) xor (value shr 63))
+}
+
+private fun writeString(out: OutputStream, value: String) {
+    val bytes = value.toByteArray(Charsets.UTF_8)
+    writeVarint(out, bytes.size.toLong())
+    out.write(bytes)
+}
+
+private fun readVarint(input: InputStream): Long {
+    var result = 0L
+    var shift = 0
+    while (true) {
+        val b = input.read()
+        if (b < 0) throw EOFException("Snapshot is truncated")
+        result = result or ((b and 0x7F).toLong() shl shift)
+        if (b and 0x80 == 0) return result
+        shift += 7
+    }
+}
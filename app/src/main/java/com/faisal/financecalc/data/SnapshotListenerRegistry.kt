@@ -0,0 +1,55 @@
+package com.faisal.financecalc.data
+
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.shareIn
+import java.util.concurrent.ConcurrentHashMap
+
+// Keeps a single live snapshot listener per query and shares it with every subscriber.
+// The listener is ref-counted through WhileSubscribed: it starts with the first collector
+// and is removed once the last one has been gone for the grace period, so quick screen
+// switches and configuration changes don't re-download the collection.
+// A shared flow never completes, so a failed listener (Firestore listener errors are final,
+// e.g. PERMISSION_DENIED) is shared as a Failed event and rethrown to every subscriber; the
+// stream is dropped first, so collecting again attaches a fresh listener.
+class SnapshotListenerRegistry(
+    private val scope: CoroutineScope,
+    private val gracePeriodMillis: Long = DEFAULT_GRACE_PERIOD_MS
+) {
+    private val streams = ConcurrentHashMap<String, SharedFlow<Event<*>>>()
+
+    private sealed class Event<out T> {
+        class Value<T>(val value: T) : Event<T>()
+        class Failed(val error: Throwable) : Event<Nothing>()
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    fun <T> stream(key: String, upstream: () -> Flow<T>): Flow<T> {
+        val shared = streams.computeIfAbsent(key) {
+            upstream()
+                .map<T, Event<T>> { Event.Value(it) }
+                .catch { error ->
+                    Log.w(TAG, "Snapshot listener for $key failed", error)
+                    streams.remove(key)
+                    emit(Event.Failed(error))
+                }
+                .shareIn(scope, SharingStarted.WhileSubscribed(gracePeriodMillis), replay = 1)
+        }
+        return shared.map { event ->
+            when (event) {
+                is Event.Value -> event.value as T
+                is Event.Failed -> throw event.error
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "SnapshotListeners"
+        const val DEFAULT_GRACE_PERIOD_MS = 5_000L
+    }
+}
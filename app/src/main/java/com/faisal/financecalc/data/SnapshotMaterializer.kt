@@ -0,0 +1,74 @@
+package com.faisal.financecalc.data
+
+import com.google.firebase.firestore.DocumentChange
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.QuerySnapshot
+import kotlinx.collections.immutable.PersistentList
+import kotlinx.collections.immutable.persistentListOf
+
+// One materialized query result: the full list plus what changed since the previous one,
+// so consumers can either render the list or apply just the delta (SyncEngine).
+class RemoteSnapshot<T>(
+    val items: PersistentList<T>,
+    val upserts: List<T>,
+    val removedKeys: List<String>,
+    val isFromCache: Boolean,
+    val outdatedKeys: List<String> = emptyList() // Changed documents stored in an older format
+)
+
+// Materializes a query result incrementally from snapshot.documentChanges instead of
+// deserializing every document on every snapshot. Firestore reports each change with its
+// position in the result (oldIndex/newIndex, assuming earlier changes are applied), so the
+// list is keyed by those positions and only changed documents are decoded. The emitted list
+// is persistent: unchanged parts are shared between emissions rather than copied.
+class SnapshotMaterializer<T>(
+    private val decode: (DocumentSnapshot) -> T,
+    private val isOutdated: (DocumentSnapshot) -> Boolean = { false }
+) {
+
+    private var items: PersistentList<T> = persistentListOf()
+    private var initialized = false
+    private var fromCache = true
+
+    // Returns null if neither a document nor the cache state changed
+    // (e.g. a hasPendingWrites flip), so callers can skip the emission.
+    fun apply(snapshot: QuerySnapshot): RemoteSnapshot<T>? {
+        val changes = snapshot.documentChanges
+        val isFromCache = snapshot.metadata.isFromCache
+        if (initialized && changes.isEmpty() && isFromCache == fromCache) return null
+        initialized = true
+        fromCache = isFromCache
+
+        val upserts = ArrayList<T>()
+        val removedKeys = ArrayList<String>()
+        val outdatedKeys = ArrayList<String>()
+        val builder = items.builder()
+        for (change in changes) {
+            when (change.type) {
+                DocumentChange.Type.ADDED -> {
+                    val item = decode(change.document)
+                    builder.add(change.newIndex, item)
+                    upserts += item
+                    if (isOutdated(change.document)) outdatedKeys += change.document.id
+                }
+                DocumentChange.Type.MODIFIED -> {
+                    val item = decode(change.document)
+                    if (change.oldIndex == change.newIndex) {
+                        builder[change.newIndex] = item
+                    } else {
+                        builder.removeAt(change.oldIndex)
+                        builder.add(change.newIndex, item)
+                    }
+                    upserts += item
+                    if (isOutdated(change.document)) outdatedKeys += change.document.id
+                }
+                DocumentChange.Type.REMOVED -> {
+                    builder.removeAt(change.oldIndex)
+                    removedKeys += change.document.id
+                }
+            }
+        }
+        items = builder.build()
+        return RemoteSnapshot(items, upserts, removedKeys, isFromCache, outdatedKeys)
+    }
+}
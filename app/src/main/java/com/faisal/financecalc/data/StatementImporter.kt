@@ -0,0 +1,231 @@
+package com.faisal.financecalc.data
+
+import android.content.ContentResolver
+import android.content.SharedPreferences
+import android.net.Uri
+import android.util.Xml
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.ImportTarget
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.StatementCsv
+import com.faisal.financecalc.core.StatementLine
+import com.faisal.financecalc.core.StatementRules
+import com.faisal.financecalc.core.StatementSource
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import org.xmlpull.v1.XmlPullParser
+import java.io.BufferedReader
+import java.time.LocalDate
+import java.time.YearMonth
+
+data class ImportResult(
+    val imported: Int,   // New rows
+    val duplicates: Int, // Already in the store from an earlier import
+    val unreadable: Int  // Rows that didn't fit the column rules
+)
+
+// Imports a bank statement picked through the Storage Access Framework: CSV with the user's
+// column rules, or a CAMT.053 XML statement. The file is parsed as a stream and written in
+// batches of BATCH_SIZE rows (one transaction each), so memory stays bounded however long the
+// statement is. Every row gets a key derived from its content, which makes re-importing an
+// overlapping statement skip the bookings that are already there.
+class StatementImporter(
+    private val contentResolver: ContentResolver,
+    private val repository: FinanceRepository,
+    private val prefs: SharedPreferences
+) {
+
+    suspend fun import(uri: Uri, rules: StatementRules): ImportResult = withContext(Dispatchers.IO) {
+        val input = contentResolver.openInputStream(uri) ?: throw IllegalArgumentException("Cannot open $uri")
+        input.bufferedReader().use { reader ->
+            val source = if (isXml(reader)) CamtReader(reader) else StatementCsv.open(reader, rules)
+            val batch = Batch(rules.target)
+            while (true) {
+                batch.add(source.next() ?: break)
+            }
+            batch.flush()
+            ImportResult(batch.imported, batch.duplicates, source.unreadable)
+        }
+    }
+
+    // ========== Batching ==========
+
+    private inner class Batch(private val target: ImportTarget) {
+        private val entries = ArrayList<FinanceEntry>(BATCH_SIZE)
+        private val soldItems = ArrayList<SoldItem>(BATCH_SIZE)
+        private val orderIndex = HashMap<EntryType, Int>()
+        var imported = 0
+        var duplicates = 0
+
+        // Same bookings of the same day, counted to tell them apart (see StatementLine.fingerprint).
+        // Kept for the whole import: statements aren't always sorted by date, and a count that
+        // restarts would give the second coffee of a day the key of the first one.
+        private val occurrences = HashMap<String, Int>()
+
+        suspend fun add(line: StatementLine) {
+            val content = line.fingerprint(0)
+            val occurrence = occurrences.merge(content, 1) { a, b -> a + b } ?: 1
+            val key = DocumentKeys.keyFrom(line.fingerprint(occurrence))
+
+            when (target) {
+                ImportTarget.ENTRIES -> {
+                    val type = if (line.amount < Money.ZERO) EntryType.EXPENSE else EntryType.INCOME
+                    val index = orderIndex[type] ?: repository.nextOrderIndex(type)
+                    orderIndex[type] = index + 1
+                    entries += FinanceEntry(
+                        id = DocumentKeys.longIdOf(key),
+                        docId = key,
+                        name = line.name,
+                        amount = if (line.amount < Money.ZERO) -line.amount else line.amount,
+                        type = type,
+                        category = line.category.ifEmpty { DEFAULT_CATEGORY },
+                        orderIndex = index,
+                        dateTimestamp = line.dateTimestamp
+                    )
+                }
+                ImportTarget.SOLD_ITEMS -> {
+                    val month = YearMonth.from(line.date)
+                    soldItems += SoldItem(
+                        id = DocumentKeys.longIdOf(key),
+                        docId = key,
+                        name = line.name,
+                        profit = line.amount,
+                        dateTimestamp = line.dateTimestamp,
+                        month = month.monthValue,
+                        year = month.year
+                    )
+                }
+            }
+            if (entries.size + soldItems.size >= BATCH_SIZE) flush()
+        }
+
+        suspend fun flush() {
+            if (entries.isNotEmpty()) {
+                val added = repository.importEntries(entries)
+                imported += added
+                duplicates += entries.size - added
+                entries.clear()
+            }
+            if (soldItems.isNotEmpty()) {
+                val added = repository.importSoldItems(soldItems)
+                imported += added
+                duplicates += soldItems.size - added
+                soldItems.clear()
+            }
+        }
+    }
+
+    // ========== CAMT.053 ==========
+
+    private fun isXml(reader: BufferedReader): Boolean {
+        reader.mark(SNIFF_LENGTH)
+        val start = CharArray(SNIFF_LENGTH)
+        val read = reader.read(start)
+        reader.reset()
+        return read > 0 && String(start, 0, read).trimStart('\uFEFF', ' ', '\n', '\r', '\t').startsWith("<")
+    }
+
+    // Pull parser over the <Ntry> elements of a CAMT.053 statement; column rules don't apply
+    // since the format names its fields
+    private class CamtReader(reader: BufferedReader) : StatementSource {
+        private val parser = Xml.newPullParser().apply {
+            setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false)
+            setInput(reader)
+        }
+        private val path = ArrayList<String>()
+
+        override var unreadable = 0
+            private set
+
+        override fun next(): StatementLine? {
+            var amount: Money? = null
+            var debit = false
+            var date: LocalDate? = null
+            var name = ""
+            var info = ""
+            var inEntry = false
+
+            while (parser.next() != XmlPullParser.END_DOCUMENT) {
+                when (parser.eventType) {
+                    XmlPullParser.START_TAG -> {
+                        val tag = parser.name.substringAfter(':')
+                        path += tag
+                        if (tag == "Ntry") inEntry = true
+                    }
+                    XmlPullParser.TEXT -> if (inEntry) {
+                        val text = parser.text.trim()
+                        val tag = path.lastOrNull()
+                        val parent = path.getOrNull(path.size - 2)
+                        when {
+                            text.isEmpty() -> Unit
+                            // The booking's own amount, not the instructed/transaction amounts below it
+                            tag == "Amt" && parent == "Ntry" -> amount = StatementCsv.parseAmount(text)
+                            tag == "CdtDbtInd" && parent == "Ntry" -> debit = text == "DBIT"
+                            tag == "Dt" && parent == "BookgDt" -> date = runCatching { LocalDate.parse(text.take(10)) }.getOrNull()
+                            tag == "Nm" && name.isEmpty() -> name = text
+                            (tag == "Ustrd" || tag == "AddtlNtryInf") && info.isEmpty() -> info = text
+                        }
+                    }
+                    XmlPullParser.END_TAG -> if (path.removeLastOrNull() == "Ntry") {
+                        val bookingDate = date
+                        val bookingAmount = amount
+                        if (bookingDate != null && bookingAmount != null) {
+                            return StatementLine(
+                                date = bookingDate,
+                                name = name.ifEmpty { info },
+                                amount = if (debit) -bookingAmount else bookingAmount,
+                                category = ""
+                            )
+                        }
+                        unreadable++
+                        inEntry = false
+                    }
+                }
+            }
+            return null
+        }
+    }
+
+
+    // ========== Rules ==========
+
+    // The column rules of the last import, so the next statement of the same bank is one tap
+    fun savedRules(): StatementRules {
+        val defaults = StatementRules()
+        return StatementRules(
+            dateColumn = prefs.getInt(KEY_DATE_COLUMN, defaults.dateColumn),
+            nameColumn = prefs.getInt(KEY_NAME_COLUMN, defaults.nameColumn),
+            amountColumn = prefs.getInt(KEY_AMOUNT_COLUMN, defaults.amountColumn),
+            categoryColumn = prefs.getInt(KEY_CATEGORY_COLUMN, defaults.categoryColumn),
+            datePattern = prefs.getString(KEY_DATE_PATTERN, null) ?: defaults.datePattern,
+            hasHeader = prefs.getBoolean(KEY_HAS_HEADER, defaults.hasHeader),
+            target = prefs.getString(KEY_TARGET, null)?.let { runCatching { ImportTarget.valueOf(it) }.getOrNull() } ?: defaults.target
+        )
+    }
+
+    fun saveRules(rules: StatementRules) {
+        prefs.edit()
+            .putInt(KEY_DATE_COLUMN, rules.dateColumn)
+            .putInt(KEY_NAME_COLUMN, rules.nameColumn)
+            .putInt(KEY_AMOUNT_COLUMN, rules.amountColumn)
+            .putInt(KEY_CATEGORY_COLUMN, rules.categoryColumn)
+            .putString(KEY_DATE_PATTERN, rules.datePattern)
+            .putBoolean(KEY_HAS_HEADER, rules.hasHeader)
+            .putString(KEY_TARGET, rules.target.name)
+            .apply()
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 500 // Also the IN (...) size of the duplicate check
+        private const val SNIFF_LENGTH = 256
+        private const val DEFAULT_CATEGORY = "Import"
+
+        private const val KEY_DATE_COLUMN = "import_date_column"
+        private const val KEY_NAME_COLUMN = "import_name_column"
+        private const val KEY_AMOUNT_COLUMN = "import_amount_column"
+        private const val KEY_CATEGORY_COLUMN = "import_category_column"
+        private const val KEY_DATE_PATTERN = "import_date_pattern"
+        private const val KEY_HAS_HEADER = "import_has_header"
+        private const val KEY_TARGET = "import_target"
+    }
+}
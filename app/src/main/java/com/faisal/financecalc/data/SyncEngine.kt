@@ -0,0 +1,334 @@
+package com.faisal.financecalc.data
+
+import android.content.SharedPreferences
+import android.util.Log
+import androidx.room.withTransaction
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+// Keeps Room in sync with Firestore while a user is signed in:
+// - pull: one snapshot stream per collection, applied to Room as deltas
+// - push: drains the outbox table, batching plain writes into WriteBatch commits
+// Rows with pending outbox operations are never overwritten by a pull, so local edits
+// stay visible until the server has them.
+class SyncEngine(
+    private val database: AppDatabase,
+    private val remote: SyncRemote,
+    private val prefs: SharedPreferences,
+    private val scope: CoroutineScope,
+    private val pullRetryMillis: Long = PULL_RETRY_MS
+) {
+    private val dao = database.financeDao()
+    private val pushSignal = Channel<Unit>(Channel.CONFLATED)
+    private var job: Job? = null
+
+    // Progress of a running bulk push (resets, seeding, imports), null when idle
+    private val _progress = MutableStateFlow<BulkProgress?>(null)
+    val progress: StateFlow<BulkProgress?> = _progress.asStateFlow()
+
+    // Collections whose local copy has been completely pulled at least once for this account
+    private val _pulled = MutableStateFlow<Set<String>>(emptySet())
+    val pulled: StateFlow<Set<String>> = _pulled.asStateFlow()
+
+    // Collections whose latest snapshot came from Firestore's local cache, i.e. what Room
+    // shows has not been confirmed by the server yet. Empty while sync is stopped.
+    private val _fromCache = MutableStateFlow<Set<String>>(emptySet())
+    val fromCache: StateFlow<Set<String>> = _fromCache.asStateFlow()
+
+    private class LocalTable<T>(
+        val collection: String,
+        val codec: EntityCodec<T>,
+        val docIdOf: (T) -> String,
+        val find: suspend (String) -> T?,
+        val insert: suspend (List<T>) -> Unit,
+        val delete: suspend (List<String>) -> Unit,
+        val docIds: suspend () -> List<String>
+    ) {
+        suspend fun findEncoded(docId: String): Map<String, Any?>? = find(docId)?.let { codec.encode(it) }
+    }
+
+    private val tables: List<LocalTable<*>> = listOf(
+        LocalTable(
+            FirestoreCollections.ENTRIES, EntityCodecs.ENTRY, { it.docId },
+            { dao.getEntry(it) }, { dao.insertEntries(it) }, { dao.deleteEntries(it) }, { dao.getEntryDocIds() }
+        ),
+        LocalTable(
+            FirestoreCollections.SHOP_ITEMS, EntityCodecs.SHOP_ITEM, { it.docId },
+            { dao.getShopItem(it) }, { dao.insertShopItems(it) }, { dao.deleteShopItems(it) }, { dao.getShopItemDocIds() }
+        ),
+        LocalTable(
+            FirestoreCollections.SOLD_ITEMS, EntityCodecs.SOLD_ITEM, { it.docId },
+            { dao.getSoldItem(it) }, { dao.insertSoldItems(it) }, { dao.deleteSoldItems(it) }, { dao.getSoldItemDocIds() }
+        ),
+        LocalTable(
+            FirestoreCollections.HISTORY, EntityCodecs.HISTORY, { it.docId },
+            { dao.getHistoryEntry(it) }, { dao.insertHistoryEntries(it) }, { dao.deleteHistoryEntries(it) }, { dao.getHistoryDocIds() }
+        ),
+        LocalTable(
+            FirestoreCollections.CREDIT_CARDS, EntityCodecs.CREDIT_CARD, { it.docId },
+            { dao.getCreditCard(it) }, { dao.insertCreditCards(it) }, { dao.deleteCreditCards(it) }, { dao.getCreditCardDocIds() }
+        )
+    )
+
+    fun start() {
+        if (job?.isActive == true) return
+        val uid = remote.currentUserId() ?: return
+        job = scope.launch {
+            // The local store only ever holds one account
+            if (prefs.getString(KEY_OWNER, null) != uid) {
+                withContext(Dispatchers.IO) { database.clearAllTables() }
+                clearPulled()
+                prefs.edit().putString(KEY_OWNER, uid).apply()
+            }
+            // A schema change empties the store (destructive migration), so a flag only counts
+            // for the schema version it was recorded with
+            _pulled.value = tables.map { it.collection }.filter { prefs.getInt(pulledKey(it), 0) == AppDatabase.VERSION }.toSet()
+            _fromCache.value = tables.map { it.collection }.toSet()
+            tables.forEach { table -> launch { pull(table) } }
+            launch { pushLoop() }
+            requestPush()
+        }
+    }
+
+    suspend fun stop() {
+        job?.cancelAndJoin()
+        job = null
+        _fromCache.value = emptySet()
+    }
+
+    // Signed out: drop the replica (including unsent changes) so the next account starts clean
+    suspend fun reset() {
+        stop()
+        withContext(Dispatchers.IO) { database.clearAllTables() }
+        clearPulled()
+        prefs.edit().remove(KEY_OWNER).apply()
+    }
+
+    private fun clearPulled() {
+        val editor = prefs.edit()
+        tables.forEach { editor.remove(pulledKey(it.collection)) }
+        editor.apply()
+        _pulled.value = emptySet()
+    }
+
+    private fun pulledKey(collection: String) = "$KEY_PULLED_PREFIX$collection"
+
+    fun requestPush() {
+        pushSignal.trySend(Unit)
+    }
+
+    // ========== Pull ==========
+
+    private suspend fun <T> pull(table: LocalTable<T>) {
+        while (currentCoroutineContext().isActive) {
+            var first = true
+            var reconciled = false
+            try {
+                remote.snapshots(table.collection, table.codec).collect { snapshot ->
+                    var rewrite = false
+                    val applied = database.withTransaction {
+                        val pending = dao.getPendingDocIds(table.collection).toHashSet()
+                        // A local reset of the collection hasn't reached the server yet
+                        if (CLEAR_KEY in pending) return@withTransaction false
+
+                        // The first emission may be a replayed snapshot, so take the full list once
+                        val upserts = if (first) snapshot.items else snapshot.upserts
+                        table.insert(upserts.filter { table.docIdOf(it) !in pending })
+                        deleteChunked(table, snapshot.removedKeys.filter { it !in pending })
+
+                        // Documents in an older format (e.g. Double amounts) are pushed again from
+                        // the row just stored, which re-encodes them in the current format
+                        val outdated = snapshot.outdatedKeys.filter { it !in pending }
+                        if (outdated.isNotEmpty()) {
+                            dao.insertOutboxOps(outdated.map { OutboxOperation(collection = table.collection, docId = it, type = OutboxOp.REWRITE) })
+                            rewrite = true
+                        }
+
+                        // Once the server has confirmed the result, drop rows deleted remotely while we weren't listening
+                        if (!reconciled && !snapshot.isFromCache) {
+                            val remoteKeys = snapshot.items.mapTo(HashSet()) { table.docIdOf(it) }
+                            deleteChunked(table, table.docIds().filter { it !in remoteKeys && it !in pending })
+                            reconciled = true
+                        }
+                        true
+                    }
+                    if (applied) first = false
+                    _fromCache.update { if (snapshot.isFromCache) it + table.collection else it - table.collection }
+                    if (rewrite) requestPush()
+                    if (reconciled && table.collection !in _pulled.value) {
+                        prefs.edit().putInt(pulledKey(table.collection), AppDatabase.VERSION).apply()
+                        _pulled.update { it + table.collection }
+                    }
+                }
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                // The listener failed (see SnapshotListenerRegistry): until it is re-attached
+                // the collection is no longer confirmed by the server
+                Log.w(TAG, "Pull of ${table.collection} failed, retrying in $pullRetryMillis ms", e)
+            }
+            _fromCache.update { it + table.collection }
+            delay(pullRetryMillis)
+        }
+    }
+
+    private suspend fun <T> deleteChunked(table: LocalTable<T>, docIds: List<String>) {
+        docIds.chunked(MAX_SQL_ARGS).forEach { table.delete(it) }
+    }
+
+    // ========== Push ==========
+
+    private suspend fun pushLoop() {
+        var backoff = MIN_BACKOFF_MS
+        for (ignored in pushSignal) {
+            // One progress for the whole drain, not one per batch of PUSH_BATCH_SIZE ops
+            val drain = Drain(dao.observeOutboxCount().first())
+            try {
+                while (true) {
+                    val ops = dao.getOutbox(PUSH_BATCH_SIZE)
+                    if (ops.isEmpty()) break
+                    // Ops queued while draining make the total grow instead of starting over
+                    drain.total = maxOf(drain.total, drain.done + dao.observeOutboxCount().first())
+                    try {
+                        push(ops, drain)
+                        backoff = MIN_BACKOFF_MS
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Exception) {
+                        Log.w(TAG, "Push failed, retrying in $backoff ms", e)
+                        delay(backoff)
+                        backoff = (backoff * 2).coerceAtMost(MAX_BACKOFF_MS)
+                    }
+                }
+            } finally {
+                _progress.value = null
+            }
+        }
+    }
+
+    // Outbox ops pushed so far out of the ones there were (or got queued) during the drain
+    private class Drain(var total: Int) {
+        var done = 0
+    }
+
+    // inFlight: the share of the ops being committed right now, in ops
+    private fun report(drain: Drain, inFlight: Float = 0f) {
+        val completed = (drain.done + inFlight.toInt()).coerceAtMost(drain.total)
+        _progress.value = BulkProgress(completed, drain.total)
+    }
+
+    private suspend fun push(ops: List<OutboxOperation>, drain: Drain) {
+        val batch = ArrayList<RemoteWrite>()
+        val sales = ArrayList<SoldItem>()
+        val batchedSeqs = ArrayList<Long>()
+        var saleSeqs = 0
+        val changing = HashMap<String, Set<String>>()
+
+        // The outbox rows go only after the server has everything; pushing them again is
+        // harmless (plain sets and deletes, and sales take their rollup delta from the server)
+        suspend fun flush() {
+            if (batchedSeqs.isEmpty()) return
+            val plainSeqs = batchedSeqs.size - saleSeqs
+            remote.commit(batch) { report(drain, it.fraction * plainSeqs) }
+            remote.insertSoldItems(sales) { report(drain, plainSeqs + it.fraction * saleSeqs) }
+            dao.deleteOutbox(batchedSeqs)
+            drain.done += batchedSeqs.size
+            report(drain)
+            batch.clear()
+            sales.clear()
+            batchedSeqs.clear()
+            saleSeqs = 0
+        }
+
+        for (op in ops) {
+            // Collection resets, sales and sold item edits/deletes need their own commit (the
+            // latter are transactions because of stock and profit rollups), everything else is batched
+            if (op.type == OutboxOp.REWRITE) {
+                // Same content in the current format, so even sold items are plain sets (the
+                // rollups don't change). Skipped when the document has real changes queued:
+                // those push it in the current format anyway, and a plain set ahead of them
+                // would hide their rollup or stock delta from the server.
+                val changed = changing.getOrPut(op.collection) { dao.getChangingDocIds(op.collection).toHashSet() }
+                if (op.docId !in changed) batch += remoteOperations(op)
+                batchedSeqs += op.seq
+            } else if (op.type == OutboxOp.CLEAR || op.type == OutboxOp.SELL ||
+                (op.collection == FirestoreCollections.SOLD_ITEMS && op.type != OutboxOp.INSERT)
+            ) {
+                flush()
+                pushSingle(op) { report(drain, it.fraction) }
+                dao.deleteOutbox(listOf(op.seq))
+                drain.done++
+                report(drain)
+            } else if (op.collection == FirestoreCollections.SOLD_ITEMS) {
+                // Push the row as it is now; if it is gone, a later DELETE in the outbox covers it
+                dao.getSoldItem(op.docId)?.let { sales += it }
+                batchedSeqs += op.seq
+                saleSeqs++
+            } else {
+                batch += remoteOperations(op)
+                batchedSeqs += op.seq
+            }
+        }
+        flush()
+    }
+
+    private suspend fun remoteOperations(op: OutboxOperation): List<RemoteWrite> {
+        if (op.type == OutboxOp.DELETE) return listOf(RemoteWrite.Delete(op.collection, op.docId))
+        // Push the row as it is now; if it is gone, a later DELETE in the outbox covers it
+        val data = tableFor(op.collection).findEncoded(op.docId) ?: return emptyList()
+        return listOf(RemoteWrite.Set(op.collection, op.docId, data))
+    }
+
+    private suspend fun pushSingle(op: OutboxOperation, onProgress: (BulkProgress) -> Unit) {
+        when {
+            op.type == OutboxOp.CLEAR && op.collection == FirestoreCollections.SOLD_ITEMS ->
+                remote.deleteAllSoldItems(onProgress)
+            op.type == OutboxOp.CLEAR -> remote.deleteAll(op.collection, onProgress)
+            op.type == OutboxOp.SELL -> pushSale(op)
+            op.type == OutboxOp.DELETE -> remote.deleteSoldItem(op.docId)
+            else -> dao.getSoldItem(op.docId)?.let { remote.updateSoldItem(it) }
+        }
+    }
+
+    private suspend fun pushSale(op: OutboxOperation) {
+        if (remote.sellItem(op.relatedDocId, dao.getSoldItem(op.docId))) return
+        // Sold out on the server: take the sale back and show the item as the server has it
+        val item = remote.fetch(FirestoreCollections.SHOP_ITEMS, op.relatedDocId, EntityCodecs.SHOP_ITEM)
+        database.withTransaction {
+            dao.deleteSoldItems(listOf(op.docId))
+            dao.deleteOutboxFor(FirestoreCollections.SOLD_ITEMS, op.docId)
+            if (item != null) dao.insertShopItem(item) else dao.deleteShopItems(listOf(op.relatedDocId))
+        }
+        Log.i(TAG, "Sale ${op.docId} rejected, ${op.relatedDocId} is sold out")
+    }
+
+    private fun tableFor(collection: String): LocalTable<*> {
+        return tables.first { it.collection == collection }
+    }
+
+    companion object {
+        private const val TAG = "SyncEngine"
+        private const val KEY_OWNER = "local_store_owner"
+        private const val KEY_PULLED_PREFIX = "local_store_pulled_schema_" // Value: AppDatabase.VERSION
+        const val CLEAR_KEY = "" // docId of CLEAR operations
+        private const val PUSH_BATCH_SIZE = 400
+        private const val MAX_SQL_ARGS = 500 // Stay below SQLite's host parameter limit
+        private const val PULL_RETRY_MS = 10_000L
+        private const val MIN_BACKOFF_MS = 2_000L
+        private const val MAX_BACKOFF_MS = 60_000L
+    }
+}
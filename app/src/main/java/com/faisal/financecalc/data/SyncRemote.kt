@@ -0,0 +1,41 @@
+package com.faisal.financecalc.data
+
+import kotlinx.coroutines.flow.Flow
+
+// A plain document write of the outbox push, addressed by collection and key
+sealed class RemoteWrite {
+    abstract val collection: String
+    abstract val docId: String
+
+    data class Set(override val collection: String, override val docId: String, val data: Map<String, Any?>) : RemoteWrite()
+    data class Delete(override val collection: String, override val docId: String) : RemoteWrite()
+}
+
+// What the SyncEngine needs from the server. FirestoreRepository is the implementation; the
+// sync tests run the engine against an in-memory one.
+interface SyncRemote {
+    fun currentUserId(): String?
+
+    fun <T> snapshots(name: String, codec: EntityCodec<T>): Flow<RemoteSnapshot<T>>
+
+    // Plain sets and deletes, batched; applied in list order (later writes to a document win)
+    suspend fun commit(writes: List<RemoteWrite>, onProgress: (BulkProgress) -> Unit = {})
+
+    suspend fun deleteAll(name: String, onProgress: (BulkProgress) -> Unit = {})
+
+    // ========== Sold Items ==========
+    // These also keep the monthly profit rollups in step
+
+    suspend fun insertSoldItems(items: List<SoldItem>, onProgress: (BulkProgress) -> Unit = {})
+
+    suspend fun updateSoldItem(item: SoldItem)
+
+    suspend fun deleteSoldItem(docId: String)
+
+    suspend fun deleteAllSoldItems(onProgress: (BulkProgress) -> Unit = {})
+
+    // One unit off the shop item plus the sale; false when the item is sold out
+    suspend fun sellItem(shopItemDocId: String, sale: SoldItem?): Boolean
+
+    suspend fun <T> fetch(name: String, docId: String, codec: EntityCodec<T>): T?
+}
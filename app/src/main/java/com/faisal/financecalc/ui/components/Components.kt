@@ -18,13 +18,14 @@ import androidx.compose.ui.graphics.vector.ImageVector
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
-import com.faisal.financecalc.data.FinanceEntry
-import com.faisal.financecalc.data.ShopItem
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.ui.model.EntryUi
+import com.faisal.financecalc.ui.model.ShopItemUi
 
 @Composable
 fun SummaryCard(
     title: String,
-    amount: Double,
+    amount: Money,
     modifier: Modifier = Modifier,
     backgroundColor: Color = MaterialTheme.colorScheme.primaryContainer,
     icon: ImageVector? = null,
@@ -84,7 +85,7 @@ fun SummaryCard(
                     )
                 }
                 Text(
-                    text = "${String.format("%.2f", amount)} $currencySymbol",
+                    text = "${amount.format()} $currencySymbol",
                     style = MaterialTheme.typography.headlineLarge,
                     fontWeight = FontWeight.Bold,
                     color = contentColor
@@ -96,7 +97,7 @@ fun SummaryCard(
 
 @Composable
 fun EntryRow(
-    entry: FinanceEntry,
+    entry: EntryUi,
     onEdit: () -> Unit,
     onDelete: () -> Unit,
     currencySymbol: String = "€"
@@ -120,7 +121,7 @@ fun EntryRow(
                 Text(text = entry.name, style = MaterialTheme.typography.bodyLarge, fontWeight = FontWeight.Bold)
                 Text(text = entry.category, style = MaterialTheme.typography.labelSmall, color = Color.Gray)
                 Text(
-                    text = java.text.SimpleDateFormat("dd/MM/yyyy", java.util.Locale.getDefault()).format(java.util.Date(entry.dateTimestamp)),
+                    text = entry.dateText,
                     style = MaterialTheme.typography.labelSmall,
                     color = Color.Gray.copy(alpha = 0.7f),
                     modifier = Modifier.padding(top = 2.dp)
@@ -136,7 +137,7 @@ fun EntryRow(
                                 color = MaterialTheme.colorScheme.onSurfaceVariant
                             )
                             Text(
-                                text = "${if (sub.amount % 1.0 == 0.0) sub.amount.toInt().toString() else sub.amount.toString()} $currencySymbol",
+                                text = "${sub.amountText} $currencySymbol",
                                 style = MaterialTheme.typography.bodySmall,
                                 fontWeight = FontWeight.SemiBold,
                                 color = MaterialTheme.colorScheme.onSurfaceVariant
@@ -147,10 +148,10 @@ fun EntryRow(
             }
             Column(horizontalAlignment = Alignment.End) {
                 Text(
-                    text = "${if (entry.amount % 1.0 == 0.0) entry.amount.toInt().toString() else entry.amount.toString()} $currencySymbol",
+                    text = "${entry.amountText} $currencySymbol",
                     style = MaterialTheme.typography.titleMedium,
                     fontWeight = FontWeight.Bold,
-                    color = if (entry.excludedFromTotal) Color(0xFFFFC107) else if(entry.type == com.faisal.financecalc.data.EntryType.INCOME) Color(0xFF2E7D32) else MaterialTheme.colorScheme.error 
+                    color = if (entry.excludedFromTotal) Color(0xFFFFC107) else if(entry.isIncome) Color(0xFF2E7D32) else MaterialTheme.colorScheme.error 
                 )
                 if (entry.excludedFromTotal) {
                     Text(
@@ -180,7 +181,7 @@ fun EntryRow(
 
 @Composable
 fun ShopItemRow(
-    item: ShopItem,
+    item: ShopItemUi,
     onEdit: () -> Unit,
     onDelete: () -> Unit,
     currencySymbol: String = "€"
@@ -203,7 +204,7 @@ fun ShopItemRow(
             Column(modifier = Modifier.weight(1f)) {
                 Text(text = item.name, style = MaterialTheme.typography.bodyLarge, fontWeight = FontWeight.Bold)
                 Text(
-                    text = "${item.count} x (Buy: ${item.purchasePrice} $currencySymbol)",
+                    text = "${item.count} x (Buy: ${item.purchasePriceText} $currencySymbol)",
                     style = MaterialTheme.typography.bodyMedium,
                     color = MaterialTheme.colorScheme.onSurfaceVariant
                 )
@@ -216,7 +217,7 @@ fun ShopItemRow(
                     color = MaterialTheme.colorScheme.onSurface.copy(alpha=0.6f)
                 )
                 Text(
-                    text = "${String.format("%.2f", item.count * item.purchasePrice)} $currencySymbol",
+                    text = "${item.totalValueText} $currencySymbol",
                     style = MaterialTheme.typography.titleMedium,
                     fontWeight = FontWeight.ExtraBold,
                     color = MaterialTheme.colorScheme.primary
@@ -238,7 +239,7 @@ fun ShopItemRow(
 fun PremiumCreditCard(
     holderName: String,
     cardNumber: String = "**** **** **** 1234",
-    balance: Double,
+    balance: Money,
     modifier: Modifier = Modifier,
     startColor: Color = MaterialTheme.colorScheme.primary,
     endColor: Color = MaterialTheme.colorScheme.secondary,
@@ -298,7 +299,7 @@ fun PremiumCreditCard(
                         color = Color.White.copy(alpha = 0.7f)
                     )
                     Text(
-                        text = "${String.format("%.2f", balance)} $currencySymbol",
+                        text = "${balance.format()} $currencySymbol",
                         style = MaterialTheme.typography.displayLarge,
                         color = Color.White,
                         fontSize = 32.sp
@@ -0,0 +1,159 @@
+package com.faisal.financecalc.ui.model
+
+import androidx.compose.runtime.Immutable
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.data.CreditCard
+import com.faisal.financecalc.data.FinanceEntry
+import com.faisal.financecalc.data.SearchResults
+import com.faisal.financecalc.data.ShopItem
+import com.faisal.financecalc.data.SoldItem
+import kotlinx.collections.immutable.ImmutableList
+import kotlinx.collections.immutable.persistentListOf
+import kotlinx.collections.immutable.toImmutableList
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+
+// What the list rows render. The entities come from Room/Firestore modules the Compose
+// compiler can't see into (and carry plain Lists), so it treats them as unstable and
+// recomposes every row with its parent. These models are built once per change in the
+// ViewModels (on Dispatchers.Default), hold only immutable values and are marked
+// @Immutable, so unchanged rows are skipped.
+// Check build/compose_compiler/app_release-classes.txt after changing them.
+
+@Immutable
+data class SubEntryUi(
+    val name: String,
+    val amountText: String
+)
+
+@Immutable
+data class EntryUi(
+    val key: String,
+    val name: String,
+    val category: String,
+    val dateText: String,
+    val amount: Money,
+    val amountText: String,
+    val isIncome: Boolean,
+    val excludedFromTotal: Boolean,
+    val isAutoCalculated: Boolean,
+    val subEntries: ImmutableList<SubEntryUi>,
+    val source: FinanceEntry // Handed back to edit/delete callbacks, never read while rendering
+)
+
+@Immutable
+data class ShopItemUi(
+    val key: String,
+    val name: String,
+    val category: String,
+    val count: Int,
+    val purchasePriceText: String,
+    val totalValue: Money,
+    val totalValueText: String,
+    val source: ShopItem
+)
+
+@Immutable
+data class CreditCardUi(
+    val key: String,
+    val holderName: String,
+    val numberText: String,
+    val expiryDate: String,
+    val cardType: String,
+    val colorTheme: Int,
+    val source: CreditCard
+)
+
+// One search hit; type is set for ledger entries and picks the list that holds them
+@Immutable
+data class SearchResultUi(
+    val key: String,
+    val title: String,
+    val detail: String,
+    val amountText: String,
+    val type: EntryType? = null
+)
+
+@Immutable
+data class SearchResultsUi(
+    val entries: ImmutableList<SearchResultUi>,
+    val shopItems: ImmutableList<SearchResultUi>,
+    val soldItems: ImmutableList<SearchResultUi>
+) {
+    val isEmpty: Boolean get() = entries.isEmpty() && shopItems.isEmpty() && soldItems.isEmpty()
+
+    companion object {
+        val EMPTY = SearchResultsUi(persistentListOf(), persistentListOf(), persistentListOf())
+    }
+}
+
+// ========== Mapping ==========
+
+private val dateFormat = ThreadLocal.withInitial { SimpleDateFormat("dd/MM/yyyy", Locale.getDefault()) }
+
+fun FinanceEntry.toUi(): EntryUi = EntryUi(
+    key = docId,
+    name = name,
+    category = category,
+    dateText = dateFormat.get().format(Date(dateTimestamp)),
+    amount = amount,
+    amountText = amount.toPlainString(),
+    isIncome = type == EntryType.INCOME,
+    excludedFromTotal = excludedFromTotal,
+    isAutoCalculated = isAutoCalculated,
+    subEntries = subEntries.map { SubEntryUi(it.name, it.amount.toPlainString()) }.toImmutableList(),
+    source = this
+)
+
+fun ShopItem.toUi(): ShopItemUi = ShopItemUi(
+    key = docId,
+    name = name,
+    category = category,
+    count = count,
+    purchasePriceText = purchasePrice.toPlainString(),
+    totalValue = stockValue,
+    totalValueText = stockValue.format(),
+    source = this
+)
+
+fun CreditCard.toUi(): CreditCardUi = CreditCardUi(
+    key = docId,
+    holderName = holderName,
+    // Groups of 4 with spacing: "1234   5678   1234   5678"
+    numberText = if (cardNumber.length > 4) cardNumber.chunked(4).joinToString("   ") else "****  ****  ****  $cardNumber",
+    expiryDate = expiryDate,
+    cardType = cardType.uppercase(),
+    colorTheme = colorTheme,
+    source = this
+)
+
+fun List<FinanceEntry>.toEntryUis(): ImmutableList<EntryUi> = map { it.toUi() }.toImmutableList()
+
+fun List<ShopItem>.toShopItemUis(): ImmutableList<ShopItemUi> = map { it.toUi() }.toImmutableList()
+
+fun List<CreditCard>.toCreditCardUis(): ImmutableList<CreditCardUi> = map { it.toUi() }.toImmutableList()
+
+fun SearchResults.toUi(): SearchResultsUi = SearchResultsUi(
+    entries = entries.map { entry ->
+        SearchResultUi(
+            key = entry.docId,
+            title = entry.name,
+            detail = "${entry.category} · ${dateFormat.get().format(Date(entry.dateTimestamp))}",
+            amountText = entry.amount.format(),
+            type = entry.type
+        )
+    }.toImmutableList(),
+    shopItems = shopItems.map { item ->
+        SearchResultUi(key = item.docId, title = item.name, detail = "${item.category} · ${item.count}x", amountText = item.stockValue.format())
+    }.toImmutableList(),
+    soldItems = soldItems.map { it.toSearchResult() }.toImmutableList()
+)
+
+private fun SoldItem.toSearchResult() = SearchResultUi(
+    key = docId,
+    title = name,
+    detail = if (dateTimestamp > 0) dateFormat.get().format(Date(dateTimestamp)) else "%02d/%d".format(month, year),
+    amountText = profit.format()
+)
@@ -16,18 +16,27 @@ import androidx.compose.material3.*
 import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
+import androidx.compose.ui.platform.testTag
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.input.KeyboardType
 import androidx.compose.ui.unit.dp
-import com.faisal.financecalc.data.EntryType
+import androidx.paging.LoadState
+import androidx.paging.compose.LazyPagingItems
+import androidx.paging.compose.collectAsLazyPagingItems
+import androidx.paging.compose.itemKey
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.sumOfMoney
 import com.faisal.financecalc.data.FinanceEntry
 import com.faisal.financecalc.ui.components.EntryRow
-import com.faisal.financecalc.viewmodel.MainViewModel
+import com.faisal.financecalc.ui.model.EntryUi
+import com.faisal.financecalc.viewmodel.LedgerViewModel
+import kotlinx.collections.immutable.ImmutableList
 
 @Composable
 fun FinanceListScreen(
     title: String,
-    entries: List<FinanceEntry>,
+    entries: ImmutableList<EntryUi>,
     type: EntryType,
     onAdd: (FinanceEntry) -> Unit,
     onEdit: (FinanceEntry, FinanceEntry?) -> Unit,
@@ -37,7 +46,7 @@ fun FinanceListScreen(
     var showDialog by remember { mutableStateOf(false) }
     var currentEntry by remember { mutableStateOf<FinanceEntry?>(null) }
 
-    val totalAmount = entries.filter { !it.excludedFromTotal }.sumOf { it.amount }
+    val totalAmount = remember(entries) { entries.filter { !it.excludedFromTotal }.sumOfMoney { it.amount } }
     // Using Green for INCOME and DEBT (as requested "Plus")
     val isPositive = type == EntryType.INCOME || type == EntryType.DEBT
     val color = if (isPositive) com.faisal.financecalc.ui.theme.SuccessGreen else androidx.compose.material3.MaterialTheme.colorScheme.error
@@ -78,17 +87,18 @@ fun FinanceListScreen(
             Spacer(modifier = Modifier.height(8.dp))
             
             LazyColumn(
+                modifier = Modifier.testTag("entry_list"),
                 contentPadding = PaddingValues(bottom = 80.dp)
             ) {
-                items(entries) { entry ->
+                items(entries, key = { it.key }) { entry ->
                     EntryRow(
                         entry = entry,
                         onEdit = { 
-                            currentEntry = entry
+                            currentEntry = entry.source
                             showDialog = true 
                         },
                         onDelete = { 
-                            entryToDelete = entry
+                            entryToDelete = entry.source
                             showDeleteDialog = true
                         }
                     )
@@ -144,7 +154,7 @@ fun EntryDialog(
     entry: FinanceEntry?,
     type: EntryType,
     onDismiss: () -> Unit,
-    onConfirm: (String, Double, String, List<com.faisal.financecalc.data.SubEntry>, Boolean) -> Unit,
+    onConfirm: (String, Money, String, List<com.faisal.financecalc.data.SubEntry>, Boolean) -> Unit,
     onHistoryClick: (() -> Unit)? = null
 ) {
     var name by remember { mutableStateOf(entry?.name ?: "") }
@@ -156,12 +166,12 @@ fun EntryDialog(
     }}
     
     // Calculate total from sub-entries if any exist, otherwise use manual input
-    var manualAmount by remember { mutableStateOf(entry?.let { if (it.amount == 0.0) "" else if (it.amount % 1.0 == 0.0) it.amount.toInt().toString() else it.amount.toString() } ?: "") }
+    var manualAmount by remember { mutableStateOf(entry?.amount?.toInputText() ?: "") }
     
-    val calculatedTotal = subEntriesList.sumOf { it.amount }
+    val calculatedTotal = subEntriesList.sumOfMoney { it.amount }
     val isSplitBooking = subEntriesList.isNotEmpty()
     
-    val finalAmount = if (isSplitBooking) calculatedTotal else manualAmount.toDoubleOrNull() ?: 0.0
+    val finalAmount = if (isSplitBooking) calculatedTotal else Money.parse(manualAmount) ?: Money.ZERO
 
     var excludedFromTotal by remember { mutableStateOf(entry?.excludedFromTotal ?: false) }
 
@@ -242,8 +252,8 @@ fun EntryDialog(
                         )
                         Spacer(modifier = Modifier.width(8.dp))
                         OutlinedTextField(
-                            value = if (subEntry.amount == 0.0) "" else if (subEntry.amount % 1.0 == 0.0) subEntry.amount.toInt().toString() else subEntry.amount.toString(),
-                            onValueChange = { subEntriesList[index] = subEntry.copy(amount = it.toDoubleOrNull() ?: 0.0) },
+                            value = subEntry.amount.toInputText(),
+                            onValueChange = { subEntriesList[index] = subEntry.copy(amount = Money.parse(it) ?: Money.ZERO) },
                             label = { Text("€") },
                             modifier = Modifier.width(80.dp),
                             keyboardOptions = KeyboardOptions(keyboardType = KeyboardType.Number),
@@ -289,7 +299,7 @@ fun EntryDialog(
 
 @Composable
 fun FinanceListScreen(
-    viewModel: MainViewModel,
+    viewModel: LedgerViewModel,
     type: EntryType,
     title: String
 ) {
@@ -297,7 +307,7 @@ fun FinanceListScreen(
         EntryType.INCOME -> viewModel.incomeEntries
         EntryType.EXPENSE -> viewModel.expenseEntries
         EntryType.DEBT -> viewModel.debtEntries
-    }.collectAsState(initial = emptyList())
+    }.collectAsState()
 
     var showingHistoryEntry by remember { mutableStateOf<FinanceEntry?>(null) }
 
@@ -312,7 +322,8 @@ fun FinanceListScreen(
     )
 
     if (showingHistoryEntry != null) {
-        val history by viewModel.getEntryHistory(showingHistoryEntry!!.id).collectAsState(initial = emptyList())
+        val entryId = showingHistoryEntry!!.id
+        val history = remember(entryId) { viewModel.getEntryHistory(entryId) }.collectAsLazyPagingItems()
         HistoryDialog(
             history = history,
             onDismiss = { showingHistoryEntry = null }
@@ -322,18 +333,19 @@ fun FinanceListScreen(
 
 @Composable
 fun HistoryDialog(
-    history: List<com.faisal.financecalc.data.HistoryEntry>,
+    history: LazyPagingItems<com.faisal.financecalc.data.HistoryEntry>,
     onDismiss: () -> Unit
 ) {
     AlertDialog(
         onDismissRequest = onDismiss,
         title = { Text("Edit History") },
         text = {
-            if (history.isEmpty()) {
+            if (history.itemCount == 0 && history.loadState.refresh is LoadState.NotLoading) {
                 Text("No changes recorded.")
             } else {
                 LazyColumn(modifier = Modifier.heightIn(max = 300.dp)) {
-                    items(history) { h ->
+                    items(count = history.itemCount, key = history.itemKey { it.docId }) { index ->
+                        val h = history[index] ?: return@items
                         Column(modifier = Modifier.padding(vertical = 4.dp)) {
                             Text(
                                 text = java.text.SimpleDateFormat("dd/MM/yyyy HH:mm").format(java.util.Date(h.dateTimestamp)),
@@ -19,6 +19,7 @@ import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.clip
 import androidx.compose.ui.draw.rotate
+import androidx.compose.ui.platform.testTag
 import androidx.compose.ui.graphics.Brush
 import androidx.compose.ui.graphics.Color
 import androidx.compose.ui.graphics.vector.ImageVector
@@ -26,14 +27,17 @@ import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.input.KeyboardType
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
+import com.faisal.financecalc.core.Money
 import com.faisal.financecalc.data.CreditCard
-import com.faisal.financecalc.data.EntryType
-import com.faisal.financecalc.viewmodel.MainViewModel
+import com.faisal.financecalc.data.SyncStatus
+import com.faisal.financecalc.ui.model.CreditCardUi
 import com.faisal.financecalc.ui.theme.LocalAppStrings
+import com.faisal.financecalc.viewmodel.DashboardViewModel
 
 @Composable
 fun PremiumDashboardScreen(
-    viewModel: MainViewModel,
+    viewModel: DashboardViewModel,
+    currencySymbol: String,
     onNavigateToIncome: () -> Unit,
     onNavigateToExpenses: () -> Unit,
     onNavigateToCards: () -> Unit, // Reusing this for generic Card nav if needed, but managing cards here now.
@@ -42,19 +46,14 @@ fun PremiumDashboardScreen(
     val balance by viewModel.balance.collectAsState()
     val totalIncome by viewModel.totalIncome.collectAsState()
     val totalExpense by viewModel.totalExpense.collectAsState()
-    val allEntries by viewModel.allEntries.collectAsState()
+    val recentTransactions by viewModel.recentTransactions.collectAsState()
     val allCards by viewModel.allCreditCards.collectAsState()
-    val currencySymbol by viewModel.currencySymbol.collectAsState()
+    val syncStatus by viewModel.syncStatus.collectAsState()
     
     val strings = LocalAppStrings.current
     
     var showAddCardDialog by remember { mutableStateOf(false) }
 
-    // Recent transactions (last 5)
-    val recentTransactions = remember(allEntries) {
-        allEntries.take(5)
-    }
-
     Scaffold(
         containerColor = MaterialTheme.colorScheme.background,
         // FAB removed as per user request
@@ -63,7 +62,8 @@ fun PremiumDashboardScreen(
             modifier = Modifier
                 .fillMaxSize()
                 .padding(padding)
-                .padding(horizontal = 24.dp),
+                .padding(horizontal = 24.dp)
+                .testTag("dashboard"),
             verticalArrangement = Arrangement.spacedBy(24.dp)
         ) {
             item { Spacer(modifier = Modifier.height(16.dp)) }
@@ -104,6 +104,10 @@ fun PremiumDashboardScreen(
                 }
             }
 
+            if (!syncStatus.isSynced) {
+                item { SyncStatusChip(syncStatus) }
+            }
+
             // Main Balance Card
             item {
                 MainBalanceCard(
@@ -140,10 +144,10 @@ fun PremiumDashboardScreen(
                     horizontalArrangement = Arrangement.spacedBy(16.dp),
                     modifier = Modifier.fillMaxWidth()
                 ) {
-                    items(allCards) { card ->
+                    items(allCards, key = { it.key }) { card ->
                         DynamicCreditCardItem(
                             card = card,
-                            onDelete = { viewModel.deleteCreditCard(card) }
+                            onDelete = { viewModel.deleteCreditCard(card.source) }
                         )
                     }
                     
@@ -175,12 +179,12 @@ fun PremiumDashboardScreen(
                 }
             }
 
-            items(recentTransactions) { entry ->
+            items(recentTransactions, key = { it.key }) { entry ->
                 TransactionRow(
                     title = entry.name,
                     subtitle = entry.category,
                     amount = entry.amount,
-                    isIncome = entry.type == EntryType.INCOME,
+                    isIncome = entry.isIncome,
                     currencySymbol = currencySymbol
                 )
             }
@@ -198,7 +202,7 @@ fun PremiumDashboardScreen(
                         holderName = holder,
                         cardNumber = number,
                         expiryDate = expiry,
-                        balance = 0.0,
+                        balance = Money.ZERO,
                         cardType = "VISA",
                         colorTheme = colorIdx
                     )
@@ -304,7 +308,7 @@ fun AddCardButton(onClick: () -> Unit) {
 
 @Composable
 fun DynamicCreditCardItem(
-    card: CreditCard,
+    card: CreditCardUi,
     onDelete: () -> Unit
 ) {
     var showDeleteDialog by remember { mutableStateOf(false) }
@@ -411,10 +415,8 @@ fun DynamicCreditCardItem(
                 Spacer(modifier = Modifier.height(10.dp))
 
                 // Row 3: Card Number
-                // Add spacing for groups of 4: "1234 5678 1234 5678"
-                val formattedNumber = card.cardNumber.chunked(4).joinToString("   ")
                 Text(
-                    text = if(card.cardNumber.length > 4) formattedNumber else "****  ****  ****  ${card.cardNumber}",
+                    text = card.numberText,
                     style = MaterialTheme.typography.titleLarge.copy(
                         fontFamily = androidx.compose.ui.text.font.FontFamily.Monospace,
                         shadow = androidx.compose.ui.graphics.Shadow(
@@ -470,7 +472,7 @@ fun DynamicCreditCardItem(
 
                     // VISA Logo Placeholder (Text styled)
                     Text(
-                        card.cardType.uppercase(),
+                        card.cardType,
                         style = MaterialTheme.typography.titleLarge,
                         fontWeight = FontWeight.ExtraBold,
                         color = Color.White.copy(alpha = 0.9f),
@@ -512,10 +514,10 @@ fun EmvChip() {
 // ... MainBalanceCard and TransactionRow remain same as previous step
 @Composable
 fun MainBalanceCard(
-    balance: Double,
+    balance: Money?, // null while loading
     currencySymbol: String,
-    income: Double,
-    expense: Double,
+    income: Money?,
+    expense: Money?,
     onAdd: () -> Unit,
     onSend: () -> Unit
 ) {
@@ -552,7 +554,7 @@ fun MainBalanceCard(
                     )
                     Spacer(modifier = Modifier.height(4.dp))
                     Text(
-                        text = "${String.format("%.2f", balance)} $currencySymbol",
+                        text = "${balance?.format() ?: "–"} $currencySymbol",
                         style = MaterialTheme.typography.displayMedium,
                         fontWeight = FontWeight.Bold,
                         color = Color.White
@@ -575,7 +577,7 @@ fun MainBalanceCard(
                              )
                          }
                          Text(
-                             text = "+${String.format("%.0f", income)}",
+                             text = "+${income?.format(0) ?: "–"}",
                              style = MaterialTheme.typography.bodyLarge,
                              fontWeight = FontWeight.SemiBold,
                              color = Color.White
@@ -592,7 +594,7 @@ fun MainBalanceCard(
                              )
                          }
                          Text(
-                             text = "-${String.format("%.0f", expense)}",
+                             text = "-${expense?.format(0) ?: "–"}",
                              style = MaterialTheme.typography.bodyLarge,
                              fontWeight = FontWeight.SemiBold,
                              color = Color.White
@@ -605,11 +607,36 @@ fun MainBalanceCard(
 }
 
 
+// Shown while the figures come from the local copy only
+@Composable
+fun SyncStatusChip(status: SyncStatus) {
+    val (icon, text) = if (status.fromCache) {
+        Icons.Default.CloudOff to "From cache, waiting for server"
+    } else {
+        Icons.Default.CloudUpload to "${status.pendingWrites} change(s) waiting to sync"
+    }
+    Row(
+        modifier = Modifier
+            .clip(RoundedCornerShape(12.dp))
+            .background(MaterialTheme.colorScheme.surfaceVariant)
+            .padding(horizontal = 12.dp, vertical = 6.dp),
+        verticalAlignment = Alignment.CenterVertically
+    ) {
+        Icon(icon, contentDescription = null, tint = MaterialTheme.colorScheme.onSurfaceVariant, modifier = Modifier.size(16.dp))
+        Spacer(modifier = Modifier.width(6.dp))
+        Text(
+            text = text,
+            style = MaterialTheme.typography.labelMedium,
+            color = MaterialTheme.colorScheme.onSurfaceVariant
+        )
+    }
+}
+
 @Composable
 fun TransactionRow(
     title: String,
     subtitle: String,
-    amount: Double,
+    amount: Money,
     isIncome: Boolean,
     currencySymbol: String
 ) {
@@ -651,7 +678,7 @@ fun TransactionRow(
         }
         
         Text(
-            text = "${if (isIncome) "+" else "-"}${String.format("%.2f", amount)} $currencySymbol",
+            text = "${if (isIncome) "+" else "-"}${amount.format()} $currencySymbol",
             style = MaterialTheme.typography.titleMedium,
             fontWeight = FontWeight.Bold,
             color = if (isIncome) Color(0xFF2E7D32) else MaterialTheme.colorScheme.error
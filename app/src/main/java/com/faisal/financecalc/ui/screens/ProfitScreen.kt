@@ -16,22 +16,28 @@ import androidx.compose.ui.Modifier
 import androidx.compose.ui.graphics.Color
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
+import androidx.paging.LoadState
+import androidx.paging.compose.collectAsLazyPagingItems
+import androidx.paging.compose.itemKey
+import com.faisal.financecalc.core.Money
 import com.faisal.financecalc.ui.components.SummaryCard
-import com.faisal.financecalc.viewmodel.MainViewModel
+import com.faisal.financecalc.viewmodel.ProfitViewModel
 
 @Composable
-fun ProfitScreen(viewModel: MainViewModel) {
+fun ProfitScreen(viewModel: ProfitViewModel) {
     val monthlyProfits by viewModel.monthlyProfits.collectAsState(initial = emptyList())
-    val soldItems by viewModel.allSoldItems.collectAsState(initial = emptyList())
+    val bulkProgress by viewModel.bulkProgress.collectAsState()
     
-    // Current Month Logic
-    val calendar = java.util.Calendar.getInstance()
-    val currentMonth = calendar.get(java.util.Calendar.MONTH) + 1
-    val currentYear = calendar.get(java.util.Calendar.YEAR)
+    // Current Month Logic (rolls over on the 1st without leaving the screen)
+    val yearMonth by viewModel.currentMonth.collectAsState()
+    val currentMonth = yearMonth.monthValue
+    val currentYear = yearMonth.year
 
-    // Filter for current month
-    val currentMonthItems = soldItems.filter { it.month == currentMonth && it.year == currentYear }
-    val currentMonthProfit = currentMonthItems.sumOf { it.profit }
+    // Current month's sales are paged from the store, the total comes from the month index
+    val currentMonthItems = remember(currentMonth, currentYear) {
+        viewModel.soldItemsForMonth(currentMonth, currentYear)
+    }.collectAsLazyPagingItems()
+    val currentMonthProfit by viewModel.currentMonthProfit.collectAsState()
 
     var showManualProfitDialog by remember { mutableStateOf(false) }
     var showHistoryDetailDialog by remember { mutableStateOf(false) }
@@ -73,7 +79,7 @@ fun ProfitScreen(viewModel: MainViewModel) {
             Spacer(modifier = Modifier.height(16.dp))
             
             // Current Month Breakdown
-            if (currentMonthItems.isNotEmpty() || true) { // Always show header to allow adding even if empty
+            if (currentMonthItems.itemCount > 0 || true) { // Always show header to allow adding even if empty
                 Row(
                     modifier = Modifier.fillMaxWidth(),
                     horizontalArrangement = Arrangement.SpaceBetween,
@@ -91,7 +97,8 @@ fun ProfitScreen(viewModel: MainViewModel) {
                     modifier = Modifier.fillMaxWidth().heightIn(max = 250.dp) // Slightly taller
                 ) {
                     LazyColumn(modifier = Modifier.padding(8.dp)) {
-                        items(currentMonthItems) { item ->
+                        items(count = currentMonthItems.itemCount, key = currentMonthItems.itemKey { it.docId }) { index ->
+                             val item = currentMonthItems[index] ?: return@items
                              Row(
                                 modifier = Modifier
                                     .fillMaxWidth()
@@ -111,7 +118,7 @@ fun ProfitScreen(viewModel: MainViewModel) {
                                 
                                 Row(verticalAlignment = Alignment.CenterVertically) {
                                     Text(
-                                        "+${String.format("%.2f", item.profit)} €", 
+                                        "+${item.profit.format()} €", 
                                         style = MaterialTheme.typography.bodyMedium, 
                                         fontWeight = FontWeight.Bold, 
                                         color = com.faisal.financecalc.ui.theme.SuccessGreen
@@ -147,6 +154,14 @@ fun ProfitScreen(viewModel: MainViewModel) {
             Text("All History", style = MaterialTheme.typography.titleLarge, fontWeight = FontWeight.Bold)
             Spacer(modifier = Modifier.height(12.dp))
 
+            // Shown while a reset is committing its batches
+            bulkProgress?.let { progress ->
+                LinearProgressIndicator(
+                    progress = progress.fraction,
+                    modifier = Modifier.fillMaxWidth().padding(bottom = 12.dp)
+                )
+            }
+
             LazyColumn(
                 contentPadding = PaddingValues(bottom = 80.dp)
             ) {
@@ -192,7 +207,7 @@ fun ProfitScreen(viewModel: MainViewModel) {
                                 )
                             }
                             Text(
-                                "${String.format("%.2f", history.profit)} €", 
+                                "${history.profit.format()} €", 
                                 style = MaterialTheme.typography.headlineSmall, 
                                 fontWeight = FontWeight.Bold, 
                                 color = com.faisal.financecalc.ui.theme.SuccessGreen
@@ -253,15 +268,15 @@ fun ProfitScreen(viewModel: MainViewModel) {
 
     if (showHistoryDetailDialog && selectedMonthYear != null) {
         val (m, y) = selectedMonthYear!!
-        val monthlyItems = soldItems.filter { it.month == m && it.year == y }
-        val totalMonthProfit = monthlyItems.sumOf { it.profit }
+        val monthlyItems = remember(m, y) { viewModel.soldItemsForMonth(m, y) }.collectAsLazyPagingItems()
+        val totalMonthProfit by remember(m, y) { viewModel.profitForMonth(m, y) }.collectAsState(initial = Money.ZERO)
         
         AlertDialog(
             onDismissRequest = { showHistoryDetailDialog = false },
             title = { 
                 Column {
                     Text("Sales Breakdown $m/$y")
-                    Text("Total: ${String.format("%.2f", totalMonthProfit)} €", style = MaterialTheme.typography.titleMedium, color = com.faisal.financecalc.ui.theme.SuccessGreen)
+                    Text("Total: ${totalMonthProfit.format()} €", style = MaterialTheme.typography.titleMedium, color = com.faisal.financecalc.ui.theme.SuccessGreen)
                 }
             },
             text = {
@@ -269,7 +284,8 @@ fun ProfitScreen(viewModel: MainViewModel) {
                     Text("Sold Items:", style = MaterialTheme.typography.labelSmall)
                     Spacer(modifier = Modifier.height(8.dp))
                     LazyColumn(modifier = Modifier.heightIn(max = 300.dp)) {
-                        items(monthlyItems) { item ->
+                        items(count = monthlyItems.itemCount, key = monthlyItems.itemKey { it.docId }) { index ->
+                            val item = monthlyItems[index] ?: return@items
                             Row(
                                 modifier = Modifier.fillMaxWidth().padding(vertical = 8.dp),
                                 horizontalArrangement = Arrangement.SpaceBetween,
@@ -277,7 +293,7 @@ fun ProfitScreen(viewModel: MainViewModel) {
                             ) {
                                 Column(modifier = Modifier.weight(1f)) {
                                     Text(item.name, fontWeight = FontWeight.Bold, style = MaterialTheme.typography.bodyMedium)
-                                    Text("Profit: ${String.format("%.2f", item.profit)} €", style = MaterialTheme.typography.bodySmall, color = com.faisal.financecalc.ui.theme.SuccessGreen)
+                                    Text("Profit: ${item.profit.format()} €", style = MaterialTheme.typography.bodySmall, color = com.faisal.financecalc.ui.theme.SuccessGreen)
                                 }
                                 Row {
                                     IconButton(onClick = { editingItem = item }) {
@@ -290,7 +306,7 @@ fun ProfitScreen(viewModel: MainViewModel) {
                             }
                             Divider(color = MaterialTheme.colorScheme.outlineVariant)
                         }
-                        if (monthlyItems.isEmpty()) {
+                        if (monthlyItems.itemCount == 0 && monthlyItems.loadState.refresh is LoadState.NotLoading) {
                             item { Text("No items found.") }
                         }
                     }
@@ -343,7 +359,7 @@ fun ProfitScreen(viewModel: MainViewModel) {
 @Composable
 fun ManualProfitDialog(
     onDismiss: () -> Unit,
-    onConfirm: (Double, Int, Int, String) -> Unit
+    onConfirm: (Money, Int, Int, String) -> Unit
 ) {
     var name by remember { mutableStateOf("") }
     var profitAmount by remember { mutableStateOf("") }
@@ -398,7 +414,7 @@ fun ManualProfitDialog(
         },
         confirmButton = {
             TextButton(onClick = {
-                val p = profitAmount.toDoubleOrNull()
+                val p = Money.parse(profitAmount)
                 val m = month.toIntOrNull()
                 val y = year.toIntOrNull()
                 if (p != null && m != null && y != null) {
@@ -420,10 +436,10 @@ fun ManualProfitDialog(
 fun EditProfitDialog(
     item: com.faisal.financecalc.data.SoldItem,
     onDismiss: () -> Unit,
-    onConfirm: (Double, Int, Int, String) -> Unit
+    onConfirm: (Money, Int, Int, String) -> Unit
 ) {
     var name by remember { mutableStateOf(item.name) }
-    var profitAmount by remember { mutableStateOf(if (item.profit == 0.0) "" else if (item.profit % 1.0 == 0.0) item.profit.toInt().toString() else item.profit.toString()) }
+    var profitAmount by remember { mutableStateOf(item.profit.toInputText()) }
     var month by remember { mutableStateOf(item.month.toString()) }
     var year by remember { mutableStateOf(item.year.toString()) }
 
@@ -468,7 +484,7 @@ fun EditProfitDialog(
         },
         confirmButton = {
             TextButton(onClick = {
-                val p = profitAmount.toDoubleOrNull()
+                val p = Money.parse(profitAmount)
                 val m = month.toIntOrNull()
                 val y = year.toIntOrNull()
                 if (p != null && m != null && y != null) {
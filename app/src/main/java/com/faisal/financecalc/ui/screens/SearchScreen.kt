@@ -0,0 +1,114 @@
+package com.faisal.financecalc.ui.screens
+
+import androidx.compose.foundation.clickable
+import androidx.compose.foundation.layout.*
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.LazyListScope
+import androidx.compose.foundation.lazy.items
+import androidx.compose.material.icons.Icons
+import androidx.compose.material.icons.filled.Clear
+import androidx.compose.material.icons.filled.Search
+import androidx.compose.material3.*
+import androidx.compose.runtime.*
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.focus.FocusRequester
+import androidx.compose.ui.focus.focusRequester
+import androidx.compose.ui.platform.testTag
+import androidx.compose.ui.text.font.FontWeight
+import androidx.compose.ui.text.style.TextOverflow
+import androidx.compose.ui.unit.dp
+import com.faisal.financecalc.ui.model.SearchResultUi
+import com.faisal.financecalc.viewmodel.SearchViewModel
+import kotlinx.collections.immutable.ImmutableList
+
+// Global search over entries, inventory and sales (FTS index, see SearchIndex.kt)
+@Composable
+fun SearchScreen(
+    viewModel: SearchViewModel,
+    onOpenEntry: (SearchResultUi) -> Unit,
+    onOpenShopItem: (SearchResultUi) -> Unit,
+    onOpenSale: (SearchResultUi) -> Unit
+) {
+    val query by viewModel.query.collectAsState()
+    val results by viewModel.results.collectAsState()
+    val focusRequester = remember { FocusRequester() }
+
+    LaunchedEffect(Unit) { focusRequester.requestFocus() }
+
+    Column(
+        modifier = Modifier
+            .fillMaxSize()
+            .padding(16.dp)
+    ) {
+        OutlinedTextField(
+            value = query,
+            onValueChange = viewModel::setQuery,
+            placeholder = { Text("Search entries, items and sales") },
+            leadingIcon = { Icon(Icons.Default.Search, contentDescription = null) },
+            trailingIcon = {
+                if (query.isNotEmpty()) {
+                    IconButton(onClick = { viewModel.setQuery("") }) {
+                        Icon(Icons.Default.Clear, contentDescription = "Clear")
+                    }
+                }
+            },
+            singleLine = true,
+            modifier = Modifier
+                .fillMaxWidth()
+                .focusRequester(focusRequester)
+                .testTag("search_field")
+        )
+
+        Spacer(modifier = Modifier.height(8.dp))
+
+        if (query.isNotBlank() && results.isEmpty) {
+            Text(
+                "No results",
+                style = MaterialTheme.typography.bodyMedium,
+                color = MaterialTheme.colorScheme.onSurfaceVariant,
+                modifier = Modifier.padding(vertical = 16.dp)
+            )
+        }
+
+        LazyColumn(modifier = Modifier.fillMaxSize().testTag("search_results")) {
+            resultSection("Entries", results.entries, onOpenEntry)
+            resultSection("Inventory", results.shopItems, onOpenShopItem)
+            resultSection("Sales", results.soldItems, onOpenSale)
+        }
+    }
+}
+
+private fun LazyListScope.resultSection(title: String, results: ImmutableList<SearchResultUi>, onClick: (SearchResultUi) -> Unit) {
+    if (results.isEmpty()) return
+    item(key = "header_$title") {
+        Text(
+            title,
+            style = MaterialTheme.typography.titleSmall,
+            fontWeight = FontWeight.Bold,
+            color = MaterialTheme.colorScheme.primary,
+            modifier = Modifier.padding(top = 16.dp, bottom = 4.dp)
+        )
+    }
+    items(results, key = { "${title}_${it.key}" }) { result ->
+        SearchResultRow(result, onClick)
+    }
+}
+
+@Composable
+private fun SearchResultRow(result: SearchResultUi, onClick: (SearchResultUi) -> Unit) {
+    Row(
+        modifier = Modifier
+            .fillMaxWidth()
+            .clickable { onClick(result) }
+            .padding(vertical = 10.dp),
+        verticalAlignment = Alignment.CenterVertically
+    ) {
+        Column(modifier = Modifier.weight(1f)) {
+            Text(result.title, style = MaterialTheme.typography.bodyLarge, maxLines = 1, overflow = TextOverflow.Ellipsis)
+            Text(result.detail, style = MaterialTheme.typography.bodySmall, color = MaterialTheme.colorScheme.onSurfaceVariant, maxLines = 1)
+        }
+        Spacer(modifier = Modifier.width(8.dp))
+        Text(result.amountText, style = MaterialTheme.typography.bodyMedium, fontWeight = FontWeight.SemiBold)
+    }
+}
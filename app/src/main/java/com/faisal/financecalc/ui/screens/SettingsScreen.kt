@@ -1,5 +1,8 @@
 package com.faisal.financecalc.ui.screens
 
+import android.net.Uri
+import androidx.activity.compose.rememberLauncherForActivityResult
+import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.clickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.material.icons.Icons
@@ -7,23 +10,44 @@ import androidx.compose.material.icons.filled.ArrowDropDown
 import androidx.compose.material.icons.filled.Check
 import androidx.compose.material.icons.filled.Language
 import androidx.compose.material.icons.filled.AttachMoney
+import androidx.compose.material.icons.filled.FactCheck
+import androidx.compose.material.icons.filled.Backup
+import androidx.compose.material.icons.filled.Restore
+import androidx.compose.material.icons.filled.UploadFile
 import androidx.compose.material3.*
 import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.text.font.FontWeight
+import androidx.compose.ui.text.input.KeyboardType
 import androidx.compose.ui.unit.dp
+import com.faisal.financecalc.core.ImportTarget
+import com.faisal.financecalc.core.StatementRules
 import com.faisal.financecalc.viewmodel.MainViewModel
+import com.faisal.financecalc.viewmodel.SettingsViewModel
 
 @Composable
-fun SettingsScreen(viewModel: MainViewModel) {
+fun SettingsScreen(viewModel: MainViewModel, settingsViewModel: SettingsViewModel) {
     val currency by viewModel.currencySymbol.collectAsState()
     val language by viewModel.appLanguage.collectAsState()
     val isDarkMode by viewModel.isDarkMode.collectAsState()
+    val correctedRollups by settingsViewModel.correctedRollups.collectAsState()
+    val importRunning by settingsViewModel.importRunning.collectAsState()
+    val importResult by settingsViewModel.importResult.collectAsState()
+    val backupRunning by settingsViewModel.backupRunning.collectAsState()
+    val backupInfo by settingsViewModel.backupInfo.collectAsState()
+    val restoredCount by settingsViewModel.restoredCount.collectAsState()
     val strings = com.faisal.financecalc.ui.theme.LocalAppStrings.current
 
     var showCurrencyDialog by remember { mutableStateOf(false) }
     var showLanguageDialog by remember { mutableStateOf(false) }
+    var statementUri by remember { mutableStateOf<Uri?>(null) }
+    var showRestoreDialog by remember { mutableStateOf(false) }
+
+    // Storage Access Framework picker; the column rules are asked for once a file is chosen
+    val pickStatement = rememberLauncherForActivityResult(ActivityResultContracts.OpenDocument()) { uri ->
+        statementUri = uri
+    }
 
     Column(
         modifier = Modifier
@@ -87,6 +111,135 @@ fun SettingsScreen(viewModel: MainViewModel) {
              }
              Icon(Icons.Default.ArrowDropDown, contentDescription = null)
         }
+
+        Divider()
+        Spacer(modifier = Modifier.height(16.dp))
+
+        // Data Section
+        Text(strings.dataSection, style = MaterialTheme.typography.titleMedium, color = MaterialTheme.colorScheme.primary)
+        Spacer(modifier = Modifier.height(8.dp))
+
+        // Recomputes the monthly profit rollups from the sold items and fixes differences
+        Row(
+            modifier = Modifier
+                .fillMaxWidth()
+                .clickable { settingsViewModel.verifyProfitRollups() }
+                .padding(vertical = 12.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+             Icon(Icons.Default.FactCheck, contentDescription = null, tint = MaterialTheme.colorScheme.onSurfaceVariant)
+             Spacer(modifier = Modifier.width(16.dp))
+             Column(modifier = Modifier.weight(1f)) {
+                 Text(strings.verifyProfitHistory, style = MaterialTheme.typography.bodyLarge)
+                 correctedRollups?.let { count ->
+                     Text("$count ${strings.monthsCorrected}", style = MaterialTheme.typography.bodyMedium, color = MaterialTheme.colorScheme.onSurfaceVariant)
+                 }
+             }
+        }
+
+        Divider(color = MaterialTheme.colorScheme.outlineVariant.copy(alpha=0.5f))
+
+        // Bank statement import (CSV with column rules, or CAMT.053)
+        Row(
+            modifier = Modifier
+                .fillMaxWidth()
+                .clickable(enabled = !importRunning) {
+                    pickStatement.launch(arrayOf("text/*", "application/xml", "application/octet-stream"))
+                }
+                .padding(vertical = 12.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+             Icon(Icons.Default.UploadFile, contentDescription = null, tint = MaterialTheme.colorScheme.onSurfaceVariant)
+             Spacer(modifier = Modifier.width(16.dp))
+             Column(modifier = Modifier.weight(1f)) {
+                 Text(strings.importStatement, style = MaterialTheme.typography.bodyLarge)
+                 val status = when {
+                     importRunning -> strings.importing
+                     importResult != null -> importResult!!.let {
+                         "${it.imported} ${strings.imported}, ${it.duplicates} ${strings.duplicatesSkipped}" +
+                             if (it.unreadable > 0) ", ${it.unreadable} ${strings.unreadableRows}" else ""
+                     }
+                     else -> strings.importFormats
+                 }
+                 Text(status, style = MaterialTheme.typography.bodyMedium, color = MaterialTheme.colorScheme.onSurfaceVariant)
+             }
+             if (importRunning) {
+                 CircularProgressIndicator(modifier = Modifier.size(20.dp), strokeWidth = 2.dp)
+             }
+        }
+
+        Divider(color = MaterialTheme.colorScheme.outlineVariant.copy(alpha=0.5f))
+
+        // Snapshot backups kept on the device (see BackupManager)
+        Row(
+            modifier = Modifier
+                .fillMaxWidth()
+                .clickable(enabled = !backupRunning) { settingsViewModel.backup() }
+                .padding(vertical = 12.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+             Icon(Icons.Default.Backup, contentDescription = null, tint = MaterialTheme.colorScheme.onSurfaceVariant)
+             Spacer(modifier = Modifier.width(16.dp))
+             Column(modifier = Modifier.weight(1f)) {
+                 Text(strings.backupNow, style = MaterialTheme.typography.bodyLarge)
+                 val status = backupInfo?.let { info ->
+                     val date = java.text.DateFormat.getDateTimeInstance(java.text.DateFormat.MEDIUM, java.text.DateFormat.SHORT)
+                         .format(java.util.Date(info.lastBackup))
+                     "${strings.lastBackup}: $date (${(info.bytes + 1023) / 1024} KB)"
+                 } ?: strings.noBackupYet
+                 Text(status, style = MaterialTheme.typography.bodyMedium, color = MaterialTheme.colorScheme.onSurfaceVariant)
+             }
+             if (backupRunning) {
+                 CircularProgressIndicator(modifier = Modifier.size(20.dp), strokeWidth = 2.dp)
+             }
+        }
+
+        Divider(color = MaterialTheme.colorScheme.outlineVariant.copy(alpha=0.5f))
+
+        Row(
+            modifier = Modifier
+                .fillMaxWidth()
+                .clickable(enabled = !backupRunning && backupInfo != null) { showRestoreDialog = true }
+                .padding(vertical = 12.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+             Icon(Icons.Default.Restore, contentDescription = null, tint = MaterialTheme.colorScheme.onSurfaceVariant)
+             Spacer(modifier = Modifier.width(16.dp))
+             Column {
+                 Text(strings.restoreBackup, style = MaterialTheme.typography.bodyLarge)
+                 restoredCount?.let { count ->
+                     Text("$count ${strings.documentsRestored}", style = MaterialTheme.typography.bodyMedium, color = MaterialTheme.colorScheme.onSurfaceVariant)
+                 }
+             }
+        }
+    }
+
+    if (showRestoreDialog) {
+        AlertDialog(
+            onDismissRequest = { showRestoreDialog = false },
+            title = { Text(strings.restoreBackup) },
+            text = { Text(strings.restoreBackupConfirm) },
+            confirmButton = {
+                TextButton(onClick = {
+                    settingsViewModel.restoreBackup()
+                    showRestoreDialog = false
+                }) { Text(strings.restoreBackup) }
+            },
+            dismissButton = {
+                TextButton(onClick = { showRestoreDialog = false }) { Text(strings.cancel) }
+            }
+        )
+    }
+
+    statementUri?.let { uri ->
+        ImportRulesDialog(
+            initial = remember { settingsViewModel.importRules() },
+            onDismiss = { statementUri = null },
+            onConfirm = { rules ->
+                settingsViewModel.importStatement(uri, rules)
+                statementUri = null
+            }
+        )
     }
 
     // Currency Dialog
@@ -153,3 +306,95 @@ fun SettingsScreen(viewModel: MainViewModel) {
         )
     }
 }
+
+// Column rules for CSV statements, shown as 1-based column numbers. CAMT files ignore them
+// except for the target.
+@Composable
+fun ImportRulesDialog(initial: StatementRules, onDismiss: () -> Unit, onConfirm: (StatementRules) -> Unit) {
+    val strings = com.faisal.financecalc.ui.theme.LocalAppStrings.current
+
+    var dateColumn by remember { mutableStateOf((initial.dateColumn + 1).toString()) }
+    var nameColumn by remember { mutableStateOf((initial.nameColumn + 1).toString()) }
+    var amountColumn by remember { mutableStateOf((initial.amountColumn + 1).toString()) }
+    var categoryColumn by remember { mutableStateOf(if (initial.categoryColumn >= 0) (initial.categoryColumn + 1).toString() else "") }
+    var datePattern by remember { mutableStateOf(initial.datePattern) }
+    var hasHeader by remember { mutableStateOf(initial.hasHeader) }
+    var target by remember { mutableStateOf(initial.target) }
+
+    fun column(text: String): Int? = text.trim().toIntOrNull()?.takeIf { it >= 1 }?.minus(1)
+
+    val date = column(dateColumn)
+    val name = column(nameColumn)
+    val amount = column(amountColumn)
+    val valid = date != null && name != null && amount != null && datePattern.isNotBlank()
+
+    AlertDialog(
+        onDismissRequest = onDismiss,
+        title = { Text(strings.importStatement) },
+        text = {
+            Column(verticalArrangement = Arrangement.spacedBy(8.dp)) {
+                Text(strings.columnsHint, style = MaterialTheme.typography.bodySmall, color = MaterialTheme.colorScheme.onSurfaceVariant)
+                Row(horizontalArrangement = Arrangement.spacedBy(8.dp)) {
+                    ColumnField(strings.dateColumn, dateColumn, Modifier.weight(1f)) { dateColumn = it }
+                    ColumnField(strings.name, nameColumn, Modifier.weight(1f)) { nameColumn = it }
+                }
+                Row(horizontalArrangement = Arrangement.spacedBy(8.dp)) {
+                    ColumnField(strings.amountColumn, amountColumn, Modifier.weight(1f)) { amountColumn = it }
+                    ColumnField(strings.categoryColumn, categoryColumn, Modifier.weight(1f)) { categoryColumn = it }
+                }
+                OutlinedTextField(
+                    value = datePattern,
+                    onValueChange = { datePattern = it },
+                    label = { Text(strings.dateFormat) },
+                    singleLine = true,
+                    modifier = Modifier.fillMaxWidth()
+                )
+                Row(verticalAlignment = Alignment.CenterVertically) {
+                    Text(strings.firstRowIsHeader, modifier = Modifier.weight(1f))
+                    Switch(checked = hasHeader, onCheckedChange = { hasHeader = it })
+                }
+                listOf(ImportTarget.ENTRIES to strings.importAsEntries, ImportTarget.SOLD_ITEMS to strings.importAsSales).forEach { (option, label) ->
+                    Row(
+                        modifier = Modifier.fillMaxWidth().clickable { target = option },
+                        verticalAlignment = Alignment.CenterVertically
+                    ) {
+                        RadioButton(selected = target == option, onClick = null)
+                        Spacer(modifier = Modifier.width(8.dp))
+                        Text(label)
+                    }
+                }
+            }
+        },
+        confirmButton = {
+            TextButton(
+                enabled = valid,
+                onClick = {
+                    onConfirm(StatementRules(
+                        dateColumn = date!!,
+                        nameColumn = name!!,
+                        amountColumn = amount!!,
+                        categoryColumn = column(categoryColumn) ?: -1,
+                        datePattern = datePattern.trim(),
+                        hasHeader = hasHeader,
+                        target = target
+                    ))
+                }
+            ) { Text(strings.importAction) }
+        },
+        dismissButton = {
+            TextButton(onClick = onDismiss) { Text(strings.cancel) }
+        }
+    )
+}
+
+@Composable
+private fun ColumnField(label: String, value: String, modifier: Modifier, onValueChange: (String) -> Unit) {
+    OutlinedTextField(
+        value = value,
+        onValueChange = { text -> onValueChange(text.filter { it.isDigit() }) },
+        label = { Text(label, maxLines = 1) },
+        singleLine = true,
+        keyboardOptions = androidx.compose.foundation.text.KeyboardOptions(keyboardType = KeyboardType.Number),
+        modifier = modifier
+    )
+}
@@ -15,21 +15,21 @@ import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.platform.testTag
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.input.KeyboardType
 import androidx.compose.ui.unit.dp
+import com.faisal.financecalc.core.Money
 import com.faisal.financecalc.data.ShopItem
 import com.faisal.financecalc.ui.components.ShopItemRow
-import com.faisal.financecalc.viewmodel.MainViewModel
 import com.faisal.financecalc.ui.theme.LocalAppStrings
 import com.faisal.financecalc.ui.theme.SuccessGreen
+import com.faisal.financecalc.viewmodel.ShopViewModel
 
 @Composable
-fun ShopScreen(viewModel: MainViewModel) {
+fun ShopScreen(viewModel: ShopViewModel, currencySymbol: String) {
     val shopItems by viewModel.allShopItems.collectAsState()
     val shopTotal by viewModel.shopTotalVal.collectAsState()
-    val monthlyProfits by viewModel.monthlyProfits.collectAsState()
-    val currencySymbol by viewModel.currencySymbol.collectAsState()
     val strings = LocalAppStrings.current
     
     var showAddDialog by remember { mutableStateOf(false) }
@@ -65,12 +65,12 @@ fun ShopScreen(viewModel: MainViewModel) {
         ) {
             Text(strings.shopOverview, style = MaterialTheme.typography.headlineMedium)
             
-            LazyColumn(modifier = Modifier.fillMaxSize()) {
+            LazyColumn(modifier = Modifier.fillMaxSize().testTag("shop_list")) {
                 item {
                     // Revenue Card -> Inventory Value
                     com.faisal.financecalc.ui.components.SummaryCard(
                         title = strings.inventoryValue,
-                        amount = shopTotal ?: 0.0,
+                        amount = shopTotal,
                         backgroundColor = MaterialTheme.colorScheme.secondaryContainer,
                         icon = Icons.Default.TrendingUp,
                         currencySymbol = currencySymbol 
@@ -94,15 +94,15 @@ fun ShopScreen(viewModel: MainViewModel) {
                         )
                         Divider()
                     }
-                    items(items) { item ->
+                    items(items, key = { it.key }) { item ->
                         com.faisal.financecalc.ui.components.ShopItemRow(
                             item = item,
                             onEdit = { 
-                                currentItem = item
+                                currentItem = item.source
                                 showAddDialog = true 
                             },
                             onDelete = { 
-                                itemToSell = item
+                                itemToSell = item.source
                                 showSellDialog = true 
                             },
                             currencySymbol = currencySymbol
@@ -123,9 +123,9 @@ fun ShopScreen(viewModel: MainViewModel) {
             onConfirm = { name, count, price, purchasePrice, category ->
                 // Price (Selling) is set to 0.0 here as it is not used anymore
                 if (currentItem == null) {
-                    viewModel.addShopItem(ShopItem(name = name, count = count, pricePerUnit = 0.0, purchasePrice = purchasePrice, category = category))
+                    viewModel.addShopItem(ShopItem(name = name, count = count, pricePerUnit = Money.ZERO, purchasePrice = purchasePrice, category = category))
                 } else {
-                    viewModel.updateShopItem(currentItem!!.copy(name = name, count = count, pricePerUnit = 0.0, purchasePrice = purchasePrice, category = category))
+                    viewModel.updateShopItem(currentItem!!.copy(name = name, count = count, pricePerUnit = Money.ZERO, purchasePrice = purchasePrice, category = category))
                 }
                 showAddDialog = false
             }
@@ -155,10 +155,10 @@ fun SellDialog(
     currencySymbol: String,
     onDismiss: () -> Unit,
     onDelete: () -> Unit,
-    onConfirm: (Double) -> Unit
+    onConfirm: (Money) -> Unit
 ) {
     var sellPrice by remember { mutableStateOf("") } // Start empty to force input
-    val currentPrice = sellPrice.toDoubleOrNull() ?: 0.0
+    val currentPrice = Money.parse(sellPrice) ?: Money.ZERO
     val estimatedProfit = currentPrice - item.purchasePrice
     val strings = LocalAppStrings.current
 
@@ -169,7 +169,7 @@ fun SellDialog(
             Column {
                 Text("${strings.sellQuestion} '${item.name}'?")
                 Text(
-                    "${strings.buyPrice}: ${String.format("%.2f", item.purchasePrice)} $currencySymbol", 
+                    "${strings.buyPrice}: ${item.purchasePrice.format()} $currencySymbol", 
                     style = MaterialTheme.typography.bodySmall, 
                     color = MaterialTheme.colorScheme.onSurfaceVariant
                 )
@@ -179,13 +179,13 @@ fun SellDialog(
                     onValueChange = { sellPrice = it },
                     label = { Text("${strings.sellPrice} ($currencySymbol)") },
                     keyboardOptions = KeyboardOptions(keyboardType = KeyboardType.Number),
-                    modifier = Modifier.fillMaxWidth()
+                    modifier = Modifier.fillMaxWidth().testTag("sell_price")
                 )
                 Spacer(modifier = Modifier.height(16.dp))
                 Row(verticalAlignment = Alignment.CenterVertically) {
                      Text("${strings.profitLabel}: ", style = MaterialTheme.typography.bodyMedium)
                      Text(
-                         "${String.format("%.2f", estimatedProfit)} $currencySymbol", 
+                         "${estimatedProfit.format()} $currencySymbol", 
                          style = MaterialTheme.typography.titleMedium, 
                          fontWeight = FontWeight.Bold,
                          color = SuccessGreen
@@ -194,8 +194,8 @@ fun SellDialog(
             }
         },
         confirmButton = {
-            TextButton(onClick = {
-                val p = sellPrice.toDoubleOrNull()
+            TextButton(modifier = Modifier.testTag("sell_confirm"), onClick = {
+                val p = Money.parse(sellPrice)
                 if (p != null) {
                     onConfirm(p)
                 }
@@ -222,12 +222,12 @@ fun ShopItemDialog(
     existingCategories: List<String>,
     currencySymbol: String,
     onDismiss: () -> Unit,
-    onConfirm: (String, Int, Double, Double, String) -> Unit
+    onConfirm: (String, Int, Money, Money, String) -> Unit
 ) {
     var name by remember { mutableStateOf(item?.name ?: "") }
     var count by remember { mutableStateOf(item?.count?.toString() ?: "1") }
     // Purchase Price (Einkaufspreis)
-    var purchasePrice by remember { mutableStateOf(item?.let { if (it.purchasePrice == 0.0) "" else if (it.purchasePrice % 1.0 == 0.0) it.purchasePrice.toInt().toString() else it.purchasePrice.toString() } ?: "") }
+    var purchasePrice by remember { mutableStateOf(item?.purchasePrice?.toInputText() ?: "") }
     var category by remember { mutableStateOf(item?.category ?: "General") }
     
     val strings = LocalAppStrings.current
@@ -289,10 +289,10 @@ fun ShopItemDialog(
         confirmButton = {
             TextButton(onClick = {
                 val c = count.toIntOrNull() ?: 1
-                val buyP = purchasePrice.toDoubleOrNull() ?: 0.0
+                val buyP = Money.parse(purchasePrice) ?: Money.ZERO
                 
                 if (name.isNotBlank()) {
-                    onConfirm(name, c, 0.0, buyP, category) // Selling Price assumed 0.0
+                    onConfirm(name, c, Money.ZERO, buyP, category) // Selling Price assumed 0.0
                 }
             }) {
                 Text(strings.save)
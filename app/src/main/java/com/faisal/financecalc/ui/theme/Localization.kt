@@ -36,7 +36,31 @@ data class AppStrings(
     val save: String, // Speichern
     val chooseCurrency: String,
     val chooseLanguage: String,
-    val home: String
+    val home: String,
+    val dataSection: String,
+    val verifyProfitHistory: String,
+    val monthsCorrected: String,
+    val importStatement: String,
+    val importFormats: String,
+    val columnsHint: String,
+    val dateColumn: String,
+    val amountColumn: String,
+    val categoryColumn: String,
+    val dateFormat: String,
+    val firstRowIsHeader: String,
+    val importAsEntries: String,
+    val importAsSales: String,
+    val importAction: String,
+    val importing: String,
+    val imported: String,
+    val duplicatesSkipped: String,
+    val unreadableRows: String,
+    val backupNow: String,
+    val lastBackup: String,
+    val noBackupYet: String,
+    val restoreBackup: String,
+    val restoreBackupConfirm: String,
+    val documentsRestored: String
 )
 
 val EnStrings = AppStrings(
@@ -73,7 +97,31 @@ val EnStrings = AppStrings(
     save = "Save",
     chooseCurrency = "Choose Currency",
     chooseLanguage = "Choose Language",
-    home = "Home"
+    home = "Home",
+    dataSection = "Data",
+    verifyProfitHistory = "Verify profit history",
+    monthsCorrected = "months corrected",
+    importStatement = "Import bank statement",
+    importFormats = "CSV or CAMT.053 (XML)",
+    columnsHint = "Column numbers, 1 = first column",
+    dateColumn = "Date column",
+    amountColumn = "Amount column",
+    categoryColumn = "Category column (empty = none)",
+    dateFormat = "Date format",
+    firstRowIsHeader = "First row is a header",
+    importAsEntries = "As income / expenses",
+    importAsSales = "As sales (profit)",
+    importAction = "Import",
+    importing = "Importing…",
+    imported = "imported",
+    duplicatesSkipped = "duplicates skipped",
+    unreadableRows = "rows not readable",
+    backupNow = "Back up now",
+    lastBackup = "Last backup",
+    noBackupYet = "No backup yet",
+    restoreBackup = "Restore backup",
+    restoreBackupConfirm = "Replaces all data of this account with the last backup. Changes made since then are lost.",
+    documentsRestored = "documents restored"
 )
 
 val DeStrings = AppStrings(
@@ -110,7 +158,31 @@ val DeStrings = AppStrings(
     save = "Speichern",
     chooseCurrency = "Währung wählen",
     chooseLanguage = "Sprache wählen",
-    home = "Startseite"
+    home = "Startseite",
+    dataSection = "Daten",
+    verifyProfitHistory = "Gewinnverlauf prüfen",
+    monthsCorrected = "Monate korrigiert",
+    importStatement = "Kontoauszug importieren",
+    importFormats = "CSV oder CAMT.053 (XML)",
+    columnsHint = "Spaltennummern, 1 = erste Spalte",
+    dateColumn = "Spalte Datum",
+    amountColumn = "Spalte Betrag",
+    categoryColumn = "Spalte Kategorie (leer = keine)",
+    dateFormat = "Datumsformat",
+    firstRowIsHeader = "Erste Zeile ist Kopfzeile",
+    importAsEntries = "Als Einnahmen / Ausgaben",
+    importAsSales = "Als Verkäufe (Gewinn)",
+    importAction = "Importieren",
+    importing = "Wird importiert…",
+    imported = "importiert",
+    duplicatesSkipped = "Duplikate übersprungen",
+    unreadableRows = "Zeilen nicht lesbar",
+    backupNow = "Jetzt sichern",
+    lastBackup = "Letzte Sicherung",
+    noBackupYet = "Noch keine Sicherung",
+    restoreBackup = "Sicherung wiederherstellen",
+    restoreBackupConfirm = "Ersetzt alle Daten dieses Kontos durch die letzte Sicherung. Spätere Änderungen gehen verloren.",
+    documentsRestored = "Dokumente wiederhergestellt"
 )
 
 val ArStrings = AppStrings(
@@ -147,7 +219,31 @@ val ArStrings = AppStrings(
     save = "حفظ",
     chooseCurrency = "اختر العملة",
     chooseLanguage = "اختر اللغة",
-    home = "الرئيسية"
+    home = "الرئيسية",
+    dataSection = "البيانات",
+    verifyProfitHistory = "التحقق من سجل الأرباح",
+    monthsCorrected = "أشهر تم تصحيحها",
+    importStatement = "استيراد كشف حساب بنكي",
+    importFormats = "CSV أو CAMT.053 (XML)",
+    columnsHint = "أرقام الأعمدة، 1 = العمود الأول",
+    dateColumn = "عمود التاريخ",
+    amountColumn = "عمود المبلغ",
+    categoryColumn = "عمود الفئة (فارغ = بدون)",
+    dateFormat = "تنسيق التاريخ",
+    firstRowIsHeader = "الصف الأول عناوين",
+    importAsEntries = "كدخل / مصروفات",
+    importAsSales = "كمبيعات (ربح)",
+    importAction = "استيراد",
+    importing = "جارٍ الاستيراد…",
+    imported = "تم استيرادها",
+    duplicatesSkipped = "مكررات تم تخطيها",
+    unreadableRows = "صفوف غير مقروءة",
+    backupNow = "نسخ احتياطي الآن",
+    lastBackup = "آخر نسخة احتياطية",
+    noBackupYet = "لا توجد نسخة احتياطية بعد",
+    restoreBackup = "استعادة النسخة الاحتياطية",
+    restoreBackupConfirm = "يستبدل كل بيانات هذا الحساب بآخر نسخة احتياطية. ستفقد التغييرات التي أُجريت بعدها.",
+    documentsRestored = "مستندات مستعادة"
 )
 
 val FrStrings = AppStrings(
@@ -184,7 +280,31 @@ val FrStrings = AppStrings(
     save = "Enregistrer",
     chooseCurrency = "Choisir la devise",
     chooseLanguage = "Choisir la langue",
-    home = "Accueil"
+    home = "Accueil",
+    dataSection = "Données",
+    verifyProfitHistory = "Vérifier l'historique des profits",
+    monthsCorrected = "mois corrigés",
+    importStatement = "Importer un relevé bancaire",
+    importFormats = "CSV ou CAMT.053 (XML)",
+    columnsHint = "Numéros de colonne, 1 = première colonne",
+    dateColumn = "Colonne date",
+    amountColumn = "Colonne montant",
+    categoryColumn = "Colonne catégorie (vide = aucune)",
+    dateFormat = "Format de date",
+    firstRowIsHeader = "La première ligne est un en-tête",
+    importAsEntries = "Comme revenus / dépenses",
+    importAsSales = "Comme ventes (profit)",
+    importAction = "Importer",
+    importing = "Importation…",
+    imported = "importées",
+    duplicatesSkipped = "doublons ignorés",
+    unreadableRows = "lignes illisibles",
+    backupNow = "Sauvegarder maintenant",
+    lastBackup = "Dernière sauvegarde",
+    noBackupYet = "Aucune sauvegarde",
+    restoreBackup = "Restaurer la sauvegarde",
+    restoreBackupConfirm = "Remplace toutes les données de ce compte par la dernière sauvegarde. Les modifications faites depuis seront perdues.",
+    documentsRestored = "documents restaurés"
 )
 
 val LocalAppStrings = staticCompositionLocalOf { DeStrings }
@@ -0,0 +1,40 @@
+package com.faisal.financecalc.viewmodel
+
+import com.faisal.financecalc.core.Inventory
+import com.faisal.financecalc.core.LedgerSummary
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.data.FinanceEntry
+import com.faisal.financecalc.data.ShopItem
+
+// Everything the dashboard and the list screens derive from the ledger, computed in one pass
+// per change instead of one filter/sum per figure. Screens collect slices of it.
+// The math itself is in :core (LedgerSummary), where it is benchmarked.
+data class DashboardSnapshot(
+    val ledger: LedgerSummary<FinanceEntry> = LedgerSummary(),
+    val currentMonthProfit: Money = Money.ZERO
+) {
+    val incomeEntries: List<FinanceEntry> get() = ledger.incomeEntries
+    val expenseEntries: List<FinanceEntry> get() = ledger.expenseEntries
+    val debtEntries: List<FinanceEntry> get() = ledger.debtEntries
+    val totalIncome: Money get() = ledger.totalIncome
+    val totalExpense: Money get() = ledger.totalExpense
+    val totalDebt: Money get() = ledger.totalDebt
+    val shopValue: Money get() = ledger.shopValue
+
+    val balance: Money get() = ledger.balance(currentMonthProfit)
+
+    companion object {
+        val EMPTY = DashboardSnapshot()
+
+        // entries are expected in display order (orderIndex)
+        fun of(
+            entries: List<FinanceEntry>,
+            shopItems: List<ShopItem>,
+            currentMonthProfit: Money = Money.ZERO
+        ): DashboardSnapshot {
+            // The "Shop T Total" entry shows the actual inventory value
+            val ledger = LedgerSummary.of(entries, Inventory.stockValue(shopItems)) { entry, value -> entry.copy(amount = value) }
+            return DashboardSnapshot(ledger, currentMonthProfit)
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.faisal.financecalc.viewmodel
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.data.CreditCard
+import com.faisal.financecalc.data.FinanceEntry
+import com.faisal.financecalc.data.FinanceRepository
+import com.faisal.financecalc.data.ShopItem
+import com.faisal.financecalc.data.SyncStatus
+import com.faisal.financecalc.ui.model.CreditCardUi
+import com.faisal.financecalc.ui.model.EntryUi
+import com.faisal.financecalc.ui.model.toCreditCardUis
+import com.faisal.financecalc.ui.model.toEntryUis
+import kotlinx.collections.immutable.ImmutableList
+import kotlinx.collections.immutable.persistentListOf
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.launch
+
+// Home destination: balance, totals and credit cards
+class DashboardViewModel(private val repository: FinanceRepository) : ViewModel() {
+
+    private val noEntries: ImmutableList<EntryUi> = persistentListOf()
+
+    // Null until Room has answered
+    private val allEntries = repository.sortedEntries().stateWhileSubscribed<List<FinanceEntry>?>(viewModelScope, null)
+
+    // Last 5 entries for the "Recent Transactions" list
+    val recentTransactions = allEntries.slice(viewModelScope, "recentTransactions", noEntries) {
+        it.orEmpty().take(RECENT_TRANSACTIONS).toEntryUis()
+    }
+
+    // Profit of the current month, a single row lookup in the month index
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private val currentMonthProfit = currentMonthFlow().flatMapLatest { month ->
+        repository.getProfitForMonth(month.monthValue, month.year)
+    }
+
+    // One aggregation pass per ledger change, the screen collects slices of it.
+    // Null until the local store has answered, so the card never shows zeros that aren't real.
+    val dashboard = dashboardSnapshots(allEntries, repository.getAllShopItems(), currentMonthProfit)
+        .stateWhileSubscribed<DashboardSnapshot?>(viewModelScope, null)
+
+    val totalIncome = dashboard.slice<DashboardSnapshot?, Money?>(viewModelScope, "totalIncome", null) { it?.totalIncome }
+
+    val totalExpense = dashboard.slice<DashboardSnapshot?, Money?>(viewModelScope, "totalExpense", null) { it?.totalExpense }
+
+    val balance = dashboard.slice<DashboardSnapshot?, Money?>(viewModelScope, "balance", null) { it?.balance }
+
+    // The figures are rendered from the local store right away; this tells the screen whether
+    // the server has confirmed them yet and whether local changes are still waiting to be sent
+    val syncStatus = repository.syncStatus.derived("syncStatus").stateWhileSubscribed(viewModelScope, SyncStatus.SYNCED)
+
+    // Credit Cards
+    val allCreditCards = repository.getAllCreditCards()
+        .map { it.toCreditCardUis() }
+        .derived("creditCards")
+        .stateWhileSubscribed<ImmutableList<CreditCardUi>>(viewModelScope, persistentListOf())
+
+    fun addCreditCard(card: CreditCard) = viewModelScope.launch {
+        repository.insertCreditCard(card)
+    }
+
+    fun deleteCreditCard(card: CreditCard) = viewModelScope.launch {
+        repository.deleteCreditCard(card)
+    }
+
+    companion object {
+        private const val RECENT_TRANSACTIONS = 5
+    }
+}
+
+// Snapshots only from entries Room has delivered: the null seed of the shared entries state is
+// skipped, so the first snapshot is never one of an empty ledger
+internal fun dashboardSnapshots(
+    entries: Flow<List<FinanceEntry>?>,
+    shopItems: Flow<List<ShopItem>>,
+    currentMonthProfit: Flow<Money>
+): Flow<DashboardSnapshot> {
+    return combine(entries.filterNotNull(), shopItems, currentMonthProfit) { ledger, items, profit ->
+        DashboardSnapshot.of(ledger, items, profit)
+    }.derived("dashboard")
+}
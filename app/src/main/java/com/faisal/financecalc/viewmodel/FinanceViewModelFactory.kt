@@ -0,0 +1,31 @@
+package com.faisal.financecalc.viewmodel
+
+import android.app.Application
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.ViewModelProvider
+import com.faisal.financecalc.FinanceApplication
+import com.faisal.financecalc.data.FinanceRepository
+
+// Creates the app-wide MainViewModel and the per-destination ViewModels
+class FinanceViewModelFactory(
+    private val application: Application,
+    private val repository: FinanceRepository
+) : ViewModelProvider.Factory {
+    override fun <T : ViewModel> create(modelClass: Class<T>): T {
+        val viewModel: ViewModel = when {
+            modelClass.isAssignableFrom(MainViewModel::class.java) -> MainViewModel(application, repository)
+            modelClass.isAssignableFrom(DashboardViewModel::class.java) -> DashboardViewModel(repository)
+            modelClass.isAssignableFrom(LedgerViewModel::class.java) -> LedgerViewModel(repository)
+            modelClass.isAssignableFrom(ShopViewModel::class.java) -> ShopViewModel(repository)
+            modelClass.isAssignableFrom(ProfitViewModel::class.java) -> ProfitViewModel(repository)
+            modelClass.isAssignableFrom(SearchViewModel::class.java) -> SearchViewModel(repository)
+            modelClass.isAssignableFrom(SettingsViewModel::class.java) ->
+                (application as FinanceApplication).let { app ->
+                    SettingsViewModel(repository, app.statementImporter, app.backupManager)
+                }
+            else -> throw IllegalArgumentException("Unknown ViewModel class")
+        }
+        @Suppress("UNCHECKED_CAST")
+        return viewModel as T
+    }
+}
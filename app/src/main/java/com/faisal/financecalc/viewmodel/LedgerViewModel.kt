@@ -0,0 +1,58 @@
+package com.faisal.financecalc.viewmodel
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import androidx.paging.PagingData
+import com.faisal.financecalc.data.FinanceEntry
+import com.faisal.financecalc.data.FinanceRepository
+import com.faisal.financecalc.data.HistoryEntry
+import com.faisal.financecalc.ui.model.EntryUi
+import com.faisal.financecalc.ui.model.toEntryUis
+import kotlinx.collections.immutable.ImmutableList
+import kotlinx.collections.immutable.persistentListOf
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.launch
+
+// Income, expenses and debts destinations
+class LedgerViewModel(private val repository: FinanceRepository) : ViewModel() {
+
+    private val noEntries: ImmutableList<EntryUi> = persistentListOf()
+
+    // Shop items are needed for the auto-calculated "Shop T" income entry
+    private val ledger = combine(repository.sortedEntries(), repository.getAllShopItems()) { entries, shopItems ->
+        DashboardSnapshot.of(entries, shopItems)
+    }.derived("ledger").stateWhileSubscribed(viewModelScope, DashboardSnapshot.EMPTY)
+
+    // Rows are mapped to UI models here, once per change, so the lists skip unchanged rows
+    val incomeEntries = ledger.slice(viewModelScope, "incomeEntries", noEntries) { it.incomeEntries.toEntryUis() }
+
+    val expenseEntries = ledger.slice(viewModelScope, "expenseEntries", noEntries) { it.expenseEntries.toEntryUis() }
+
+    val debtEntries = ledger.slice(viewModelScope, "debtEntries", noEntries) { it.debtEntries.toEntryUis() }
+
+    fun addEntry(entry: FinanceEntry) = viewModelScope.launch {
+        repository.insertEntry(entry)
+    }
+
+    fun updateEntry(entry: FinanceEntry, oldEntry: FinanceEntry? = null) = viewModelScope.launch {
+        if (oldEntry != null && oldEntry.amount != entry.amount) {
+            val history = HistoryEntry(
+                entryId = entry.id,
+                oldAmount = oldEntry.amount,
+                newAmount = entry.amount,
+                dateTimestamp = System.currentTimeMillis()
+            )
+            repository.insertHistoryEntry(history)
+        }
+        repository.updateEntry(entry)
+    }
+
+    fun deleteEntry(entry: FinanceEntry) = viewModelScope.launch {
+        repository.deleteEntry(entry)
+    }
+
+    fun getEntryHistory(entryId: Long): Flow<PagingData<HistoryEntry>> {
+        return repository.getHistoryForEntry(entryId)
+    }
+}
@@ -1,225 +1,83 @@
 package com.faisal.financecalc.viewmodel
 
 import android.app.Application
+import android.net.Uri
+import androidx.core.content.FileProvider
 import androidx.lifecycle.AndroidViewModel
-import androidx.lifecycle.ViewModel
-import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.viewModelScope
-import com.faisal.financecalc.data.CreditCard
-import com.faisal.financecalc.data.EntryType
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
 import com.faisal.financecalc.data.FinanceEntry
-import com.faisal.financecalc.data.FirestoreRepository
-import com.faisal.financecalc.data.HistoryEntry
+import com.faisal.financecalc.data.FinanceRepository
 import com.faisal.financecalc.data.ShopItem
-import com.faisal.financecalc.data.SoldItem
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
 import kotlinx.coroutines.flow.*
 import kotlinx.coroutines.launch
-import java.util.Calendar
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.time.LocalDate
 
-class MainViewModel(application: Application, private val repository: FirestoreRepository) : AndroidViewModel(application) {
+class MainViewModel(application: Application, private val repository: FinanceRepository) : AndroidViewModel(application) {
 
     // Call this after user logs in
     fun initializeUserData() {
+        // Benchmark data lives only on the device, there is no account to sync with
+        if (getApplication<com.faisal.financecalc.FinanceApplication>().isLocalMode) return
+
+        // Room is the read path; the sync engine keeps it up to date with Firestore
+        repository.startSync()
+
         viewModelScope.launch {
-            val prefs = getApplication<Application>().getSharedPreferences("finance_prefs", android.content.Context.MODE_PRIVATE)
-            val isSeeded = prefs.getBoolean("data_seeded_v3", false)
-            
-            if (!isSeeded) {
-                // Check if Cloud DB is actually empty before wiping/seeding
-                val entries = repository.getAllEntries().first()
-                val shopItems = repository.getAllShopItems().first()
-                
-                if (entries.isEmpty() && shopItems.isEmpty()) {
+            try {
+                // Only a new, empty account gets the starter ledger; the marker is kept on the
+                // server, so a second device doesn't seed again
+                if (repository.claimSeeding()) {
                     repopulateData()
                 }
-                
-                // Mark as seeded so we don't check/write again
-                prefs.edit().putBoolean("data_seeded_v3", true).apply()
-            }
-        }
-    }
-
 
-    val allEntries = repository.getAllEntries().map { list -> 
-        list.sortedBy { it.orderIndex } 
-    }.stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = emptyList()
-    )
-
-    val allShopItems = repository.getAllShopItems().map { list -> 
-        list.sortedBy { it.orderIndex } 
-    }.stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = emptyList()
-    )
-
-    val shopTotalVal = allShopItems.map { items ->
-        items.sumOf { it.count * it.purchasePrice }
-    }.stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = 0.0
-    )
-
-    val monthlyProfits = repository.getMonthlyProfits().stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = emptyList()
-    )
-    
-    val allSoldItems = repository.getAllSoldItems().stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = emptyList()
-    )
-
-    // Derived States
-    val incomeEntries = combine(allEntries, shopTotalVal) { entries, shopValue ->
-        // Create a list where "Shop T Total" entry (if exists) is updated with actual Inventory Value
-        entries.filter { it.type == EntryType.INCOME }.map { entry ->
-            if (entry.isAutoCalculated && entry.category == "Shop") {
-                // Use Inventory Value here
-                entry.copy(amount = shopValue)
-            } else {
-                entry
+                // Accounts with sales from before monthly rollups existed get them built once
+                repository.ensureProfitRollups()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                // Offline: both checks run again on the next start
+                android.util.Log.w("MainViewModel", "Account checks skipped", e)
             }
         }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), emptyList())
-
-    val expenseEntries = allEntries.map { list -> 
-        list.filter { it.type == EntryType.EXPENSE }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), emptyList())
-
-    val debtEntries = allEntries.map { list -> 
-        list.filter { it.type == EntryType.DEBT }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), emptyList())
-
-    val totalIncome = incomeEntries.map { list ->
-        list.filter { !it.excludedFromTotal && !it.isAutoCalculated }.sumOf { it.amount }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), 0.0)
-
-    val totalExpense = expenseEntries.map { list ->
-        list.filter { !it.excludedFromTotal }.sumOf { it.amount }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), 0.0)
-
-    val totalDebt = debtEntries.map { list ->
-        list.filter { !it.excludedFromTotal }.sumOf { it.amount }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), 0.0)
-
-    val balance = combine(totalIncome, totalExpense, totalDebt, allSoldItems, shopTotalVal) { income, expense, debt, soldItems, shopVal ->
-        val calendar = java.util.Calendar.getInstance()
-        val currentMonth = calendar.get(java.util.Calendar.MONTH) + 1
-        val currentYear = calendar.get(java.util.Calendar.YEAR)
-        
-        val currentMonthProfit = soldItems
-            .filter { it.month == currentMonth && it.year == currentYear }
-            .sumOf { it.profit }
-
-        // Balance = (Income + Debt - Expense - MonthlyProfit) + ShopInventoryValue
-        income + debt - expense - currentMonthProfit + shopVal
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), 0.0)
-
-    // Actions
-    fun manualAddProfit(profit: Double, month: Int, year: Int, name: String = "Manual Entry") = viewModelScope.launch {
-         repository.insertSoldItem(SoldItem(
-            name = name,
-            profit = profit,
-            dateTimestamp = System.currentTimeMillis(),
-            month = month,
-            year = year
-        ))
-    }
-    
-    fun deleteSoldItem(item: SoldItem) = viewModelScope.launch {
-        repository.deleteSoldItem(item)
-    }
-
-    fun updateSoldItem(item: SoldItem) = viewModelScope.launch {
-        repository.updateSoldItem(item)
-    }
-
-    fun resetSoldHistory() = viewModelScope.launch {
-        val items = repository.getAllSoldItems().first()
-        for (item in items) {
-            repository.deleteSoldItem(item)
-        }
-    }
-
-    fun sellItem(item: ShopItem, sellPrice: Double) = viewModelScope.launch {
-        val profit = sellPrice - item.purchasePrice
-        val calendar = Calendar.getInstance()
-        val month = calendar.get(Calendar.MONTH) + 1 // 0-indexed
-        val year = calendar.get(Calendar.YEAR)
-        
-        repository.insertSoldItem(SoldItem(
-            name = item.name,
-            profit = profit,
-            dateTimestamp = System.currentTimeMillis(),
-            month = month,
-            year = year
-        ))
-        
-        // If count > 1, decrease count. If 1, delete.
-        if (item.count > 1) {
-            repository.updateShopItem(item.copy(count = item.count - 1))
-        } else {
-            repository.deleteShopItem(item)
-        }
     }
 
-    fun addEntry(entry: FinanceEntry) = viewModelScope.launch {
-        repository.insertEntry(entry)
-    }
 
-    fun updateEntry(entry: FinanceEntry, oldEntry: FinanceEntry? = null) = viewModelScope.launch {
-        if (oldEntry != null && oldEntry.amount != entry.amount) {
-            val history = HistoryEntry(
-                entryId = entry.id,
-                oldAmount = oldEntry.amount,
-                newAmount = entry.amount,
-                dateTimestamp = System.currentTimeMillis()
-            )
-            repository.insertHistoryEntry(history)
+    // Export for the share action: every collection is streamed into a file in the cache
+    // dir, which is shared as a content:// URI (an EXTRA_TEXT string hit the Binder limit)
+    fun exportCsv(onReady: (Uri) -> Unit, onFailed: () -> Unit) = viewModelScope.launch {
+        val app = getApplication<Application>()
+        val dir = File(app.cacheDir, EXPORT_DIR)
+        val file = File(dir, "finance-export-${LocalDate.now()}.csv")
+        try {
+            withContext(Dispatchers.IO) {
+                // Only the latest export is kept
+                dir.listFiles()?.forEach { it.delete() }
+                dir.mkdirs()
+                file.bufferedWriter().use { repository.exportCsv(it) }
+            }
+        } catch (e: Exception) {
+            // Cancelled or failed halfway (disk full, say): a truncated CSV is never shared
+            withContext(NonCancellable + Dispatchers.IO) { file.delete() }
+            if (e is CancellationException) throw e
+            android.util.Log.w("MainViewModel", "CSV export failed", e)
+            onFailed()
+            return@launch
         }
-        repository.updateEntry(entry)
-    }
-
-    fun deleteEntry(entry: FinanceEntry) = viewModelScope.launch {
-        repository.deleteEntry(entry)
-    }
-    
-    fun getEntryHistory(entryId: Long): Flow<List<HistoryEntry>> {
-        return repository.getHistoryForEntry(entryId)
-    }
-
-    fun addShopItem(item: ShopItem) = viewModelScope.launch {
-        repository.insertShopItem(item)
-    }
-
-    fun updateShopItem(item: ShopItem) = viewModelScope.launch {
-        repository.updateShopItem(item)
+        onReady(FileProvider.getUriForFile(app, "${app.packageName}.exports", file))
     }
 
-    fun deleteShopItem(item: ShopItem) = viewModelScope.launch {
-        repository.deleteShopItem(item)
-    }
-    
-    // Credit Cards
-    val allCreditCards = repository.getAllCreditCards().stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = emptyList()
-    )
-    
-    fun addCreditCard(card: CreditCard) = viewModelScope.launch {
-        repository.insertCreditCard(card)
-    }
-    
-    fun deleteCreditCard(card: CreditCard) = viewModelScope.launch {
-        repository.deleteCreditCard(card)
+    // Stops syncing and drops the local copy of the account
+    fun signOut(onSignedOut: () -> Unit) = viewModelScope.launch {
+        repository.signOut()
+        com.google.firebase.auth.FirebaseAuth.getInstance().signOut()
+        onSignedOut()
     }
 
     // Theme State
@@ -250,77 +108,67 @@ class MainViewModel(application: Application, private val repository: FirestoreR
     }
 
     private suspend fun repopulateData() {
-        // Clear existing data (Force refresh as per user request "delete all data")
-        val currentEntries = repository.getAllEntries().first()
-        for (entry in currentEntries) {
-            repository.deleteEntry(entry)
-        }
-        val currentShopItems = repository.getAllShopItems().first()
-        for (item in currentShopItems) {
-            repository.deleteShopItem(item)
-        }
-        
+        val entries = mutableListOf<FinanceEntry>()
+        val shopItems = mutableListOf<ShopItem>()
+
         var i = 0
         // Income
-        repository.insertEntry(FinanceEntry(name = "Sparkasse", amount = 1634.0, type = EntryType.INCOME, category = "Account", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "DKB", amount = 106.0, type = EntryType.INCOME, category = "Account", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "Revolut", amount = 0.0, type = EntryType.INCOME, category = "Account", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "Bar 1", amount = 520.0, type = EntryType.INCOME, category = "Cash", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "Bar 2", amount = 1080.0, type = EntryType.INCOME, category = "Cash", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "Shop T (Cash)", amount = 2045.0, type = EntryType.INCOME, category = "Shop", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "PayPal", amount = 310.0, type = EntryType.INCOME, category = "Account", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "In Safe", amount = 1020.0, type = EntryType.INCOME, category = "Safe", orderIndex = i++))
+        entries += FinanceEntry(name = "Sparkasse", amount = Money.of(1634.0), type = EntryType.INCOME, category = "Account", orderIndex = i++)
+        entries += FinanceEntry(name = "DKB", amount = Money.of(106.0), type = EntryType.INCOME, category = "Account", orderIndex = i++)
+        entries += FinanceEntry(name = "Revolut", amount = Money.ZERO, type = EntryType.INCOME, category = "Account", orderIndex = i++)
+        entries += FinanceEntry(name = "Bar 1", amount = Money.of(520.0), type = EntryType.INCOME, category = "Cash", orderIndex = i++)
+        entries += FinanceEntry(name = "Bar 2", amount = Money.of(1080.0), type = EntryType.INCOME, category = "Cash", orderIndex = i++)
+        entries += FinanceEntry(name = "Shop T (Cash)", amount = Money.of(2045.0), type = EntryType.INCOME, category = "Shop", orderIndex = i++)
+        entries += FinanceEntry(name = "PayPal", amount = Money.of(310.0), type = EntryType.INCOME, category = "Account", orderIndex = i++)
+        entries += FinanceEntry(name = "In Safe", amount = Money.of(1020.0), type = EntryType.INCOME, category = "Safe", orderIndex = i++)
         
-        repository.insertEntry(FinanceEntry(name = "GIB", amount = 2952.0, type = EntryType.INCOME, category = "Bank", orderIndex = i++))
-        repository.insertEntry(FinanceEntry(name = "PS", amount = 10.0, type = EntryType.INCOME, category = "Account", orderIndex = i++))
+        entries += FinanceEntry(name = "GIB", amount = Money.of(2952.0), type = EntryType.INCOME, category = "Bank", orderIndex = i++)
+        entries += FinanceEntry(name = "PS", amount = Money.of(10.0), type = EntryType.INCOME, category = "Account", orderIndex = i++)
         
         // Auto-calc placeholder - Excluded from Total Balance as per user request (Profit/Inventory Value logic)
-        repository.insertEntry(FinanceEntry(name = "Shop T Calculated", amount = 0.0, type = EntryType.INCOME, category = "Shop", isAutoCalculated = true, excludedFromTotal = true, orderIndex = i++))
+        entries += FinanceEntry(name = "Shop T Calculated", amount = Money.ZERO, type = EntryType.INCOME, category = "Shop", isAutoCalculated = true, excludedFromTotal = true, orderIndex = i++)
 
         var d = 0
         // Debts
-        repository.insertEntry(FinanceEntry(name = "Temu", amount = 196.0, type = EntryType.DEBT, category = "Shopping", orderIndex = d++))
-        repository.insertEntry(FinanceEntry(name = "Debt", amount = 95.0, type = EntryType.DEBT, category = "General", orderIndex = d++))
-        repository.insertEntry(FinanceEntry(name = "Amazon", amount = 700.0, type = EntryType.DEBT, category = "Shopping", orderIndex = d++))
-        repository.insertEntry(FinanceEntry(name = "Mama", amount = 710.0, type = EntryType.DEBT, category = "Family", orderIndex = d++))
-        repository.insertEntry(FinanceEntry(name = "Mama (p)", amount = 350.0, type = EntryType.DEBT, category = "Family", orderIndex = d++))
-        repository.insertEntry(FinanceEntry(name = "Mona", amount = 56.0, type = EntryType.DEBT, category = "Family", orderIndex = d++))
-        repository.insertEntry(FinanceEntry(name = "Mo", amount = 100.0, type = EntryType.DEBT, category = "Family", orderIndex = d++))
+        entries += FinanceEntry(name = "Temu", amount = Money.of(196.0), type = EntryType.DEBT, category = "Shopping", orderIndex = d++)
+        entries += FinanceEntry(name = "Debt", amount = Money.of(95.0), type = EntryType.DEBT, category = "General", orderIndex = d++)
+        entries += FinanceEntry(name = "Amazon", amount = Money.of(700.0), type = EntryType.DEBT, category = "Shopping", orderIndex = d++)
+        entries += FinanceEntry(name = "Mama", amount = Money.of(710.0), type = EntryType.DEBT, category = "Family", orderIndex = d++)
+        entries += FinanceEntry(name = "Mama (p)", amount = Money.of(350.0), type = EntryType.DEBT, category = "Family", orderIndex = d++)
+        entries += FinanceEntry(name = "Mona", amount = Money.of(56.0), type = EntryType.DEBT, category = "Family", orderIndex = d++)
+        entries += FinanceEntry(name = "Mo", amount = Money.of(100.0), type = EntryType.DEBT, category = "Family", orderIndex = d++)
 
         var e = 0
         // Expenses
-        repository.insertEntry(FinanceEntry(name = "Car", amount = 190.0, type = EntryType.EXPENSE, category = "Transport", orderIndex = e++))
-        repository.insertEntry(FinanceEntry(name = "Save", amount = 305.0, type = EntryType.EXPENSE, category = "Savings", orderIndex = e++))
-        repository.insertEntry(FinanceEntry(name = "Baba", amount = 4166.0, type = EntryType.EXPENSE, category = "Family", orderIndex = e++))
-        repository.insertEntry(FinanceEntry(name = "Ola", amount = 1500.0, type = EntryType.EXPENSE, category = "Other", orderIndex = e++))
+        entries += FinanceEntry(name = "Car", amount = Money.of(190.0), type = EntryType.EXPENSE, category = "Transport", orderIndex = e++)
+        entries += FinanceEntry(name = "Save", amount = Money.of(305.0), type = EntryType.EXPENSE, category = "Savings", orderIndex = e++)
+        entries += FinanceEntry(name = "Baba", amount = Money.of(4166.0), type = EntryType.EXPENSE, category = "Family", orderIndex = e++)
+        entries += FinanceEntry(name = "Ola", amount = Money.of(1500.0), type = EntryType.EXPENSE, category = "Other", orderIndex = e++)
         
         // Excluded Expenses
-        repository.insertEntry(FinanceEntry(name = "gm", amount = 160.0, type = EntryType.EXPENSE, category = "Excluded", excludedFromTotal = true, orderIndex = e++))
-        repository.insertEntry(FinanceEntry(name = "gold", amount = 245.0, type = EntryType.EXPENSE, category = "Excluded", excludedFromTotal = true, orderIndex = e++))
+        entries += FinanceEntry(name = "gm", amount = Money.of(160.0), type = EntryType.EXPENSE, category = "Excluded", excludedFromTotal = true, orderIndex = e++)
+        entries += FinanceEntry(name = "gold", amount = Money.of(245.0), type = EntryType.EXPENSE, category = "Excluded", excludedFromTotal = true, orderIndex = e++)
 
         var s = 0
         // Shop Items with Categories
-        repository.insertShopItem(ShopItem(name = "xss", count = 1, purchasePrice = 105.0, pricePerUnit = 0.0, orderIndex = s++, category = "Xbox"))
-        repository.insertShopItem(ShopItem(name = "xsx", count = 1, purchasePrice = 210.0, pricePerUnit = 0.0, orderIndex = s++, category = "Xbox"))
-        repository.insertShopItem(ShopItem(name = "xsx", count = 1, purchasePrice = 275.0, pricePerUnit = 0.0, orderIndex = s++, category = "Xbox"))
-        repository.insertShopItem(ShopItem(name = "xc", count = 3, purchasePrice = 60.0, pricePerUnit = 0.0, orderIndex = s++, category = "Xbox"))
+        shopItems += ShopItem(name = "xss", count = 1, purchasePrice = Money.of(105.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Xbox")
+        shopItems += ShopItem(name = "xsx", count = 1, purchasePrice = Money.of(210.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Xbox")
+        shopItems += ShopItem(name = "xsx", count = 1, purchasePrice = Money.of(275.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Xbox")
+        shopItems += ShopItem(name = "xc", count = 3, purchasePrice = Money.of(60.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Xbox")
         
-        repository.insertShopItem(ShopItem(name = "ps5", count = 1, purchasePrice = 290.0, pricePerUnit = 0.0, orderIndex = s++, category = "Playstation"))
-        repository.insertShopItem(ShopItem(name = "ps5", count = 1, purchasePrice = 290.0, pricePerUnit = 0.0, orderIndex = s++, category = "Playstation"))
-        repository.insertShopItem(ShopItem(name = "ps5", count = 1, purchasePrice = 295.0, pricePerUnit = 0.0, orderIndex = s++, category = "Playstation"))
-        repository.insertShopItem(ShopItem(name = "ps5", count = 1, purchasePrice = 300.0, pricePerUnit = 0.0, orderIndex = s++, category = "Playstation"))
+        shopItems += ShopItem(name = "ps5", count = 1, purchasePrice = Money.of(290.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Playstation")
+        shopItems += ShopItem(name = "ps5", count = 1, purchasePrice = Money.of(290.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Playstation")
+        shopItems += ShopItem(name = "ps5", count = 1, purchasePrice = Money.of(295.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Playstation")
+        shopItems += ShopItem(name = "ps5", count = 1, purchasePrice = Money.of(300.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Playstation")
         
-        repository.insertShopItem(ShopItem(name = "nin", count = 1, purchasePrice = 100.0, pricePerUnit = 0.0, orderIndex = s++, category = "Nintendo"))
-        repository.insertShopItem(ShopItem(name = "nin", count = 1, purchasePrice = 120.0, pricePerUnit = 0.0, orderIndex = s++, category = "Nintendo"))
+        shopItems += ShopItem(name = "nin", count = 1, purchasePrice = Money.of(100.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Nintendo")
+        shopItems += ShopItem(name = "nin", count = 1, purchasePrice = Money.of(120.0), pricePerUnit = Money.ZERO, orderIndex = s++, category = "Nintendo")
+
+        // Clear existing data (Force refresh as per user request "delete all data") and write the seed in batches
+        repository.replaceLedger(entries, shopItems)
     }
-}
 
-class MainViewModelFactory(private val application: android.app.Application, private val repository: FirestoreRepository) : ViewModelProvider.Factory {
-    override fun <T : ViewModel> create(modelClass: Class<T>): T {
-        if (modelClass.isAssignableFrom(MainViewModel::class.java)) {
-            @Suppress("UNCHECKED_CAST")
-            return MainViewModel(application, repository) as T
-        }
-        throw IllegalArgumentException("Unknown ViewModel class")
+    companion object {
+        private const val EXPORT_DIR = "exports" // See res/xml/file_paths.xml
     }
 }
@@ -0,0 +1,61 @@
+package com.faisal.financecalc.viewmodel
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import androidx.paging.PagingData
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.data.BulkProgress
+import com.faisal.financecalc.data.FinanceRepository
+import com.faisal.financecalc.data.SoldItem
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.launch
+import java.time.YearMonth
+
+// Profit destination: monthly history and sold items
+class ProfitViewModel(private val repository: FinanceRepository) : ViewModel() {
+
+    val monthlyProfits = repository.getMonthlyProfits().derived("monthlyProfits").stateWhileSubscribed(viewModelScope, emptyList())
+
+    val currentMonth: StateFlow<YearMonth> = currentMonthFlow().stateWhileSubscribed(viewModelScope, YearMonth.now())
+
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val currentMonthProfit = currentMonth.flatMapLatest { month ->
+        repository.getProfitForMonth(month.monthValue, month.year)
+    }.derived("currentMonthProfit").stateWhileSubscribed(viewModelScope, Money.ZERO)
+
+    fun profitForMonth(month: Int, year: Int): Flow<Money> = repository.getProfitForMonth(month, year)
+
+    // Paged sales of a month for the profit lists. Not cached in viewModelScope on purpose:
+    // the screen remembers one flow per month it shows, so closed months don't keep their pages.
+    fun soldItemsForMonth(month: Int, year: Int): Flow<PagingData<SoldItem>> {
+        return repository.getSoldItemsForMonth(month, year)
+    }
+
+    fun manualAddProfit(profit: Money, month: Int, year: Int, name: String = "Manual Entry") = viewModelScope.launch {
+        repository.insertSoldItem(SoldItem(
+            name = name,
+            profit = profit,
+            dateTimestamp = System.currentTimeMillis(),
+            month = month,
+            year = year
+        ))
+    }
+
+    fun deleteSoldItem(item: SoldItem) = viewModelScope.launch {
+        repository.deleteSoldItem(item)
+    }
+
+    fun updateSoldItem(item: SoldItem) = viewModelScope.launch {
+        repository.updateSoldItem(item)
+    }
+
+    // Progress of a bulk push (reset / seeding) to the server, null when idle
+    val bulkProgress: StateFlow<BulkProgress?> = repository.syncProgress
+
+    fun resetSoldHistory() = viewModelScope.launch {
+        repository.deleteAllSoldItems()
+    }
+}
@@ -0,0 +1,33 @@
+package com.faisal.financecalc.viewmodel
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.faisal.financecalc.data.FinanceRepository
+import com.faisal.financecalc.ui.model.SearchResultsUi
+import com.faisal.financecalc.ui.model.toUi
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.map
+
+// Search destination: results follow the query as it is typed. No debounce, an FTS prefix
+// query with a limit is cheap enough to run per keystroke; flatMapLatest drops the queries of
+// keystrokes that were already overtaken.
+class SearchViewModel(private val repository: FinanceRepository) : ViewModel() {
+
+    private val _query = MutableStateFlow("")
+    val query: StateFlow<String> = _query.asStateFlow()
+
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val results: StateFlow<SearchResultsUi> = _query
+        .flatMapLatest { repository.search(it) }
+        .map { it.toUi() }
+        .derived("searchResults")
+        .stateWhileSubscribed(viewModelScope, SearchResultsUi.EMPTY)
+
+    fun setQuery(text: String) {
+        _query.value = text
+    }
+}
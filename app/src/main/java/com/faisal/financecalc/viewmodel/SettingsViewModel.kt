@@ -0,0 +1,101 @@
+package com.faisal.financecalc.viewmodel
+
+import android.net.Uri
+import android.util.Log
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.faisal.financecalc.core.StatementRules
+import com.faisal.financecalc.data.BackupInfo
+import com.faisal.financecalc.data.BackupManager
+import com.faisal.financecalc.data.FinanceRepository
+import com.faisal.financecalc.data.ImportResult
+import com.faisal.financecalc.data.StatementImporter
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+
+// Settings destination: data maintenance (theme, language and currency are app-wide, see MainViewModel)
+class SettingsViewModel(
+    private val repository: FinanceRepository,
+    private val importer: StatementImporter,
+    private val backups: BackupManager
+) : ViewModel() {
+
+    // Number of months the last rollup check had to correct, null until a check ran
+    private val _correctedRollups = MutableStateFlow<Int?>(null)
+    val correctedRollups: StateFlow<Int?> = _correctedRollups.asStateFlow()
+
+    fun verifyProfitRollups() = viewModelScope.launch {
+        _correctedRollups.value = repository.verifyProfitRollups(repair = true).size
+    }
+
+    // ========== Statement Import ==========
+
+    private val _importRunning = MutableStateFlow(false)
+    val importRunning: StateFlow<Boolean> = _importRunning.asStateFlow()
+
+    // Outcome of the last import, null until one ran (or when it failed)
+    private val _importResult = MutableStateFlow<ImportResult?>(null)
+    val importResult: StateFlow<ImportResult?> = _importResult.asStateFlow()
+
+    fun importRules(): StatementRules = importer.savedRules()
+
+    fun importStatement(uri: Uri, rules: StatementRules) = viewModelScope.launch {
+        importer.saveRules(rules)
+        _importRunning.value = true
+        try {
+            _importResult.value = importer.import(uri, rules)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            // Unreadable file or bad date pattern; rows written before the failure stay
+            Log.w("SettingsViewModel", "Statement import failed", e)
+            _importResult.value = null
+        } finally {
+            _importRunning.value = false
+        }
+    }
+
+    // ========== Backup ==========
+
+    private val _backupRunning = MutableStateFlow(false)
+    val backupRunning: StateFlow<Boolean> = _backupRunning.asStateFlow()
+
+    private val _backupInfo = MutableStateFlow<BackupInfo?>(null)
+    val backupInfo: StateFlow<BackupInfo?> = _backupInfo.asStateFlow()
+
+    // Documents in the account after the last restore, null until one ran
+    private val _restoredCount = MutableStateFlow<Int?>(null)
+    val restoredCount: StateFlow<Int?> = _restoredCount.asStateFlow()
+
+    init {
+        viewModelScope.launch(Dispatchers.IO) {
+            _backupInfo.value = backups.latest()
+        }
+    }
+
+    fun backup() = runBackupTask("Backup failed") {
+        _backupInfo.value = backups.backup().info
+    }
+
+    fun restoreBackup() = runBackupTask("Restore failed") {
+        _restoredCount.value = backups.restoreLatest()
+    }
+
+    private fun runBackupTask(failure: String, task: suspend () -> Unit) = viewModelScope.launch {
+        _backupRunning.value = true
+        try {
+            task()
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            // Disk full or a damaged snapshot; a failed restore leaves the account unchanged
+            Log.w("SettingsViewModel", failure, e)
+        } finally {
+            _backupRunning.value = false
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.faisal.financecalc.viewmodel
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.core.sumOfMoney
+import com.faisal.financecalc.data.FinanceRepository
+import com.faisal.financecalc.data.ShopItem
+import com.faisal.financecalc.data.SoldItem
+import com.faisal.financecalc.ui.model.ShopItemUi
+import com.faisal.financecalc.ui.model.toShopItemUis
+import kotlinx.collections.immutable.ImmutableList
+import kotlinx.collections.immutable.persistentListOf
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.launch
+import java.util.Calendar
+
+// Shop destination: inventory and selling
+class ShopViewModel(private val repository: FinanceRepository) : ViewModel() {
+
+    val allShopItems = repository.sortedShopItems()
+        .map { it.toShopItemUis() }
+        .derived("shopItemUis")
+        .stateWhileSubscribed<ImmutableList<ShopItemUi>>(viewModelScope, persistentListOf())
+
+    val shopTotalVal = allShopItems.slice(viewModelScope, "shopTotal", Money.ZERO) { items ->
+        items.sumOfMoney { it.totalValue }
+    }
+
+    fun addShopItem(item: ShopItem) = viewModelScope.launch {
+        repository.insertShopItem(item)
+    }
+
+    fun updateShopItem(item: ShopItem) = viewModelScope.launch {
+        repository.updateShopItem(item)
+    }
+
+    fun deleteShopItem(item: ShopItem) = viewModelScope.launch {
+        repository.deleteShopItem(item)
+    }
+
+    fun sellItem(item: ShopItem, sellPrice: Money) = viewModelScope.launch {
+        val profit = sellPrice - item.purchasePrice
+        val calendar = Calendar.getInstance()
+        val month = calendar.get(Calendar.MONTH) + 1 // 0-indexed
+        val year = calendar.get(Calendar.YEAR)
+
+        // One transaction: count - 1 (item deleted at 0) and the sold record
+        repository.sellItem(item, SoldItem(
+            name = item.name,
+            profit = profit,
+            dateTimestamp = System.currentTimeMillis(),
+            month = month,
+            year = year
+        ))
+    }
+}
@@ -0,0 +1,76 @@
+package com.faisal.financecalc.viewmodel
+
+import android.util.Log
+import com.faisal.financecalc.core.inDisplayOrder
+import com.faisal.financecalc.data.FinanceEntry
+import com.faisal.financecalc.data.FinanceRepository
+import com.faisal.financecalc.data.ShopItem
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
+import java.time.YearMonth
+
+// Shared stream helpers for the feature ViewModels
+
+private const val STOP_TIMEOUT_MS = 5000L
+private const val MONTH_CHECK_INTERVAL_MS = 60_000L
+private const val TAG = "StateEmissions"
+
+private object Unset
+
+// Kept alive for a few seconds after the screen goes away (rotation), then the query stops
+internal fun <T> Flow<T>.stateWhileSubscribed(scope: CoroutineScope, initial: T): StateFlow<T> {
+    return stateIn(scope, SharingStarted.WhileSubscribed(STOP_TIMEOUT_MS), initial)
+}
+
+// Drops results that are equal to the previous one, so an unchanged list (e.g. a sync
+// re-writing the same rows) never reaches collectAsState and never recomposes.
+// Dropped emissions are counted per stream; to see how many recompositions that saves:
+// adb shell setprop log.tag.StateEmissions DEBUG
+internal fun <T> Flow<T>.distinctState(name: String): Flow<T> = flow {
+    var previous: Any? = Unset
+    var emitted = 0
+    var dropped = 0
+    collect { value ->
+        if (value == previous) {
+            dropped++
+            if (Log.isLoggable(TAG, Log.DEBUG)) Log.d(TAG, "$name: dropped $dropped of ${emitted + dropped}")
+        } else {
+            previous = value
+            emitted++
+            emit(value)
+        }
+    }
+}
+
+// Derived state is computed on Dispatchers.Default and only emits when it changed
+internal fun <T> Flow<T>.derived(name: String): Flow<T> = distinctState(name).flowOn(Dispatchers.Default)
+
+// One slice of an aggregated state, only emits when that slice changed
+internal fun <S, T> StateFlow<S>.slice(scope: CoroutineScope, name: String, initial: T, select: (S) -> T): StateFlow<T> {
+    return map(select).derived(name).stateWhileSubscribed(scope, initial)
+}
+
+internal fun FinanceRepository.sortedEntries(): Flow<List<FinanceEntry>> {
+    return getAllEntries().map { it.inDisplayOrder() }.derived("entries")
+}
+
+internal fun FinanceRepository.sortedShopItems(): Flow<List<ShopItem>> {
+    return getAllShopItems().map { it.inDisplayOrder() }.derived("shopItems")
+}
+
+// The calendar month, re-checked every minute so it rolls over without a restart
+internal fun currentMonthFlow(): Flow<YearMonth> = flow {
+    while (true) {
+        emit(YearMonth.now())
+        delay(MONTH_CHECK_INTERVAL_MS)
+    }
+}.distinctUntilChanged()
@@ -0,0 +1,64 @@
+package com.faisal.financecalc.data
+
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class SnapshotListenerRegistryTest {
+
+    private val denied = IllegalStateException("PERMISSION_DENIED")
+    private var attached = 0
+
+    // A listener that delivers one snapshot and then fails, like Firestore after a rules change
+    private val failing: () -> Flow<Int> = {
+        val listener = ++attached
+        flow {
+            emit(listener)
+            throw denied
+        }
+    }
+
+    @Test
+    fun failureReachesTheSubscriber() = runTest {
+        val registry = SnapshotListenerRegistry(backgroundScope)
+        val seen = ArrayList<Int>()
+
+        val result = runCatching { registry.stream(KEY, failing).collect { seen += it } }
+
+        assertEquals(listOf(1), seen)
+        assertEquals(denied.message, result.exceptionOrNull()?.message)
+    }
+
+    @Test
+    fun everySubscriberOfTheSharedListenerFails() = runTest {
+        val registry = SnapshotListenerRegistry(backgroundScope)
+        val streams = List(3) { registry.stream(KEY, failing) }
+
+        val results = streams.map { stream -> async { runCatching { stream.toList() } } }.awaitAll()
+
+        assertEquals(1, attached)
+        assertTrue(results.toString(), results.all { it.exceptionOrNull()?.message == denied.message })
+    }
+
+    @Test
+    fun collectingAgainAttachesANewListener() = runTest {
+        val registry = SnapshotListenerRegistry(backgroundScope)
+        runCatching { registry.stream(KEY, failing).toList() }
+
+        val seen = ArrayList<Int>()
+        runCatching { registry.stream(KEY, failing).collect { seen += it } }
+
+        assertEquals(2, attached)
+        assertEquals(listOf(2), seen)
+    }
+
+    companion object {
+        private const val KEY = "users/u/shop_items"
+    }
+}
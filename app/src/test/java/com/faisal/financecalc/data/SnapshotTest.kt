@@ -0,0 +1,130 @@
+package com.faisal.financecalc.data
+
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.fail
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+
+class SnapshotTest {
+
+    private val entry = SnapshotRecord.Entry(FinanceEntry(
+        id = 7, name = "Rent", amount = Money(-120_050), type = EntryType.EXPENSE, category = "Fixed",
+        subEntries = listOf(SubEntry("Flat", Money(100_000)), SubEntry("Garage", Money(20_050))),
+        excludedFromTotal = true, orderIndex = 3, dateTimestamp = 1_700_000_000_000L, docId = "entry-1"
+    ))
+    private val shopItem = SnapshotRecord.Shop(ShopItem(
+        id = 8, name = "Café crème", count = 4, pricePerUnit = Money(350), purchasePrice = Money(120), docId = "shop-1"
+    ))
+    private val soldItem = SnapshotRecord.Sold(SoldItem(
+        id = 9, name = "Cable", profit = Money(-25), dateTimestamp = 1_700_000_000_000L, month = 11, year = 2023, docId = "sold-1"
+    ))
+    private val card = SnapshotRecord.Card(CreditCard(
+        id = 10, holderName = "A. Holder", cardNumber = "4242", expiryDate = "12/29", balance = Money(99_900), colorTheme = 2, docId = "card-1"
+    ))
+
+    @Test
+    fun fullIncrementalAndDeletedApplyInOrder() {
+        val hashes = HashMap<String, Long>()
+        val full = write(SnapshotKind.FULL, id = 1) { writer ->
+            for (record in listOf(entry, shopItem, soldItem)) hashes[key(record)] = writer.write(record)
+        }
+
+        // Rent changed, the shop item didn't, the sale is gone and a card is new
+        val changedEntry = SnapshotRecord.Entry(entry.entry.copy(amount = Money(-125_000)))
+        val incremental = write(SnapshotKind.INCREMENTAL, id = 2, baseId = 1) { writer ->
+            writer.write(changedEntry, hashes.getValue(key(entry)))
+            writer.write(shopItem, hashes.getValue(key(shopItem)))
+            writer.write(card)
+            writer.delete(soldItem.collection, soldItem.docId)
+        }
+
+        val fullReader = SnapshotReader(ByteArrayInputStream(full))
+        assertEquals(SnapshotHeader(1, SnapshotKind.FULL, compressed = true, id = 1, baseId = 0), fullReader.header)
+        assertEquals(listOf(entry, shopItem, soldItem), readAll(fullReader))
+
+        val incrementalReader = SnapshotReader(ByteArrayInputStream(incremental))
+        assertEquals(SnapshotKind.INCREMENTAL, incrementalReader.header.kind)
+        assertEquals(1L, incrementalReader.header.baseId)
+        val changes = readAll(incrementalReader)
+        assertEquals(listOf(changedEntry, card, SnapshotRecord.Deleted(soldItem.collection, soldItem.docId)), changes)
+
+        // Applied on top of each other the way a restore does
+        val state = LinkedHashMap<String, SnapshotRecord>()
+        for (record in readAll(SnapshotReader(ByteArrayInputStream(full))) + changes) {
+            if (record is SnapshotRecord.Deleted) state.remove(key(record)) else state[key(record)] = record
+        }
+        assertEquals(setOf(changedEntry, shopItem, card), state.values.toSet())
+    }
+
+    @Test
+    fun truncatedFileFails() {
+        for (compress in listOf(true, false)) {
+            val bytes = write(SnapshotKind.FULL, id = 1, compress = compress) { writer ->
+                listOf(entry, shopItem, soldItem, card).forEach { writer.write(it) }
+            }
+            for (length in listOf(bytes.size - 1, bytes.size / 2, HEADER_SIZE + 1)) {
+                try {
+                    readAll(SnapshotReader(ByteArrayInputStream(bytes.copyOf(length))))
+                    fail("Snapshot cut to $length of ${bytes.size} bytes (compressed: $compress) was read")
+                } catch (e: IOException) {
+                    // Expected
+                }
+            }
+        }
+    }
+
+    @Test
+    fun unknownTagIsSkipped() {
+        val bytes = write(SnapshotKind.FULL, id = 1, compress = false) { writer ->
+            writer.write(entry)
+            writer.write(card)
+        }
+        // A record a newer writer could add: tag 99, three bytes of payload, before everything else
+        val unknown = byteArrayOf(99, 3, 1, 2, 3)
+        val withUnknown = bytes.copyOfRange(0, HEADER_SIZE) + unknown + bytes.copyOfRange(HEADER_SIZE, bytes.size)
+
+        val reader = SnapshotReader(ByteArrayInputStream(withUnknown))
+        assertEquals(listOf(entry, card), readAll(reader))
+        assertNull(reader.next())
+    }
+
+    @Test
+    fun chainTakesTenIncrementalsBeforeTheNextFull() {
+        // Kinds of consecutive backups, each growing the chain or starting a new one
+        var chainSize = 0
+        val kinds = List(25) {
+            val kind = if (BackupManager.extendsChain(chainSize)) SnapshotKind.INCREMENTAL else SnapshotKind.FULL
+            chainSize = if (kind == SnapshotKind.FULL) 1 else chainSize + 1
+            kind
+        }
+        assertEquals(listOf(0, 11, 22), kinds.indices.filter { kinds[it] == SnapshotKind.FULL })
+    }
+
+    private fun write(
+        kind: SnapshotKind,
+        id: Long,
+        baseId: Long = 0L,
+        compress: Boolean = true,
+        records: (SnapshotWriter) -> Unit
+    ): ByteArray {
+        val output = ByteArrayOutputStream()
+        SnapshotWriter(output, kind, id, baseId, compress).use(records)
+        return output.toByteArray()
+    }
+
+    private fun readAll(reader: SnapshotReader): List<SnapshotRecord> {
+        return reader.use { generateSequence { it.next() }.toList() }
+    }
+
+    private fun key(record: SnapshotRecord) = "${record.collection}/${record.docId}"
+
+    companion object {
+        // Magic, version, kind, flags, id, baseId
+        private const val HEADER_SIZE = 4 + 1 + 1 + 1 + 8 + 8
+    }
+}
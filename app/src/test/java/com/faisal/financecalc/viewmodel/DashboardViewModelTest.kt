@@ -0,0 +1,72 @@
+package com.faisal.financecalc.viewmodel
+
+import com.faisal.financecalc.core.EntryType
+import com.faisal.financecalc.core.Money
+import com.faisal.financecalc.data.FinanceEntry
+import com.faisal.financecalc.data.ShopItem
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.test.UnconfinedTestDispatcher
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runTest
+import kotlinx.coroutines.test.setMain
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.withTimeoutOrNull
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class DashboardViewModelTest {
+
+    private val main = UnconfinedTestDispatcher()
+
+    // The shared entries state as DashboardViewModel holds it: null until Room has answered
+    private val entries = MutableStateFlow<List<FinanceEntry>?>(null)
+    private val shopItems = flowOf(listOf(ShopItem(name = "ps5", count = 1, purchasePrice = Money(29_000), docId = "i1")))
+    private val profit = flowOf(Money(4_000))
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(main)
+    }
+
+    @After
+    fun tearDown() {
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun nothingIsEmittedBeforeTheEntries() = runTest(main) {
+        // Shop items and profit are there, the entries aren't: no snapshot of an empty ledger.
+        // Real time on Dispatchers.Default, where derived() does the work.
+        val snapshot = withContext(Dispatchers.Default) {
+            withTimeoutOrNull(WAIT_MS) { dashboardSnapshots(entries, shopItems, profit).first() }
+        }
+        assertNull(snapshot)
+    }
+
+    @Test
+    fun firstSnapshotIsBuiltFromTheEntries() = runTest(main) {
+        val first = async { dashboardSnapshots(entries, shopItems, profit).first() }
+        entries.value = listOf(
+            FinanceEntry(name = "Sparkasse", amount = Money(150_000), type = EntryType.INCOME, docId = "e1"),
+            FinanceEntry(name = "Car", amount = Money(19_000), type = EntryType.EXPENSE, docId = "e2")
+        )
+
+        val snapshot = first.await()
+        assertEquals(listOf("Sparkasse"), snapshot.incomeEntries.map { it.name })
+        assertEquals(Money(150_000), snapshot.totalIncome)
+        assertEquals(Money(19_000), snapshot.totalExpense)
+    }
+
+    companion object {
+        private const val WAIT_MS = 300L
+    }
+}
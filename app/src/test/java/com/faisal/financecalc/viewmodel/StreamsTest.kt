@@ -0,0 +1,52 @@
+package com.faisal.financecalc.viewmodel
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.test.UnconfinedTestDispatcher
+import kotlinx.coroutines.test.resetMain
+import kotlinx.coroutines.test.runTest
+import kotlinx.coroutines.test.setMain
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.Collections
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class StreamsTest {
+
+    private val main = UnconfinedTestDispatcher()
+
+    @Before
+    fun setUp() {
+        Dispatchers.setMain(main)
+    }
+
+    @After
+    fun tearDown() {
+        Dispatchers.resetMain()
+    }
+
+    @Test
+    fun derivedDropsUnchangedEmissions() = runTest(main) {
+        val emitted = flowOf(listOf(1), listOf(1), listOf(1, 2), listOf(1, 2), listOf(1)).derived("test").toList()
+        assertEquals(listOf(listOf(1), listOf(1, 2), listOf(1)), emitted)
+    }
+
+    @Test
+    fun derivedWorkRunsOffMain() = runTest(main) {
+        val threads = Collections.synchronizedList(ArrayList<String>())
+        val collectorThread = Thread.currentThread().name
+        flowOf(1, 2, 3)
+            .onEach { threads += Thread.currentThread().name }
+            .derived("test")
+            .toList()
+
+        assertEquals(3, threads.size)
+        assertTrue(threads.toString(), threads.all { it.startsWith("DefaultDispatcher-worker") && it != collectorThread })
+    }
+}
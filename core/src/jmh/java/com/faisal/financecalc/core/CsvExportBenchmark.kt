@@ -0,0 +1,57 @@
+package com.faisal.financecalc.core
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.io.Writer
+import java.util.concurrent.TimeUnit
+
+// Export: the CSV of the whole ledger, as one string and streamed to a writer
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class CsvExportBenchmark {
+
+    @Param("1000", "100000", "1000000")
+    @JvmField
+    var size = 0
+
+    private lateinit var entries: List<BenchEntry>
+    private lateinit var shopItems: List<BenchItem>
+
+    @Setup
+    fun setUp() {
+        entries = SyntheticLedger.entries(size)
+        shopItems = SyntheticLedger.shopItems(size / 2)
+    }
+
+    @Benchmark
+    fun build(): String = LedgerCsv.build(entries, shopItems)
+
+    @Benchmark
+    fun stream(): Long {
+        val out = CountingWriter()
+        val writer = out.buffered(8192)
+        LedgerCsv.write(entries, shopItems, writer)
+        writer.flush()
+        return out.count
+    }
+
+    // Counts what would be written to the file
+    private class CountingWriter : Writer() {
+        var count = 0L
+
+        override fun write(cbuf: CharArray, off: Int, len: Int) {
+            count += len
+        }
+
+        override fun flush() {}
+
+        override fun close() {}
+    }
+}
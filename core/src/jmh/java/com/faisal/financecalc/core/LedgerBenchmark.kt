@@ -0,0 +1,50 @@
+package com.faisal.financecalc.core
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+// Aggregation: what every ledger change costs the dashboard and the list screens
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class LedgerBenchmark {
+
+    @Param("1000", "100000", "1000000")
+    @JvmField
+    var size = 0
+
+    private lateinit var entries: List<BenchEntry>
+    private lateinit var shopItems: List<BenchItem>
+
+    @Setup
+    fun setUp() {
+        entries = SyntheticLedger.entries(size)
+        shopItems = SyntheticLedger.shopItems(size)
+    }
+
+    @Benchmark
+    fun summary(): LedgerSummary<BenchEntry> {
+        return LedgerSummary.of(entries, Inventory.stockValue(shopItems)) { entry, value -> entry.copy(amount = value) }
+    }
+
+    // Money results are returned as longs: JMH can't call the name-mangled functions
+    // Kotlin generates for value class return types
+
+    @Benchmark
+    fun balance(): Long {
+        return LedgerSummary.of(entries, Money.ZERO) { entry, _ -> entry }.balance(Money.ZERO).minor
+    }
+
+    @Benchmark
+    fun stockValue(): Long = Inventory.stockValue(shopItems).minor
+
+    @Benchmark
+    fun sumOfMoney(): Long = entries.sumOfMoney { it.amount }.minor
+}
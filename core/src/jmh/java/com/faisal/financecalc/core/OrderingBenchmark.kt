@@ -0,0 +1,44 @@
+package com.faisal.financecalc.core
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+// Sorting: display order of the lists, run on every emission of the entries/shop streams.
+// sortedByOrderIndex is the sortedBy { it.orderIndex } the streams used before.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class OrderingBenchmark {
+
+    @Param("1000", "100000", "1000000")
+    @JvmField
+    var size = 0
+
+    private lateinit var ordered: List<BenchEntry>
+    private lateinit var shuffled: List<BenchEntry>
+
+    @Setup
+    fun setUp() {
+        ordered = SyntheticLedger.entries(size)
+        shuffled = SyntheticLedger.shuffled(ordered)
+    }
+
+    @Benchmark
+    fun inDisplayOrderSorted(): List<BenchEntry> = ordered.inDisplayOrder()
+
+    @Benchmark
+    fun inDisplayOrderShuffled(): List<BenchEntry> = shuffled.inDisplayOrder()
+
+    @Benchmark
+    fun sortedByOrderIndexSorted(): List<BenchEntry> = ordered.sortedBy { it.orderIndex }
+
+    @Benchmark
+    fun sortedByOrderIndexShuffled(): List<BenchEntry> = shuffled.sortedBy { it.orderIndex }
+}
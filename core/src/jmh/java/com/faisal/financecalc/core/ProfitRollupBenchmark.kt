@@ -0,0 +1,37 @@
+package com.faisal.financecalc.core
+
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+// Grouping: monthly profit rollups, rebuilt from all sales when they are repaired/verified
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class ProfitRollupBenchmark {
+
+    @Param("1000", "100000", "1000000")
+    @JvmField
+    var size = 0
+
+    private lateinit var sales: List<BenchSale>
+    private lateinit var rollups: Map<String, ProfitRollup>
+
+    @Setup
+    fun setUp() {
+        sales = SyntheticLedger.sales(size)
+        rollups = ProfitRollups.compute(sales)
+    }
+
+    @Benchmark
+    fun compute(): Map<String, ProfitRollup> = ProfitRollups.compute(sales)
+
+    @Benchmark
+    fun computeAndCompare(): List<RollupMismatch> = ProfitRollups.compare(ProfitRollups.compute(sales), rollups)
+}
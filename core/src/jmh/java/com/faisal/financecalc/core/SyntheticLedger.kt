@@ -0,0 +1,82 @@
+package com.faisal.financecalc.core
+
+import java.util.Random
+
+// Plain implementations of the record interfaces with the shapes the app stores, generated
+// from a fixed seed so every run measures the same data
+
+data class BenchEntry(
+    override val name: String,
+    override val amount: Money,
+    override val type: EntryType,
+    override val category: String,
+    override val isAutoCalculated: Boolean,
+    override val excludedFromTotal: Boolean,
+    override val orderIndex: Int
+) : LedgerRecord
+
+data class BenchItem(
+    override val name: String,
+    override val count: Int,
+    override val pricePerUnit: Money,
+    override val purchasePrice: Money,
+    override val orderIndex: Int,
+    override val category: String
+) : StockRecord
+
+data class BenchSale(
+    override val profit: Money,
+    override val month: Int,
+    override val year: Int
+) : SaleRecord
+
+object SyntheticLedger {
+    private val TYPES = EntryType.values()
+    private val ENTRY_CATEGORIES = arrayOf("Account", "Cash", "Shop", "Family", "Shopping", "Transport", "Savings", "Other")
+    private val SHOP_CATEGORIES = arrayOf("Xbox", "Playstation", "Nintendo", "PC", "Phones", "Tablets", "Audio", "Cameras", "Games", "Accessories")
+
+    // Entries in display order, like the lists usually come from the store
+    fun entries(size: Int, seed: Long = 42): List<BenchEntry> {
+        val random = Random(seed)
+        return List(size) { i ->
+            BenchEntry(
+                // Every 50th name needs quoting in the CSV
+                name = if (i % 50 == 0) "Entry $i, split" else "Entry $i",
+                amount = Money(random.nextInt(500_000).toLong()),
+                type = TYPES[random.nextInt(TYPES.size)],
+                category = ENTRY_CATEGORIES[random.nextInt(ENTRY_CATEGORIES.size)],
+                isAutoCalculated = i == 10,
+                excludedFromTotal = random.nextInt(20) == 0,
+                orderIndex = i
+            )
+        }
+    }
+
+    fun shopItems(size: Int, seed: Long = 43): List<BenchItem> {
+        val random = Random(seed)
+        return List(size) { i ->
+            BenchItem(
+                name = "Item $i",
+                count = 1 + random.nextInt(5),
+                pricePerUnit = Money.ZERO, // Not used by the app anymore, as in the real data
+                purchasePrice = Money(5_000L + random.nextInt(40_000)),
+                orderIndex = i,
+                category = SHOP_CATEGORIES[random.nextInt(SHOP_CATEGORIES.size)]
+            )
+        }
+    }
+
+    // Sales spread over ten years
+    fun sales(size: Int, seed: Long = 44): List<BenchSale> {
+        val random = Random(seed)
+        return List(size) {
+            BenchSale(
+                profit = Money(random.nextInt(20_000).toLong() - 2_000),
+                month = 1 + random.nextInt(12),
+                year = 2016 + random.nextInt(10)
+            )
+        }
+    }
+
+    fun <T> shuffled(list: List<T>, seed: Long = 45): List<T> = list.shuffled(Random(seed))
+}
@@ -0,0 +1,86 @@
+package com.faisal.financecalc.core
+
+import java.io.Reader
+
+// Streaming CSV parser (RFC 4180: quoted fields, "" inside quotes, line breaks in quotes).
+// Reads one row at a time from the reader, so a statement of any length is parsed with the
+// memory of a single row.
+class CsvReader(private val reader: Reader, private val delimiter: Char = ',') {
+
+    private val field = StringBuilder()
+    private var pending = -2 // One character of lookahead, -2 = none
+
+    // The next row, null at the end of the input. Blank lines are skipped.
+    fun readRow(): List<String>? {
+        val row = ArrayList<String>()
+        field.setLength(0)
+        var inQuotes = false
+        var sawAnything = false
+        while (true) {
+            val c = next()
+            if (c == -1) {
+                if (!sawAnything) return null
+                row += field.toString()
+                return row
+            }
+            val ch = c.toChar()
+            if (inQuotes) {
+                if (ch == '"') {
+                    if (peek() == '"'.code) {
+                        next()
+                        field.append('"')
+                    } else {
+                        inQuotes = false
+                    }
+                } else {
+                    field.append(ch)
+                }
+                continue
+            }
+            when (ch) {
+                '"' -> {
+                    inQuotes = true
+                    sawAnything = true
+                }
+                delimiter -> {
+                    row += field.toString()
+                    field.setLength(0)
+                    sawAnything = true
+                }
+                '\r', '\n' -> {
+                    if (ch == '\r' && peek() == '\n'.code) next()
+                    if (!sawAnything) continue
+                    row += field.toString()
+                    return row
+                }
+                else -> {
+                    field.append(ch)
+                    sawAnything = true
+                }
+            }
+        }
+    }
+
+    private fun next(): Int {
+        if (pending != -2) {
+            val c = pending
+            pending = -2
+            return c
+        }
+        return reader.read()
+    }
+
+    private fun peek(): Int {
+        if (pending == -2) pending = reader.read()
+        return pending
+    }
+
+    companion object {
+        // Bank exports use ';' (decimal comma locales), ',' or tabs; the one that occurs most
+        // in the header line wins
+        fun detectDelimiter(headerLine: String): Char {
+            val best = listOf(';', ',', '\t').maxByOrNull { d -> headerLine.count { it == d } } ?: ','
+            return if (headerLine.indexOf(best) >= 0) best else ','
+        }
+    }
+}
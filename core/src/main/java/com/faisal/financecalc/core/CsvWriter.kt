@@ -0,0 +1,73 @@
+package com.faisal.financecalc.core
+
+// Writes CSV field by field to any Appendable (StringBuilder, Writer). Nothing is buffered
+// here, so a whole export can stream straight into a file.
+class CsvWriter(private val out: Appendable) {
+
+    private var rowStarted = false
+
+    fun field(value: String): CsvWriter {
+        separator()
+        appendQuoted(value)
+        return this
+    }
+
+    // Same text as Money.toPlainString() ("120", "12.5", "-0.05") without a BigDecimal per amount
+    fun amount(value: Money): CsvWriter {
+        separator()
+        val minor = value.minor
+        if (minor < 0) out.append('-')
+        val abs = Math.abs(minor)
+        out.append((abs / 100).toString())
+        val cents = (abs % 100).toInt()
+        if (cents != 0) {
+            out.append('.').append('0' + cents / 10)
+            if (cents % 10 != 0) out.append('0' + cents % 10)
+        }
+        return this
+    }
+
+    fun number(value: Long): CsvWriter {
+        separator()
+        out.append(value.toString())
+        return this
+    }
+
+    fun endRow() {
+        out.append('\n')
+        rowStarted = false
+    }
+
+    // A line written as it is (section titles, header rows, blank lines)
+    fun line(text: String = "") {
+        out.append(text).append('\n')
+        rowStarted = false
+    }
+
+    private fun separator() {
+        if (rowStarted) out.append(',')
+        rowStarted = true
+    }
+
+    // Values with a comma, quote or line break are quoted (RFC 4180), otherwise they
+    // would shift the columns
+    private fun appendQuoted(value: String) {
+        var needsQuotes = false
+        for (c in value) {
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true
+                break
+            }
+        }
+        if (!needsQuotes) {
+            out.append(value)
+            return
+        }
+        out.append('"')
+        for (c in value) {
+            if (c == '"') out.append('"')
+            out.append(c)
+        }
+        out.append('"')
+    }
+}
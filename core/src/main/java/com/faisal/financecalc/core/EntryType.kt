@@ -0,0 +1,7 @@
+package com.faisal.financecalc.core
+
+enum class EntryType {
+    INCOME, // Sources like Sparkasse, DKB, Temu
+    EXPENSE, // Destinations like Car, Save, Baba
+    DEBT    // Schulden
+}
@@ -0,0 +1,11 @@
+package com.faisal.financecalc.core
+
+object Inventory {
+
+    // Stock at purchase price, on a plain long
+    fun stockValue(items: Iterable<StockRecord>): Money {
+        var total = 0L
+        for (item in items) total += item.count * item.purchasePrice.minor
+        return Money(total)
+    }
+}
@@ -0,0 +1,40 @@
+package com.faisal.financecalc.core
+
+// The ledger as CSV for the export. The section and row functions let the app stream rows
+// page by page from the database (FinanceRepository.exportCsv in :app); write/build cover data
+// that is already in memory.
+object LedgerCsv {
+
+    fun entriesHeader(csv: CsvWriter) {
+        csv.line("Type,Name,Amount,Category")
+    }
+
+    fun entry(csv: CsvWriter, entry: LedgerRecord) {
+        csv.field(entry.type.name).field(entry.name).amount(entry.amount).field(entry.category).endRow()
+    }
+
+    fun shopItemsHeader(csv: CsvWriter) {
+        csv.line()
+        csv.line("SHOP ITEMS")
+    }
+
+    fun shopItem(csv: CsvWriter, item: StockRecord) {
+        csv.field("Item").field(item.name).number(item.count.toLong()).amount(item.pricePerUnit)
+            .amount(item.pricePerUnit * item.count).endRow()
+    }
+
+    fun write(entries: Iterable<LedgerRecord>, shopItems: Iterable<StockRecord>, out: Appendable) {
+        val csv = CsvWriter(out)
+        entriesHeader(csv)
+        for (entry in entries) entry(csv, entry)
+        shopItemsHeader(csv)
+        for (item in shopItems) shopItem(csv, item)
+    }
+
+    fun build(entries: Collection<LedgerRecord>, shopItems: Collection<StockRecord>): String {
+        // Roughly 40 characters per row, so the builder doesn't grow step by step
+        val sb = StringBuilder(64 + (entries.size + shopItems.size) * 40)
+        write(entries, shopItems, sb)
+        return sb.toString()
+    }
+}
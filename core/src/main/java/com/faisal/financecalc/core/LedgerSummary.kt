@@ -0,0 +1,77 @@
+package com.faisal.financecalc.core
+
+// The ledger split by type with its totals, computed in one pass per change instead of one
+// filter/sum per figure. The sums run on plain longs (minor units), Money is only created
+// for the result.
+data class LedgerSummary<T : LedgerRecord>(
+    val incomeEntries: List<T> = emptyList(),
+    val expenseEntries: List<T> = emptyList(),
+    val debtEntries: List<T> = emptyList(),
+    val totalIncome: Money = Money.ZERO, // Without excluded and auto-calculated entries
+    val totalExpense: Money = Money.ZERO,
+    val totalDebt: Money = Money.ZERO,
+    val excludedIncome: Money = Money.ZERO, // Entries marked "not counted"
+    val excludedExpense: Money = Money.ZERO,
+    val excludedDebt: Money = Money.ZERO,
+    val shopValue: Money = Money.ZERO // Inventory at purchase price
+) {
+    // Balance = (Income + Debt - Expense - MonthlyProfit) + ShopInventoryValue
+    fun balance(currentMonthProfit: Money): Money {
+        return totalIncome + totalDebt - totalExpense - currentMonthProfit + shopValue
+    }
+
+    companion object {
+        // entries are expected in display order (orderIndex). The auto-calculated "Shop"
+        // income entry shows the inventory value; withAmount makes that copy of it.
+        fun <T : LedgerRecord> of(entries: List<T>, shopValue: Money, withAmount: (T, Money) -> T): LedgerSummary<T> {
+            val income = ArrayList<T>()
+            val expense = ArrayList<T>()
+            val debt = ArrayList<T>()
+            var totalIncome = 0L
+            var totalExpense = 0L
+            var totalDebt = 0L
+            var excludedIncome = 0L
+            var excludedExpense = 0L
+            var excludedDebt = 0L
+
+            for (entry in entries) {
+                val amount = entry.amount.minor
+                when (entry.type) {
+                    EntryType.INCOME -> {
+                        if (entry.isAutoCalculated && entry.category == "Shop") {
+                            income += withAmount(entry, shopValue)
+                            if (entry.excludedFromTotal) excludedIncome += shopValue.minor
+                        } else {
+                            income += entry
+                            when {
+                                entry.excludedFromTotal -> excludedIncome += amount
+                                !entry.isAutoCalculated -> totalIncome += amount
+                            }
+                        }
+                    }
+                    EntryType.EXPENSE -> {
+                        expense += entry
+                        if (entry.excludedFromTotal) excludedExpense += amount else totalExpense += amount
+                    }
+                    EntryType.DEBT -> {
+                        debt += entry
+                        if (entry.excludedFromTotal) excludedDebt += amount else totalDebt += amount
+                    }
+                }
+            }
+
+            return LedgerSummary(
+                incomeEntries = income,
+                expenseEntries = expense,
+                debtEntries = debt,
+                totalIncome = Money(totalIncome),
+                totalExpense = Money(totalExpense),
+                totalDebt = Money(totalDebt),
+                excludedIncome = Money(excludedIncome),
+                excludedExpense = Money(excludedExpense),
+                excludedDebt = Money(excludedDebt),
+                shopValue = shopValue
+            )
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.faisal.financecalc.core
+
+import java.math.BigDecimal
+import java.math.RoundingMode
+
+// An amount in minor units (cents). Doubles drifted when many amounts were added up
+// (0.1 + 0.2 != 0.3); longs add up exactly. As a value class it is a plain long at runtime,
+// so the arithmetic below doesn't allocate.
+// Room stores it as its INTEGER column (value class support in Room's KSP processor),
+// Firestore as Long fields with a "Minor" suffix (see EntityCodecs in :app).
+@JvmInline
+value class Money(val minor: Long) : Comparable<Money> {
+
+    operator fun plus(other: Money): Money = Money(minor + other.minor)
+
+    operator fun minus(other: Money): Money = Money(minor - other.minor)
+
+    operator fun times(count: Int): Money = Money(minor * count)
+
+    operator fun unaryMinus(): Money = Money(-minor)
+
+    override fun compareTo(other: Money): Int = minor.compareTo(other.minor)
+
+    val isZero: Boolean get() = minor == 0L
+
+    // Only for drawing (chart heights etc.), never for sums
+    fun toDouble(): Double = minor / 100.0
+
+    // "1234.50", in the device locale like the String.format("%.2f") the screens used before
+    fun format(decimals: Int = 2): String = String.format("%.${decimals}f", BigDecimal.valueOf(minor, 2))
+
+    // "120", "12.5": no trailing zeros, as amounts are shown in the lists
+    fun toPlainString(): String = BigDecimal.valueOf(minor, 2).stripTrailingZeros().toPlainString()
+
+    // Text for edit fields, empty for zero so the field shows its hint
+    fun toInputText(): String = if (minor == 0L) "" else toPlainString()
+
+    override fun toString(): String = toPlainString()
+
+    companion object {
+        val ZERO = Money(0)
+
+        // From an amount in major units (stored data from before minor units, seed values)
+        fun of(major: Double): Money = Money(Math.round(major * 100))
+
+        // User input, "12,5" and "12.5" both work; null if it isn't a number
+        fun parse(text: String): Money? {
+            val value = text.trim().replace(',', '.').toBigDecimalOrNull() ?: return null
+            return Money(value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).toLong())
+        }
+    }
+}
+
+// Sums on a primitive long, no Money is boxed along the way
+inline fun <T> Iterable<T>.sumOfMoney(selector: (T) -> Money): Money {
+    var total = 0L
+    for (element in this) total += selector(element).minor
+    return Money(total)
+}
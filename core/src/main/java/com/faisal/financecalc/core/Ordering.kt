@@ -0,0 +1,14 @@
+package com.faisal.financecalc.core
+
+// Compares the ints directly, compareBy { it.orderIndex } would box every key
+private val DISPLAY_ORDER = Comparator<Ordered> { a, b -> a.orderIndex.compareTo(b.orderIndex) }
+
+// The list in display order. Lists from the store are mostly in order already, that is
+// checked in one pass and the list returned as it is. The sort is stable, rows with the
+// same orderIndex keep their order.
+fun <T : Ordered> List<T>.inDisplayOrder(): List<T> {
+    for (i in 1 until size) {
+        if (this[i].orderIndex < this[i - 1].orderIndex) return sortedWith(DISPLAY_ORDER)
+    }
+    return this
+}
@@ -0,0 +1,55 @@
+package com.faisal.financecalc.core
+
+import java.util.Locale
+
+// Pre-aggregated profit of one month, stored at users/{uid}/profitRollups/{yyyy-MM}.
+// Kept up to date with FieldValue.increment whenever a sold item is written.
+data class ProfitRollup(
+    val month: Int = 0,
+    val year: Int = 0,
+    val profit: Money = Money.ZERO,
+    val count: Long = 0
+)
+
+data class RollupMismatch(
+    val key: String,
+    val expected: ProfitRollup, // count == 0 means the rollup should not exist
+    val actual: ProfitRollup?
+)
+
+object ProfitRollups {
+    fun key(month: Int, year: Int): String = String.format(Locale.US, "%04d-%02d", year, month)
+
+    // Sums per month in a running accumulator (keyed year * 100 + month) instead of a new
+    // ProfitRollup per item; the document keys are only formatted once per month at the end.
+    fun compute(items: Iterable<SaleRecord>): Map<String, ProfitRollup> {
+        val sums = HashMap<Int, LongArray>()
+        for (item in items) {
+            val sum = sums.getOrPut(item.year * 100 + item.month) { LongArray(2) }
+            sum[0] += item.profit.minor
+            sum[1]++
+        }
+        val rollups = HashMap<String, ProfitRollup>(sums.size * 2)
+        for ((month, sum) in sums) {
+            val rollup = ProfitRollup(month % 100, month / 100, Money(sum[0]), sum[1])
+            rollups[key(rollup.month, rollup.year)] = rollup
+        }
+        return rollups
+    }
+
+    fun compare(expected: Map<String, ProfitRollup>, actual: Map<String, ProfitRollup>): List<RollupMismatch> {
+        val mismatches = mutableListOf<RollupMismatch>()
+        for ((key, rollup) in expected) {
+            val stored = actual[key]
+            if (stored == null || stored.count != rollup.count || stored.profit != rollup.profit) {
+                mismatches += RollupMismatch(key, rollup, stored)
+            }
+        }
+        for ((key, stored) in actual) {
+            if (key !in expected && (stored.count != 0L || !stored.profit.isZero)) {
+                mismatches += RollupMismatch(key, ProfitRollup(stored.month, stored.year), stored)
+            }
+        }
+        return mismatches
+    }
+}
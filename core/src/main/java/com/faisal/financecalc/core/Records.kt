@@ -0,0 +1,31 @@
+package com.faisal.financecalc.core
+
+// What the ledger math needs to know about the app's entities. The Room entities in :app
+// implement these, so this module stays free of Android and can be benchmarked on any JVM.
+
+interface Ordered {
+    val orderIndex: Int
+}
+
+interface LedgerRecord : Ordered {
+    val name: String
+    val amount: Money
+    val type: EntryType
+    val category: String
+    val isAutoCalculated: Boolean
+    val excludedFromTotal: Boolean
+}
+
+interface StockRecord : Ordered {
+    val name: String
+    val count: Int
+    val pricePerUnit: Money
+    val purchasePrice: Money
+    val category: String
+}
+
+interface SaleRecord {
+    val profit: Money
+    val month: Int // 1-12
+    val year: Int
+}
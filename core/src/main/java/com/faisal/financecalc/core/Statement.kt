@@ -0,0 +1,139 @@
+package com.faisal.financecalc.core
+
+import java.io.BufferedReader
+import java.io.Reader
+import java.io.StringReader
+import java.time.LocalDate
+import java.time.ZoneId
+import java.time.format.DateTimeFormatter
+import java.time.format.DateTimeParseException
+
+// What a statement import turns into: entries (income/expense by sign) or sales (profit)
+enum class ImportTarget { ENTRIES, SOLD_ITEMS }
+
+// User-defined mapping of statement columns, 0-based; categoryColumn -1 = none
+data class StatementRules(
+    val dateColumn: Int = 0,
+    val nameColumn: Int = 1,
+    val amountColumn: Int = 2,
+    val categoryColumn: Int = -1,
+    val datePattern: String = "dd.MM.yyyy",
+    val hasHeader: Boolean = true,
+    val target: ImportTarget = ImportTarget.ENTRIES
+)
+
+// One booking of a statement, amount signed (negative = money out)
+data class StatementLine(
+    val date: LocalDate,
+    val name: String,
+    val amount: Money,
+    val category: String
+) {
+    val dateTimestamp: Long get() = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()
+
+    // Content of the booking; occurrence tells identical bookings of the same day apart
+    // (two coffees at the same price), so they aren't taken for duplicates of each other
+    fun fingerprint(occurrence: Int): String = "$date|${amount.minor}|${name.trim()}|${category.trim()}|$occurrence"
+}
+
+// Statement bookings one at a time (CSV here, CAMT in :app), pulled by the importer
+interface StatementSource {
+    // The next booking, null at the end
+    fun next(): StatementLine?
+
+    // Rows skipped so far because they didn't fit the rules (no date or amount)
+    val unreadable: Int
+}
+
+object StatementCsv {
+
+    // Streams the statement row by row with the column rules. The delimiter is sniffed from
+    // the first line, which is then skipped as the header or parsed as the first row; no
+    // rewinding, so the line can be as long as it likes.
+    fun open(input: BufferedReader, rules: StatementRules): StatementSource {
+        val firstLine = input.readLine().orEmpty()
+        val rows = if (rules.hasHeader) input else Prepended(firstLine + "\n", input)
+        val csv = CsvReader(rows, CsvReader.detectDelimiter(firstLine))
+        val dateFormat = DateTimeFormatter.ofPattern(rules.datePattern)
+
+        return object : StatementSource {
+            override var unreadable = 0
+                private set
+
+            override fun next(): StatementLine? {
+                while (true) {
+                    val row = csv.readRow() ?: return null
+                    val line = parse(row, rules, dateFormat)
+                    if (line != null) return line
+                    unreadable++
+                }
+            }
+        }
+    }
+
+    private fun parse(row: List<String>, rules: StatementRules, dateFormat: DateTimeFormatter): StatementLine? {
+        val date = try {
+            LocalDate.parse(row.getOrNull(rules.dateColumn)?.trim() ?: return null, dateFormat)
+        } catch (e: DateTimeParseException) {
+            return null
+        }
+        val amount = parseAmount(row.getOrNull(rules.amountColumn) ?: return null) ?: return null
+        return StatementLine(
+            date = date,
+            name = row.getOrNull(rules.nameColumn)?.trim().orEmpty(),
+            amount = amount,
+            category = if (rules.categoryColumn >= 0) row.getOrNull(rules.categoryColumn)?.trim().orEmpty() else ""
+        )
+    }
+
+    // "1.234,56", "1,234.56", "-12,50", "12,50-", "€ 3,00": the last '.' or ',' followed by
+    // one or two digits is the decimal separator, other separators group thousands.
+    // Null for more than two decimals ("0.001", "1.2345"), which Money can't hold.
+    fun parseAmount(text: String): Money? {
+        var negative = false
+        val digits = StringBuilder(text.length)
+        for (c in text) {
+            when {
+                c.isDigit() || c == '.' || c == ',' -> digits.append(c)
+                c == '-' || c == '−' -> negative = true
+            }
+        }
+        if (digits.isEmpty()) return null
+        val lastSeparator = maxOf(digits.lastIndexOf("."), digits.lastIndexOf(","))
+        val decimals = digits.length - lastSeparator - 1
+        val normalized = when {
+            lastSeparator < 0 || decimals == 0 -> digits.filter { it.isDigit() }.toString()
+            decimals in 1..2 -> digits.substring(0, lastSeparator).filter { it.isDigit() } + "." + digits.substring(lastSeparator + 1)
+            isGrouped(digits.toString(), digits[lastSeparator]) -> digits.filter { it.isDigit() }.toString()
+            else -> return null
+        }
+        val amount = Money.parse(normalized) ?: return null
+        return if (negative) -amount else amount
+    }
+
+    // "1.234", "12,345,678": thousands groups with one separator, no leading zero
+    private fun isGrouped(digits: String, separator: Char): Boolean {
+        val groups = digits.split(separator)
+        val first = groups.first()
+        return first.length in 1..3 && first.all { it.isDigit() } && first[0] != '0' &&
+            groups.drop(1).all { group -> group.length == 3 && group.all { it.isDigit() } }
+    }
+
+    // text, then the rest of reader
+    private class Prepended(text: String, private val reader: Reader) : Reader() {
+        private var head: Reader? = StringReader(text)
+
+        override fun read(buffer: CharArray, offset: Int, length: Int): Int {
+            head?.let { head ->
+                val read = head.read(buffer, offset, length)
+                if (read > 0) return read
+                this.head = null
+            }
+            return reader.read(buffer, offset, length)
+        }
+
+        override fun close() {
+            reader.close()
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.faisal.financecalc.macrobenchmark
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Collects the Baseline Profile for :app from the paths used every day: startup into the
+// dashboard, the ledger and shop lists, and selling an item.
+// Needs a rooted device or an emulator (userdebug). Copy the generated
+// *-baseline-prof.txt from the connected_android_test_additional_output directory to
+// app/src/main/baseline-prof.txt.
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+
+    @get:Rule
+    val baselineProfileRule = BaselineProfileRule()
+
+    @Test
+    fun generate() = baselineProfileRule.collect(packageName = TARGET_PACKAGE) {
+        loadSyntheticData()
+        pressHome()
+        startActivityAndWait()
+        waitForDashboard()
+
+        openTab("income")
+        scrollList("entry_list")
+        openTab("expenses")
+        scrollList("entry_list")
+        openTab("debts")
+        scrollList("entry_list")
+
+        openTab("shop")
+        scrollList("shop_list")
+        sellFirstShopItem()
+
+        openTab("home")
+        waitForDashboard()
+    }
+}
@@ -0,0 +1,63 @@
+package com.faisal.financecalc.macrobenchmark
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.UiObject2
+import androidx.test.uiautomator.Until
+
+const val TARGET_PACKAGE = "com.faisal.financecalc"
+
+private const val TIMEOUT_MS = 10_000L
+
+// Loads the synthetic ledger through the benchmark build's BenchmarkDataActivity and
+// turns on local mode, so no login or network is involved
+fun MacrobenchmarkScope.loadSyntheticData(entries: Int = 1000, shopItems: Int = 500) {
+    device.executeShellCommand(
+        "am start -W -n $TARGET_PACKAGE/.BenchmarkDataActivity --ei entries $entries --ei shopItems $shopItems"
+    )
+}
+
+// ========== Journeys ==========
+
+fun MacrobenchmarkScope.waitForDashboard() {
+    device.wait(Until.hasObject(By.res("dashboard")), TIMEOUT_MS)
+    device.waitForIdle()
+}
+
+fun MacrobenchmarkScope.openTab(route: String) {
+    device.findObject(By.res("nav_$route")).click()
+    device.waitForIdle()
+}
+
+fun MacrobenchmarkScope.scrollList(tag: String) {
+    val list = findList(tag)
+    // Keep the fling away from the system gesture area at the edges
+    list.setGestureMargin(device.displayWidth / 5)
+    repeat(3) {
+        list.fling(Direction.DOWN)
+        device.waitForIdle()
+    }
+    list.fling(Direction.UP)
+    device.waitForIdle()
+}
+
+// Opens the sell dialog on the first shop item and sells one unit
+fun MacrobenchmarkScope.sellFirstShopItem() {
+    val list = findList("shop_list")
+    list.findObject(By.desc("Delete")).click()
+
+    device.wait(Until.hasObject(By.res("sell_price")), TIMEOUT_MS)
+    device.findObject(By.res("sell_price")).apply {
+        click()
+        text = "99.50"
+    }
+    device.findObject(By.res("sell_confirm")).click()
+    device.wait(Until.gone(By.res("sell_confirm")), TIMEOUT_MS)
+    device.waitForIdle()
+}
+
+private fun MacrobenchmarkScope.findList(tag: String): UiObject2 {
+    device.wait(Until.hasObject(By.res(tag)), TIMEOUT_MS)
+    return device.findObject(By.res(tag)) ?: error("No '$tag' on screen")
+}
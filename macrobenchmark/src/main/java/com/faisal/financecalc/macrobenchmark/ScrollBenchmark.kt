@@ -0,0 +1,44 @@
+package com.faisal.financecalc.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Frame times while flinging through the large synthetic lists (1000 entries, 500 shop items)
+@RunWith(AndroidJUnit4::class)
+class ScrollBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun scrollIncomeList() = scroll(tab = "income", list = "entry_list")
+
+    @Test
+    fun scrollExpenseList() = scroll(tab = "expenses", list = "entry_list")
+
+    @Test
+    fun scrollShopList() = scroll(tab = "shop", list = "shop_list")
+
+    private fun scroll(tab: String, list: String) = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(FrameTimingMetric()),
+        compilationMode = CompilationMode.Partial(BaselineProfileMode.Require),
+        startupMode = StartupMode.WARM,
+        iterations = 5,
+        setupBlock = {
+            if (iteration == 0) loadSyntheticData()
+            startActivityAndWait()
+            waitForDashboard()
+            openTab(tab)
+        }
+    ) {
+        scrollList(list)
+    }
+}
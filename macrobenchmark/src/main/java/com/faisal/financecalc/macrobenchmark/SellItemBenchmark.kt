@@ -0,0 +1,36 @@
+package com.faisal.financecalc.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Sell dialog open -> price -> confirm, until the shop list shows the new stock
+@RunWith(AndroidJUnit4::class)
+class SellItemBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun sellItem() = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(FrameTimingMetric()),
+        compilationMode = CompilationMode.Partial(BaselineProfileMode.Require),
+        startupMode = StartupMode.WARM,
+        iterations = 10,
+        setupBlock = {
+            if (iteration == 0) loadSyntheticData()
+            startActivityAndWait()
+            waitForDashboard()
+            openTab("shop")
+        }
+    ) {
+        sellFirstShopItem()
+    }
+}
@@ -0,0 +1,47 @@
+package com.faisal.financecalc.macrobenchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+// Launch into PremiumDashboardScreen. The None runs show what startup costs without the
+// Baseline Profile, the BaselineProfile runs what users get after install.
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun coldStartupNoCompilation() = startup(StartupMode.COLD, CompilationMode.None())
+
+    @Test
+    fun coldStartupBaselineProfile() = startup(StartupMode.COLD, CompilationMode.Partial(BaselineProfileMode.Require))
+
+    @Test
+    fun warmStartupNoCompilation() = startup(StartupMode.WARM, CompilationMode.None())
+
+    @Test
+    fun warmStartupBaselineProfile() = startup(StartupMode.WARM, CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun startup(startupMode: StartupMode, compilationMode: CompilationMode) = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(StartupTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = startupMode,
+        iterations = 10,
+        setupBlock = {
+            if (iteration == 0) loadSyntheticData()
+            pressHome()
+        }
+    ) {
+        startActivityAndWait()
+        waitForDashboard()
+    }
+}
@@ -14,3 +14,5 @@ dependencyResolutionManagement {
 }
 rootProject.name = "FinanceCalc"
 include(":app")
+include(":core")
+include(":macrobenchmark")